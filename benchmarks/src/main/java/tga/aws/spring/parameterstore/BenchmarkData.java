@@ -0,0 +1,38 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generated test data shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static String key(int i) {
+        return String.format("service.module%03d.property%06d", i % 100, i);
+    }
+
+    static String value(int i) {
+        return (i % 10 == 0) ? "value-" + i : "true";
+    }
+
+    /**
+     * @return spring property name -> parameter (as the library keeps them after loading)
+     */
+    static Map<String, Parameter> params(String root, int count) {
+        Map<String, Parameter> params = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            params.put(key(i), new Parameter()
+                    .withName(root + "/" + key(i).replace('.', '/'))
+                    .withType("String")
+                    .withValue(value(i)));
+        }
+        return params;
+    }
+
+}
@@ -0,0 +1,155 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spring Boot {@link Binder} binding of a <code>@ConfigurationProperties</code>-like class through the property source
+ * (the binding of the "app" prefix; the source also holds <code>size</code> unrelated parameters),
+ * and of a 500-field tree ("tree" prefix: 50 groups of 10 fields).
+ * <p>
+ *     <code>source=plain</code> hides the names of the property source (a non-enumerable source, as before
+ *     {@link AwsParameterStorePropertySource} became enumerable): Spring can only probe the names one by one then,
+ *     and maps can't be bound at all (the tree is bound empty).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinderBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    @Param({"plain", "enumerable"})
+    public String source;
+
+    static final int TREE_GROUPS = 50;
+    static final int TREE_FIELDS = 10;
+
+    private StandardEnvironment environment;
+
+    @Setup
+    public void setUp() {
+        Map<String, Parameter> params = BenchmarkData.params("/app", size);
+        params.put("app.name", new Parameter().withName("/app/app/name").withValue("benchmark"));
+        params.put("app.port", new Parameter().withName("/app/app/port").withValue("8080"));
+        params.put("app.timeout-ms", new Parameter().withName("/app/app/timeout-ms").withValue("2500"));
+        params.put("app.datasource.url", new Parameter().withName("/app/app/datasource/url").withValue("jdbc:h2:mem:app"));
+        params.put("app.datasource.pool-size", new Parameter().withName("/app/app/datasource/pool-size").withValue("50"));
+        params.put("app.labels.team", new Parameter().withName("/app/app/labels/team").withValue("platform"));
+        params.put("app.labels.tier", new Parameter().withName("/app/app/labels/tier").withValue("gold"));
+        for (int g = 0; g < TREE_GROUPS; g++) {
+            for (int f = 0; f < TREE_FIELDS; f++) {
+                String key = String.format("tree.groups.group%02d.field%d", g, f);
+                params.put(key, new Parameter().withName("/app/" + key.replace('.', '/')).withValue(g + "-" + f));
+            }
+        }
+
+        AwsParameterStorePropertySource propertySource = new AwsParameterStorePropertySource("AwsParameterStorePropertySource", params);
+
+        environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst("plain".equals(source) ? plain(propertySource) : propertySource);
+        ConfigurationPropertySources.attach(environment);
+    }
+
+    @Benchmark
+    public AppProperties bind() {
+        return Binder.get(environment).bind("app", Bindable.of(AppProperties.class)).get();
+    }
+
+    @Benchmark
+    public TreeProperties bindTree() {
+        return Binder.get(environment).bind("tree", Bindable.of(TreeProperties.class)).orElse(null);
+    }
+
+    private static PropertySource<?> plain(AwsParameterStorePropertySource propertySource) {
+        return new PropertySource<Object>(propertySource.getName(), new Object()) {
+            @Override
+            public Object getProperty(String name) {
+                return propertySource.getProperty(name);
+            }
+        };
+    }
+
+    public static class AppProperties {
+        private String name;
+        private int port;
+        private long timeoutMs;
+        private final DataSource datasource = new DataSource();
+        private final Map<String, String> labels = new HashMap<>();
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getPort() { return port; }
+        public void setPort(int port) { this.port = port; }
+        public long getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+        public DataSource getDatasource() { return datasource; }
+        public Map<String, String> getLabels() { return labels; }
+    }
+
+    public static class TreeProperties {
+        private final Map<String, Group> groups = new HashMap<>();
+
+        public Map<String, Group> getGroups() { return groups; }
+    }
+
+    public static class Group {
+        private String field0, field1, field2, field3, field4, field5, field6, field7, field8, field9;
+
+        public String getField0() { return field0; }
+        public void setField0(String field0) { this.field0 = field0; }
+        public String getField1() { return field1; }
+        public void setField1(String field1) { this.field1 = field1; }
+        public String getField2() { return field2; }
+        public void setField2(String field2) { this.field2 = field2; }
+        public String getField3() { return field3; }
+        public void setField3(String field3) { this.field3 = field3; }
+        public String getField4() { return field4; }
+        public void setField4(String field4) { this.field4 = field4; }
+        public String getField5() { return field5; }
+        public void setField5(String field5) { this.field5 = field5; }
+        public String getField6() { return field6; }
+        public void setField6(String field6) { this.field6 = field6; }
+        public String getField7() { return field7; }
+        public void setField7(String field7) { this.field7 = field7; }
+        public String getField8() { return field8; }
+        public void setField8(String field8) { this.field8 = field8; }
+        public String getField9() { return field9; }
+        public void setField9(String field9) { this.field9 = field9; }
+    }
+
+    public static class DataSource {
+        private String url;
+        private int poolSize;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+        public int getPoolSize() { return poolSize; }
+        public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+    }
+
+}
@@ -0,0 +1,88 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagementClientBuilder;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ssm.SsmAsyncClient;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the real AWS SDK clients: building the client and reading a root through {@link SsmHttpStub},
+ * a single shot in a fresh JVM per fork. Run it with the class loading profiler to see the loaded classes:
+ * <pre>
+ *     java -jar benchmarks/target/benchmarks.jar ClientColdStartBenchmark -prof cl
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ClientColdStartBenchmark {
+
+    private static final String REGION = "us-east-1";
+    private static final String ROOT = "/app";
+
+    @Param({"aws-v1", "aws-v2"})
+    public String client;
+
+    @Param({"100"})
+    public int count;
+
+    private SsmHttpStub stub;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = new SsmHttpStub(new InMemorySsmClient(ROOT, count, 10, 0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Benchmark
+    public Map<String, Parameter> startAndReadRoot() {
+        try (ParameterStoreClient parameterStoreClient = newClient()) {
+            return new AwsParameterStoreReader(parameterStoreClient, 1).readAllProps(new String[]{ROOT});
+        }
+    }
+
+    private ParameterStoreClient newClient() {
+        if ("aws-v2".equals(client)) {
+            return new SdkV2ParameterStoreClient(SsmAsyncClient.builder()
+                    .httpClientBuilder(AwsCrtAsyncHttpClient.builder())
+                    .endpointOverride(stub.getEndpoint())
+                    .region(Region.of(REGION))
+                    .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local")))
+                    .build());
+        }
+        return new SdkV1ParameterStoreClient(AWSSimpleSystemsManagementClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(stub.getEndpoint().toString(), REGION))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("local", "local")))
+                .build());
+    }
+
+}
@@ -0,0 +1,49 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AbstractAWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A stub of the AWS client for benchmarks: serves generated parameters page by page with a simulated latency.
+ */
+class InMemorySsmClient extends AbstractAWSSimpleSystemsManagement {
+
+    private final List<Parameter> parameters;
+    private final String root;
+    private final int pageSize;
+    private final long latencyNanos;
+
+    InMemorySsmClient(String root, int count, int pageSize, long latencyMicros) {
+        this.root = root;
+        this.pageSize = pageSize;
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        this.parameters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parameters.add(new Parameter()
+                    .withName(root + "/" + BenchmarkData.key(i).replace('.', '/'))
+                    .withType("String")
+                    .withValue(BenchmarkData.value(i))
+                    .withVersion(1L));
+        }
+    }
+
+    @Override
+    public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+        if (latencyNanos > 0) LockSupport.parkNanos(latencyNanos);
+        if (!root.equals(request.getPath())) return new GetParametersByPathResult();
+
+        int from = request.getNextToken() == null ? 0 : Integer.parseInt(request.getNextToken());
+        int to = Math.min(parameters.size(), from + pageSize);
+        return new GetParametersByPathResult()
+                .withParameters(parameters.subList(from, to))
+                .withNextToken(to < parameters.size() ? String.valueOf(to) : null);
+    }
+
+}
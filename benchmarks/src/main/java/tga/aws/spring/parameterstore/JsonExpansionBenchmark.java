@@ -0,0 +1,71 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first use of a fresh index holding <code>documents</code> JSON parameters of {@link #PROPERTIES} properties each
+ * (besides 1000 plain ones): a lookup below one document parses that document only, the enumeration (what Spring Boot
+ * binding asks an enumerable source for first) parses all of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class JsonExpansionBenchmark {
+
+    static final int PROPERTIES = 20;
+
+    @Param({"10", "1000"})
+    public int documents;
+
+    private Map<String, Parameter> params;
+    private JsonParameters json;
+    private AwsParameterStorePropertySource propertySource;
+
+    @Setup(Level.Trial)
+    public void setUpData() {
+        params = BenchmarkData.params("/app", 1000);
+        for (int d = 0; d < documents; d++) {
+            StringBuilder document = new StringBuilder("{\"pool\": {");
+            for (int p = 0; p < PROPERTIES; p++) document.append(p == 0 ? "" : ", ").append("\"p").append(p).append("\": ").append(p);
+            document.append("}}");
+            String key = "blocks.block" + d;
+            params.put(key, new Parameter().withName("/app/blocks/block" + d).withType("String").withValue(document.toString()));
+        }
+        json = JsonParameters.of(new String[]{"/app"}, "/app/blocks/*");
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpIndex() {
+        propertySource = new AwsParameterStorePropertySource("AwsParameterStorePropertySource",
+                ParameterIndex.of(params, false, false, json));
+    }
+
+    @Benchmark
+    public Object firstLookup() {
+        return propertySource.getProperty("blocks.block0.pool.p1");
+    }
+
+    @Benchmark
+    public String[] firstEnumeration() {
+        return propertySource.getPropertyNames();
+    }
+
+}
@@ -0,0 +1,56 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The key transform of the loading: parameter name -&gt; spring property name
+ * (<code>substring</code> + <code>replace("/", ".")</code> + <code>computeIfAbsent</code> for every parameter of every root).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyTransformBenchmark {
+
+    private static final String[] ROOTS = {"/app", "/common"};
+
+    @Param({"1000", "10000"})
+    public int count;
+
+    private List<List<Parameter>> rootsParameters;
+
+    @Setup
+    public void setUp() {
+        rootsParameters = new ArrayList<>();
+        for (String root : ROOTS) rootsParameters.add(new ArrayList<>(BenchmarkData.params(root, count).values()));
+    }
+
+    @Benchmark
+    public Map<String, Parameter> merge() {
+        return AwsParameterStoreReader.merge(ROOTS, rootsParameters, false);
+    }
+
+    @Benchmark
+    public String toPropertyName() {
+        return AwsParameterStoreReader.toPropertyName("/app", "/app/service/module001/property000001");
+    }
+
+}
@@ -0,0 +1,97 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole loading: {@link AwsParameterStoreConnector#postProcessEnvironment} against an in-memory stub client
+ * with configurable parameter counts, page sizes and simulated latency of every call.
+ * <p>
+ *     The standard output is discarded during the measurement (the building of the log messages is still measured).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class PostProcessEnvironmentBenchmark {
+
+    @Param({"1000", "10000"})
+    public int count;
+
+    @Param({"10"})
+    public int pageSize;
+
+    @Param({"0", "1000"})
+    public long latencyMicros;
+
+    private AwsParameterStoreConnector connector;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() {
+        AWSSimpleSystemsManagement client = new InMemorySsmClient("/app", count, pageSize, latencyMicros);
+
+        connector = new AwsParameterStoreConnector();
+        connector.setAwsParameterStoreClientBuilder(new AWSParameterStoreClientBuilder() {
+            @Override
+            public ParameterStoreClient getClient(PropertyResolver settings) {
+                return new SdkV1ParameterStoreClient(client);
+            }
+        });
+
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public StandardEnvironment postProcessEnvironment() {
+        AwsParameterStoreConnector.registry.clear();
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AwsParameterStoreConnector.pName_AcceptedSpringProfiles, "ANY");
+        settings.put(AwsParameterStoreConnector.pName_Roots, "/app");
+
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", settings));
+
+        connector.postProcessEnvironment(environment, null);
+        return environment;
+    }
+
+}
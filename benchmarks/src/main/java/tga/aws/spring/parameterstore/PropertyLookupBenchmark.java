@@ -0,0 +1,59 @@
+package tga.aws.spring.parameterstore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot path: {@link AwsParameterStorePropertySource#getProperty(String)} hits and misses for different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyLookupBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int size;
+
+    private AwsParameterStorePropertySource propertySource;
+    private String[] hits;
+    private String[] misses;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        propertySource = new AwsParameterStorePropertySource("AwsParameterStorePropertySource", BenchmarkData.params("/app", size));
+
+        hits = new String[1024];
+        misses = new String[1024];
+        for (int j = 0; j < hits.length; j++) {
+            // new String instances: the hash code is not cached by the caller, as for spring lookups
+            hits[j] = new String(BenchmarkData.key((j * 7919) % size));
+            misses[j] = new String("spring.some.other.property" + j);
+        }
+    }
+
+    @Benchmark
+    public Object hit() {
+        return propertySource.getProperty(hits[i++ & 1023]);
+    }
+
+    @Benchmark
+    public Object miss() {
+        return propertySource.getProperty(misses[i++ & 1023]);
+    }
+
+}
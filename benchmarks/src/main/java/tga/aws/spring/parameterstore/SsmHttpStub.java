@@ -0,0 +1,107 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves a stub client over the SSM JSON protocol on localhost, so the real AWS SDK clients (v1 and v2)
+ * can be started and called without AWS. Only GetParametersByPath is supported.
+ */
+class SsmHttpStub implements AutoCloseable {
+
+    private static final Pattern PATH = Pattern.compile("\"Path\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern NEXT_TOKEN = Pattern.compile("\"NextToken\"\\s*:\\s*\"([^\"]*)\"");
+
+    private final AWSSimpleSystemsManagement client;
+    private final HttpServer server;
+
+    SsmHttpStub(AWSSimpleSystemsManagement client) throws IOException {
+        this.client = client;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    URI getEndpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+        String body = read(exchange.getRequestBody());
+
+        if (!"AmazonSSM.GetParametersByPath".equals(target)) {
+            respond(exchange, 400, "{\"__type\":\"UnknownOperationException\",\"message\":\"" + target + "\"}");
+            return;
+        }
+
+        GetParametersByPathResult result = client.getParametersByPath(new GetParametersByPathRequest()
+                .withPath(find(PATH, body))
+                .withNextToken(find(NEXT_TOKEN, body))
+                .withRecursive(true)
+                .withWithDecryption(true));
+
+        StringBuilder json = new StringBuilder("{\"Parameters\":[");
+        for (int i = 0; i < result.getParameters().size(); i++) {
+            Parameter p = result.getParameters().get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"Name\":").append(quote(p.getName()))
+                .append(",\"Type\":").append(quote(p.getType()))
+                .append(",\"Value\":").append(quote(p.getValue()))
+                .append(",\"Version\":").append(p.getVersion())
+                .append('}');
+        }
+        json.append(']');
+        if (result.getNextToken() != null) json.append(",\"NextToken\":").append(quote(result.getNextToken()));
+        json.append('}');
+
+        respond(exchange, 200, json.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.1");
+        exchange.getResponseHeaders().set("x-amzn-RequestId", "stub");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; (n = in.read(buffer)) > 0; ) out.write(buffer, 0, n);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String find(Pattern pattern, String json) {
+        Matcher m = pattern.matcher(json);
+        return m.find() ? m.group(1) : null;
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+}
@@ -1,25 +1,269 @@
 package tga.aws.spring.parameterstore;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
 import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
 import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagementClientBuilder;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.util.ClassUtils;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.amazonaws.SDKGlobalConfiguration.*;
 
 /**
  * It just a wrapper for instatiating an AWS client.
  * This wrapper needed to allow create an AWS Mock in tests using Mockito framework.
  * It's impossible to make the mock without this wrapper, becouse
  * the default AWS client implementation uses static methods for a new client creation.
+ * <p>
+ *     {@link #getClient()} builds every AWS SDK v1 client of the default region (<i>aws-v1</i> and the v1 fallback
+ *     of <i>aws</i>), so overriding (or stubbing) it replaces them; {@link #getClient(PropertyResolver)} is the hook
+ *     replacing any client.
+ * </p>
+ * <p>
+ *     <strong>psClient</strong> selects the client:
+ *     <ul>
+ *         <li><i>aws</i> (default) - AWS SDK v2 async client ({@link SdkV2ParameterStoreClient}) if the SDK v2
+ *         and its CRT HTTP client are in the classpath, otherwise (or if the v2 client can't be built) AWS SDK v1 client</li>
+ *         <li><i>aws-v1</i>, <i>aws-v2</i> - the exact AWS SDK version</li>
+ *         <li><i>local</i> - see below</li>
+ *     </ul>
+ * </p>
+ * <p>
+ *     With <strong>psClient</strong>=<i>local</i> a {@link LocalParameterStore} seeded from
+ *     the <strong>psLocalStoreFile</strong> file is used instead of AWS (no network access needed).
+ *     Faults can be injected with <strong>psLocalLatencyMs</strong>, <strong>psLocalRateLimit</strong>,
+ *     <strong>psLocalThrottleProbability</strong> and <strong>psLocalFailureProbability</strong>.
+ * </p>
+ * <p>
+ *     With <strong>psHedgeRegions</strong> (regions holding replicas of the parameters) the client of the default
+ *     region is combined with clients of these regions: a call which is not answered within <strong>psHedgeDelayMs</strong>
+ *     is sent to the next region as well (see {@link HedgedParameterStoreClient}). With the local client every "region"
+ *     is a separate store loaded from the same file.
+ * </p>
+ * <p>
+ *     With the reader's throttler on (<strong>psRateLimit</strong> or <strong>psMaxRetries</strong> set, see
+ *     {@link AdaptiveThrottler}) the AWS clients are built with the SDK retries disabled: the throttler retries
+ *     the failed calls itself, the SDK retries would multiply its attempts and hide the throttling from it.
+ * </p>
  *
  */
 public class AWSParameterStoreClientBuilder {
 
-    static private final SystemOutLogger logger = new SystemOutLogger();
+    static public final String pName_Client                   = "psClient";
+    static public final String pName_LocalStoreFile           = "psLocalStoreFile";
+    static public final String pName_LocalLatency             = "psLocalLatencyMs";
+    static public final String pName_LocalRateLimit           = "psLocalRateLimit";
+    static public final String pName_LocalThrottleProbability = "psLocalThrottleProbability";
+    static public final String pName_LocalFailureProbability  = "psLocalFailureProbability";
+    static public final String pName_HedgeRegions             = "psHedgeRegions";
+    static public final String pName_HedgeDelay               = "psHedgeDelayMs";
+
+    static private final String SDK_V2_CLIENT_CLASS = "software.amazon.awssdk.services.ssm.SsmAsyncClient";
+    static private final String SDK_V2_CRT_CLIENT_CLASS = "software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient";
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    private volatile boolean sdkRetries = true;
+
+    /**
+     * Builds a client according to the <strong>psClient</strong> setting: "aws" (default), "aws-v1", "aws-v2" or "local".
+     *
+     * @return the client or <code>null</code> if it can't be built
+     */
+    public ParameterStoreClient getClient(PropertyResolver settings) {
+        String client = settings.getProperty(pName_Client, "");
+        if (client == null || client.isEmpty()) client = "aws";
+
+        boolean sdkRetries = !isThrottled(settings);
+        this.sdkRetries = sdkRetries;
+        ParameterStoreClient primary;
+        switch (client.toLowerCase()) {
+            case "local":  primary = wrap(getLocalClient(settings)); break;
+            case "aws-v1": primary = wrap(getClient()); break;
+            case "aws-v2": primary = getSdkV2Client(null, sdkRetries); break;
+            case "aws":    primary = getDefaultClient(null, sdkRetries); break;
+            default:
+                logger.warn("Unknown " + pName_Client + " value '" + client + "', the default AWS client is used");
+                client = "aws";
+                primary = getDefaultClient(null, sdkRetries);
+        }
+
+        String hedgeRegions = settings.getProperty(pName_HedgeRegions, "");
+        if (primary == null || hedgeRegions == null || hedgeRegions.trim().isEmpty()) return primary;
+        return hedged(primary, client.toLowerCase(), hedgeRegions, sdkRetries, settings);
+    }
+
+    /**
+     * @return <code>true</code> if the reader's throttler retries the failed calls (see {@link AwsParameterStoreConnector#pName_MaxRetries})
+     */
+    static boolean isThrottled(PropertyResolver settings) {
+        double rateLimit = settings.getProperty(AwsParameterStoreConnector.pName_RateLimit, Double.class, 0d);
+        int maxRetries = settings.getProperty(AwsParameterStoreConnector.pName_MaxRetries, Integer.class, 0);
+        return rateLimit > 0 || maxRetries > 0;
+    }
+
+    /**
+     * @return the primary client combined with the clients of the hedge regions (which could be built)
+     */
+    private ParameterStoreClient hedged(ParameterStoreClient primary, String client, String hedgeRegions, boolean sdkRetries,
+                                        PropertyResolver settings) {
+        List<ParameterStoreClient> clients = new ArrayList<>();
+        List<String> regions = new ArrayList<>();
+        clients.add(primary);
+        String defaultRegion = systemSetting(AWS_REGION_SYSTEM_PROPERTY, AWS_REGION_ENV_VAR);
+        regions.add(defaultRegion.isEmpty() ? "default" : defaultRegion);
+
+        for (String r : hedgeRegions.split(",")) {
+            String region = r.trim();
+            if (region.isEmpty() || regions.contains(region)) continue;
+            ParameterStoreClient regional;
+            switch (client) {
+                case "local":  regional = wrap(getLocalClient(settings)); break;
+                case "aws-v1": regional = wrap(getClient(region, sdkRetries)); break;
+                case "aws-v2": regional = getSdkV2Client(region, sdkRetries); break;
+                default:       regional = getDefaultClient(region, sdkRetries);
+            }
+            if (regional == null) continue;
+            clients.add(regional);
+            regions.add(region);
+        }
+        if (clients.size() == 1) return primary;
+
+        long delay = settings.getProperty(pName_HedgeDelay, Long.class, 100L);
+        logger.info("AWS Parameter Store integration: hedged reading from " + regions + " after " + delay + " ms");
+        return new HedgedParameterStoreClient(clients, regions, delay);
+    }
+
+    /**
+     * @param region the region (<code>null</code> - the default one)
+     * @return AWS SDK v2 client if it's usable, otherwise AWS SDK v1 client; <code>null</code> if none can be built
+     */
+    private ParameterStoreClient getDefaultClient(String region, boolean sdkRetries) {
+        ParameterStoreClient client = null;
+        if (isSdkV2Present()) client = getSdkV2Client(region, sdkRetries);
+        if (client == null) client = wrap(region == null ? getClient() : getClient(region, sdkRetries));
+        return client;
+    }
+
+    /**
+     * Identifies the parameters a client built with these settings reads: the region, the access key id and the profile
+     * set by the system properties / environment variables (or the file of the local store). Nothing is resolved remotely:
+     * credentials of the instance role are the same for the whole JVM anyway.
+     * Loaded parameters are shared by the Spring environments with the same identity (see {@link AwsParameterStoreRegistry}).
+     */
+    public String getIdentity(PropertyResolver settings) {
+        String client = settings.getProperty(pName_Client, "");
+        if ("local".equalsIgnoreCase(client)) {
+            return "local:" + new File(settings.getProperty(pName_LocalStoreFile, "")).getAbsolutePath();
+        }
 
+        return "aws:" + systemSetting(AWS_REGION_SYSTEM_PROPERTY, AWS_REGION_ENV_VAR)
+                + ":" + systemSetting(ACCESS_KEY_SYSTEM_PROPERTY, ACCESS_KEY_ENV_VAR)
+                + ":" + systemSetting(AWS_PROFILE_SYSTEM_PROPERTY, AWS_PROFILE_ENVIRONMENT_VARIABLE);
+    }
+
+    /**
+     * Builds the AWS SDK v1 client of the default region; the SDK retries follow the settings of the last
+     * {@link #getClient(PropertyResolver)} call (see {@link #isThrottled(PropertyResolver)}).
+     *
+     * @return AWS SDK v1 client or <code>null</code> if it can't be built
+     */
     public AWSSimpleSystemsManagement getClient() {
+        return getClient(null, sdkRetries);
+    }
+
+    /**
+     * @return AWS SDK v1 client of the region or <code>null</code> if it can't be built
+     */
+    public AWSSimpleSystemsManagement getClient(String region) {
+        return getClient(region, true);
+    }
+
+    /**
+     * @param region     the region (<code>null</code> - the default one)
+     * @param sdkRetries <code>false</code> - the SDK doesn't retry failed calls
+     * @return AWS SDK v1 client or <code>null</code> if it can't be built
+     */
+    public AWSSimpleSystemsManagement getClient(String region, boolean sdkRetries) {
 
         try {
-            return AWSSimpleSystemsManagementClientBuilder.defaultClient();
+            AWSSimpleSystemsManagementClientBuilder builder = AWSSimpleSystemsManagementClientBuilder.standard();
+            if (region != null) builder.withRegion(region);
+            if (!sdkRetries) builder.withClientConfiguration(new ClientConfiguration().withRetryPolicy(PredefinedRetryPolicies.NO_RETRY_POLICY));
+            return builder.build();
         } catch (Throwable ex) {
-            logger.warn("Cant build an AWS client: " + ex.getClass().getSimpleName() + "\n" + ex.getMessage());
+            logger.warn("Cant build an AWS client" + (region != null ? " of the region " + region : "") + ": "
+                    + ex.getClass().getSimpleName() + "\n" + ex.getMessage());
+        }
+
+        return null;
+    }
+
+    public ParameterStoreClient getSdkV2Client() {
+        return getSdkV2Client(null, true);
+    }
+
+    public ParameterStoreClient getSdkV2Client(String region) {
+        return getSdkV2Client(region, true);
+    }
+
+    /**
+     * @param region     the region (<code>null</code> - the default one)
+     * @param sdkRetries <code>false</code> - the SDK doesn't retry failed calls
+     * @return AWS SDK v2 client or <code>null</code> if it can't be built
+     */
+    public ParameterStoreClient getSdkV2Client(String region, boolean sdkRetries) {
+
+        try {
+            return SdkV2ParameterStoreClient.client(region, sdkRetries);
+        } catch (Throwable ex) {
+            logger.warn("Cant build an AWS SDK v2 client" + (region != null ? " of the region " + region : "") + ": "
+                    + ex.getClass().getSimpleName() + "\n" + ex.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * @return <code>true</code> if both the SDK v2 SSM client and the CRT HTTP client (a separate optional dependency) are in the classpath
+     */
+    boolean isSdkV2Present() {
+        return isPresent(SDK_V2_CLIENT_CLASS) && isPresent(SDK_V2_CRT_CLIENT_CLASS);
+    }
+
+    boolean isPresent(String className) {
+        return ClassUtils.isPresent(className, AWSParameterStoreClientBuilder.class.getClassLoader());
+    }
+
+    private static String systemSetting(String systemProperty, String environmentVariable) {
+        String value = System.getProperty(systemProperty);
+        if (value == null) value = System.getenv(environmentVariable);
+        return value != null ? value : "";
+    }
+
+    private static ParameterStoreClient wrap(AWSSimpleSystemsManagement client) {
+        return client != null ? new SdkV1ParameterStoreClient(client) : null;
+    }
+
+    private AWSSimpleSystemsManagement getLocalClient(PropertyResolver settings) {
+        String file = settings.getProperty(pName_LocalStoreFile, "");
+
+        try {
+            LocalParameterStore store = file.isEmpty() ? new LocalParameterStore() : LocalParameterStore.load(new File(file));
+            logger.info("AWS Parameter Store integration: the local store is used (" + store.size() + " parameters from '" + file + "')");
+
+            return store
+                    .withLatency(settings.getProperty(pName_LocalLatency, Long.class, 0L))
+                    .withRateLimit(settings.getProperty(pName_LocalRateLimit, Integer.class, 0))
+                    .withThrottleProbability(settings.getProperty(pName_LocalThrottleProbability, Double.class, 0d))
+                    .withFailureProbability(settings.getProperty(pName_LocalFailureProbability, Double.class, 0d));
+        } catch (RuntimeException ex) {
+            logger.warn("Cant build a local parameter store: " + ex.getClass().getSimpleName() + "\n" + ex.getMessage());
         }
 
         return null;
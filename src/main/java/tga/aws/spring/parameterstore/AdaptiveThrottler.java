@@ -0,0 +1,160 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.AmazonServiceException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Client side protection of the shared AWS Parameter Store API quota: when many instances start at once
+ * they should slow down instead of failing with <code>ThrottlingException</code>.
+ * <ul>
+ *     <li>a token bucket limits the rate of calls (shared by all the threads using this throttler)</li>
+ *     <li>the rate is adapted with AIMD: halved on every throttling response, increased by a small step on every success
+ *     (never above the configured rate)</li>
+ *     <li>throttled and server-side (5xx) failures are retried with "decorrelated jitter" backoff</li>
+ *     <li>calls, retries and throttling responses are counted for the startup report</li>
+ * </ul>
+ */
+public class AdaptiveThrottler {
+
+    private static final double MIN_RATE = 0.5;
+    private static final double ADDITIVE_STEP = 0.5;
+
+    private final double maxRate;
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private double rate;
+    private double tokens = 1;
+    private long lastRefillNanos = System.nanoTime();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttles = new LongAdder();
+
+    /**
+     * @param maxRate         calls per second (0 - no rate limit, only retries)
+     * @param maxRetries      maximum number of retries of a single call
+     * @param baseDelayMillis minimum backoff delay
+     * @param maxDelayMillis  maximum backoff delay
+     */
+    public AdaptiveThrottler(double maxRate, int maxRetries, long baseDelayMillis, long maxDelayMillis) {
+        this.maxRate = maxRate;
+        this.rate = maxRate;
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Executes an AWS call, waiting for the rate limit and retrying throttled calls.
+     */
+    public <T> T call(Supplier<T> request) {
+        long delay = baseDelayMillis;
+
+        for (int attempt = 0; ; attempt++) {
+            acquire();
+            calls.increment();
+            try {
+                T result = request.get();
+                onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                boolean throttled = isThrottling(e);
+                if (throttled) {
+                    throttles.increment();
+                    onThrottle();
+                }
+                if (!(throttled || isServerError(e)) || attempt >= maxRetries) throw e;
+
+                retries.increment();
+                delay = Math.min(maxDelayMillis, randomBetween(baseDelayMillis, delay * 3));
+                sleep(TimeUnit.MILLISECONDS.toNanos(delay));
+            }
+        }
+    }
+
+    /**
+     * Sleeps a random time in [0, maxMillis): spreads the start of many instances deployed at once.
+     */
+    public static void randomDelay(long maxMillis) {
+        if (maxMillis > 0) sleep(TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(maxMillis)));
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getThrottles() {
+        return throttles.sum();
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        return "calls: " + getCalls() + ", retries: " + getRetries() + ", throttled: " + getThrottles()
+                + (maxRate > 0 ? String.format(", rate: %.1f/%.1f per second", getRate(), maxRate) : "");
+    }
+
+    static boolean isThrottling(RuntimeException e) {
+        if (!(e instanceof AmazonServiceException)) return false;
+        AmazonServiceException ase = (AmazonServiceException) e;
+        String code = ase.getErrorCode();
+        return ase.getStatusCode() == 429
+                || "ThrottlingException".equals(code)
+                || "Throttling".equals(code)
+                || "TooManyRequestsException".equals(code);
+    }
+
+    private static boolean isServerError(RuntimeException e) {
+        return e instanceof AmazonServiceException && ((AmazonServiceException) e).getStatusCode() >= 500;
+    }
+
+    private void acquire() {
+        if (maxRate <= 0) return;
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, rate), tokens + (now - lastRefillNanos) * rate / 1e9);
+            lastRefillNanos = now;
+            tokens -= 1; // reserve a token, a negative balance is the wait time
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * 1e9 / rate);
+        }
+        sleep(waitNanos);
+    }
+
+    private synchronized void onSuccess() {
+        if (maxRate > 0) rate = Math.min(maxRate, rate + ADDITIVE_STEP);
+    }
+
+    private synchronized void onThrottle() {
+        if (maxRate > 0) rate = Math.max(MIN_RATE, rate / 2);
+    }
+
+    private static long randomBetween(long min, long max) {
+        return max <= min ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("AWS Parameter Store call was interrupted", e);
+        }
+    }
+
+}
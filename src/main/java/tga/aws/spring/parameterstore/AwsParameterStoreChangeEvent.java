@@ -0,0 +1,36 @@
+package tga.aws.spring.parameterstore;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Published into the application context when reloaded AWS Parameter Store values were applied
+ * to the {@link AwsParameterStorePropertySource}.
+ * <p>
+ *     The event source is the property source itself.
+ * </p>
+ */
+public class AwsParameterStoreChangeEvent extends ApplicationEvent {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<String> changedKeys;
+
+    public AwsParameterStoreChangeEvent(AwsParameterStorePropertySource source, Set<String> changedKeys) {
+        super(source);
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+    }
+
+    /**
+     * @return spring property names which were added, removed or have got another value
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    @Override
+    public AwsParameterStorePropertySource getSource() {
+        return (AwsParameterStorePropertySource) super.getSource();
+    }
+}
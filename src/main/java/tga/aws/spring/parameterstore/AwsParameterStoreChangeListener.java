@@ -0,0 +1,180 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Applies Parameter Store change notifications (see {@link ParameterChange}) from a {@link ParameterChangeQueue}
+ * to an {@link AwsParameterStorePropertySource}, instead of polling the roots.
+ * <p>
+ *     A single thread long-polls the queue; no AWS calls are made while nothing changes. The names of a batch of
+ *     notifications are re-fetched with <code>GetParameters</code> (10 names per call) together with the names
+ *     which map to the same spring properties in the other roots, so the roots precedence is kept: a change shadowed by
+ *     an earlier root changes nothing, a deleted parameter uncovers the one from a later root.
+ *     The new index is swapped in and an {@link AwsParameterStoreChangeEvent} is published, like a refresh does
+ *     (see {@link AwsParameterStoreRefresher}).
+ * </p>
+ * <p>
+ *     Names which failed to be fetched are retried with the next batch. The listener starts on
+ *     {@link ApplicationReadyEvent} and stops (closing the queue) when the context of that event is closed.
+ * </p>
+ */
+public class AwsParameterStoreChangeListener implements ApplicationListener<ApplicationEvent> {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    static final long POLL_TIMEOUT_MILLIS = 1000;
+    static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final AwsParameterStorePropertySource propertySource;
+    private final String[] roots;
+    private final Supplier<AwsParameterStoreReader> readerSupplier;
+    private final ParameterChangeQueue queue;
+
+    private AwsParameterStoreReader reader;
+    private volatile ApplicationEventPublisher publisher;
+    private Thread thread;
+    private volatile ApplicationContext context;
+
+    /**
+     * @param readerSupplier creates a reader (with an AWS client) on the first change; can return <code>null</code> if AWS is unreachable
+     */
+    public AwsParameterStoreChangeListener(AwsParameterStorePropertySource propertySource, String[] roots,
+                                           Supplier<AwsParameterStoreReader> readerSupplier, ParameterChangeQueue queue) {
+        this.propertySource = propertySource;
+        this.roots = roots;
+        this.readerSupplier = readerSupplier;
+        this.queue = queue;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationReadyEvent) {
+            ConfigurableApplicationContext ready = ((ApplicationReadyEvent) event).getApplicationContext();
+            if (context == null) context = ready;
+            if (context == ready) start(ready);
+        } else if (event instanceof ContextClosedEvent && ((ContextClosedEvent) event).getApplicationContext() == context) {
+            stop(); // a closed child context (or a context of another application) doesn't stop this one
+        }
+    }
+
+    public synchronized void start(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+        if (thread != null) return;
+
+        thread = ParameterStoreExecutors.threadFactory("aws-ps-changes-").newThread(this::listen);
+        thread.start();
+        logger.info("AWS Parameter Store integration: listening to change events of " + queue.getClass().getSimpleName());
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+            queue.close();
+        }
+    }
+
+    /**
+     * Re-fetches the parameters and applies the changes (if any).
+     *
+     * @param names changed parameter names; names outside the roots are ignored
+     * @return changed spring property names
+     */
+    public Set<String> invalidate(Collection<String> names) {
+        Set<String> keys = new LinkedHashSet<>();
+        Set<String> candidates = new TreeSet<>();
+        for (String name : names) {
+            for (String root : roots) {
+                if (!name.startsWith(root + "/")) continue;
+                String key = AwsParameterStoreReader.toPropertyName(root, name);
+                keys.add(key);
+                String relative = name.substring(root.length());
+                for (String r : roots) {
+                    candidates.add(r + relative);
+                    candidates.add(r + "/" + key.replace('.', '/'));
+                }
+            }
+        }
+        if (keys.isEmpty()) return Collections.emptySet();
+
+        if (reader == null) reader = readerSupplier.get();
+        if (reader == null) throw new IllegalStateException("AWS Parameter Store is unreachable");
+
+        NavigableMap<String, Parameter> found = new TreeMap<>();
+        for (Parameter p : reader.readParameters(candidates)) found.put(p.getName(), p);
+
+        return AwsParameterStoreRefresher.apply(propertySource, current -> {
+            Map<String, Parameter> actual = current.toParameters();
+            for (String key : keys) {
+                Parameter p = find(key, found);
+                if (p != null) actual.put(key, p);
+                else actual.remove(key);
+            }
+            return actual;
+        }, publisher);
+    }
+
+    /**
+     * @return the parameter of the first root which has the property (the first by name within a root, as the merge does)
+     */
+    private Parameter find(String key, NavigableMap<String, Parameter> found) {
+        for (String root : roots) {
+            for (Parameter p : found.subMap(root + "/", true, root + "0", false).values()) {
+                if (AwsParameterStoreReader.toPropertyName(root, p.getName()).equals(key)) return p;
+            }
+        }
+        return null;
+    }
+
+    private void listen() {
+        Set<String> pending = new LinkedHashSet<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<String> messages = queue.poll(POLL_TIMEOUT_MILLIS);
+                for (String message : messages) {
+                    ParameterChange change = ParameterChange.parse(message);
+                    if (change != null) pending.add(change.getName());
+                    else logger.warn("AWS Parameter Store: not a change event is skipped: " + message);
+                }
+                if (pending.isEmpty()) continue;
+
+                try {
+                    invalidate(pending);
+                    pending.clear();
+                } catch (RuntimeException e) {
+                    logger.warn("AWS Parameter Store change events failed (" + pending.size() + " names are retried): "
+                            + e.getClass().getSimpleName() + " " + e.getMessage());
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("AWS Parameter Store change queue failed: " + e.getClass().getSimpleName() + " " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -1,15 +1,24 @@
 package tga.aws.spring.parameterstore;
 
-import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
-import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
-import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
 import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.env.EnvironmentPostProcessor;
 import org.springframework.core.env.ConfigurableEnvironment;
-
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.core.env.PropertySource;
+import tga.aws.spring.parameterstore.exception.AwsParameterStoreTimeoutException;
+import tga.aws.spring.parameterstore.local.FileParameterChangeQueue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  *  The class will add a new PropertySource to spring boot PropertySources chain (at the beginning od the chain).
@@ -51,13 +60,106 @@ import java.util.Map;
  *    <li>/app/server/port</li>
  *    <li>/common/server/port <i>(if /app/server/port is undefined)</i></li>
  *  </ul>
+ *  <br>
+ *  <h3>psFetchThreads system property</h3>
+ *  Number of threads used to download the root folders in parallel (default: 1 - the roots are read one by one).
+ *  <br>The result does not depend on this setting: a property found in an earlier root always wins.
+ *  <br>
+ *  <h3>psSnapshotFile, psSnapshotMode, psSnapshotKey system properties</h3>
+ *  A local "last known good" copy of the loaded parameters (versioned, checksummed, AES-GCM encrypted when
+ *  SecureStrings are present - see {@link AwsParameterStoreSnapshot}).
+ *  <ul>
+ *    <li><i>fallback</i> mode (default) - the snapshot is used if AWS Parameter Store can't be reached</li>
+ *    <li><i>warm</i> mode - the application starts from the snapshot immediately, the snapshot is checked against AWS in background</li>
+ *  </ul>
+ *  A snapshot written for other roots or another region / credentials is ignored.
+ *  <h3>psRefreshIntervalSec system property</h3>
+ *  If set, the roots are re-read periodically after the application start (see {@link AwsParameterStoreRefresher}).
+ *  Changed values become visible through the property source immediately; an {@link AwsParameterStoreChangeEvent}
+ *  with the changed property names is published into the application context.
+ *  <br>With <strong>psRefreshMode</strong>=<i>incremental</i> a refresh fetches only new and changed parameters
+ *  (see {@link AwsParameterStoreIncrementalSync}).
+ *  <h3>psChangeQueue system property</h3>
+ *  Push-based invalidation: EventBridge "Parameter Store Change" notifications are consumed from a queue and only
+ *  the changed names are re-fetched (see {@link AwsParameterStoreChangeListener}); nothing is polled from AWS while
+ *  nothing changes. It can be combined with a (rare) periodic refresh as a safety net.
+ *  <h3>psLoadMode, psLazyCacheSize system properties</h3>
+ *  With <strong>psLoadMode</strong>=<i>lazy</i> nothing is downloaded at start: every property is resolved on
+ *  the first request using the rules above (see {@link AwsParameterStoreLazyPropertySource}).
+ *  Snapshots and refreshing are not used in this mode.
+ *  <h3>psLoadMode=manifest, psManifestKeys, psManifestPrefixes system properties</h3>
+ *  Only the properties the application refers to are downloaded: the names of <code>@Value</code> placeholders and
+ *  the prefixes of <code>@ConfigurationProperties</code> are collected at compile time by an annotation processor
+ *  shipped with the starter (see {@link tga.aws.spring.parameterstore.manifest.ParameterKeysProcessor}) into a manifest.
+ *  Every root is read with concurrent <code>GetParameters</code> calls (10 names each) plus a recursive reading of
+ *  every prefix, on <strong>psShardThreads</strong> threads (see {@link ParameterKeyManifest}). Properties read
+ *  by other means (<code>server.port</code>, <code>Environment.getProperty(...)</code>) have to be listed in
+ *  <strong>psManifestKeys</strong> / <strong>psManifestPrefixes</strong>. Without a manifest in the classpath the whole
+ *  roots are read.
+ *  <h3>psDecryption system property</h3>
+ *  With <strong>psDecryption</strong>=<i>lazy</i> the roots are loaded without decryption (no KMS calls at start);
+ *  a SecureString is decrypted on its first read with a <code>GetParameters</code> call, concurrent first reads
+ *  are batched, and the plaintext is cached (see {@link AwsParameterStorePropertySource}).
+ *  <h3>psJsonParameters system property</h3>
+ *  A parameter matching one of the patterns holds a JSON document which is served as flat properties:
+ *  <code>/app/datasource</code> = <code>{"pool": {"max": 50}}</code> - <code>datasource.pool.max</code>. A document is
+ *  parsed on the first lookup below its key, all of them on the first enumeration of the names, i.e. the first
+ *  Spring Boot binding (see {@link JsonParameters}); the roots order applies as for plain parameters.
+ *  <h3>psStartupTimeoutMs, psCallTimeoutMs system properties</h3>
+ *  The overall deadline of the parameters reading and the timeout of every single AWS call.
+ *  If some roots are not read before the deadline, the reading is treated as a connection failure
+ *  (the snapshot is used if configured; the "Prod" profile fails the start); the completed roots are logged.
+ *  <h3>psRateLimit, psMaxRetries, psRetryBaseDelayMs, psRetryMaxDelayMs, psStartupJitterMs system properties</h3>
+ *  Fleet-safe throttling (see {@link AdaptiveThrottler}): a client side rate limit shared by all the roots which adapts
+ *  to <code>ThrottlingException</code> responses, jittered retries, and a random delay before the reading.
+ *  Numbers of calls, retries and throttled calls are logged at the end of the start.
+ *  <h3>psClient system property</h3>
+ *  "aws" (default: AWS SDK v2 if it is in the classpath, otherwise v1), "aws-v1", "aws-v2"
+ *  or "local" - a local file-backed store instead of AWS (see {@link AWSParameterStoreClientBuilder}).
+ *  <h3>psHedgeRegions, psHedgeDelayMs system properties</h3>
+ *  Regions holding replicas of the parameters: a call which is not answered by the default region within the delay
+ *  (default: 100 ms) is sent to the next region too, the first answer wins (see {@link HedgedParameterStoreClient}).
+ *  Next pages of a reading stay in the region which answered its first page. The hedged calls and the calls won
+ *  by the backup regions are logged at the end of the start.
+ *  <h3>psLogVerbosity system property</h3>
+ *  off | summary (default) | roots | keys - the messages are buffered and replayed into the application logging system
+ *  once it's initialized (see {@link ParameterStoreLog}).
+ *  <h3>psIncludePaths, psExcludePaths, psMaxDepth system properties</h3>
+ *  Only the selected parts of the roots are requested from AWS (see {@link ParameterSelection}): included subtrees are read
+ *  directly, excluded ones cost no calls; the number of calls (and the calls saved compared with a full reading, when known)
+ *  is logged for every such root.
+ *  <h3>psShardedRoots, psShardPrefixes, psShardThreads, psShardCoverageCheck system properties</h3>
+ *  Pages of a single root can only be read one after another, so a huge root can be split into child paths
+ *  (configured or discovered by a <code>DescribeParameters</code> pass) read with up to <strong>psShardThreads</strong>
+ *  concurrent calls (shared by all the roots read in parallel). A root sharded by configured prefixes is listed
+ *  alongside to find and read the parameters outside the prefixes, so the result is exactly the same as for
+ *  the sequential reading; <strong>psShardCoverageCheck</strong>=false skips the listing and loads only the prefixes
+ *  and the direct parameters of the root. Calls of all the shards go through the same throttler.
+ *  Roots with a path selection are not sharded.
+ *  <h3>psSharedCacheDir, psSharedCacheRoots, psSharedCacheMaxAgeSec, psSharedCacheWaitMs system properties</h3>
+ *  A memory-mapped cache shared by all the JVMs of a host (see {@link HostSharedParameterCache}): a single JVM
+ *  (the owner of a file lock) reads a root from AWS, the others map the written data.
+ *  Roots with decrypted SecureStrings are not shared unless <strong>psDecryption</strong>=<i>lazy</i>.
+ *  <h3>psUsageWarmupSec, psUsageReportFile system properties</h3>
+ *  The first read of every parameter is recorded (a bit per parameter, see {@link ParameterUsage}); when the warm-up window
+ *  after the start is over (or the context is closed) the loaded but never read parameters are reported, with the
+ *  <strong>psExcludePaths</strong> value skipping them (see {@link AwsParameterStoreUsageReporter}).
+ *  <h3>Several Spring environments in a JVM</h3>
+ *  Child contexts, Spring Cloud bootstrap contexts and test contexts get their own property source each, but the parameters
+ *  are loaded once per credentials, region, roots and decryption mode: concurrent starts wait for a single load and later ones
+ *  reuse the loaded index (see {@link AwsParameterStoreRegistry}). With <strong>psRefreshIntervalSec</strong> a loaded set
+ *  is reused during the refresh interval only. The lazy mode is not shared (it loads nothing at start).
+ *  <h3>Metrics</h3>
+ *  Timings, pages and sizes of every root and AWS call are logged at the end of the start (see {@link AwsParameterStoreMetrics});
+ *  with Micrometer in the classpath they are published as <i>aws.parameterstore.*</i> meters, together with
+ *  the property lookup hits and misses, once the application is ready.
  *
  * @see org.springframework.boot.env.EnvironmentPostProcessor
  *
  */
 public class AwsParameterStoreConnector implements EnvironmentPostProcessor {
 
-    static private final SystemOutLogger logger = new SystemOutLogger();
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
 
     /*
       <p>List of spring profiles (comma separated). If one of these profiles is active - the AWS Property Source Connector will be activated</p>
@@ -80,109 +182,611 @@ public class AwsParameterStoreConnector implements EnvironmentPostProcessor {
      */
     static public final String pName_Roots                  = "psRoots";
 
-    static boolean initialized;
+    /*
+      <p>Number of threads used to download the root folders in parallel (default: 1 - sequential reading)</p>
+      <p>Virtual threads are used if the JVM supports them</p>
+     */
+    static public final String pName_FetchThreads           = "psFetchThreads";
+
+    /*
+      <p>Path to a local "last known good" snapshot file of the loaded parameters (default: no snapshot)</p>
+      <p>The snapshot is refreshed after every successful load and used as a fallback if AWS is unreachable</p>
+     */
+    static public final String pName_SnapshotFile           = "psSnapshotFile";
+
+    /*
+      <p>"fallback" (default) - the snapshot is used only if AWS is unreachable</p>
+      <p>"warm" - the snapshot is used right away, AWS is checked in background</p>
+     */
+    static public final String pName_SnapshotMode           = "psSnapshotMode";
+
+    /*
+      <p>Base64 encoded AES key (128 or 256 bits) for the snapshot encryption.</p>
+      <p>Required if SecureString parameters are loaded: they are never stored in plain text</p>
+     */
+    static public final String pName_SnapshotKey            = "psSnapshotKey";
+
+    /*
+      <p>Interval (in seconds) of the parameters reloading after the application start (default: 0 - no reloading)</p>
+      <p>Changed values are published as {@link AwsParameterStoreChangeEvent}</p>
+     */
+    static public final String pName_RefreshInterval        = "psRefreshIntervalSec";
+
+    /*
+      <p>"full" (default) - every refresh re-reads the whole roots</p>
+      <p>"incremental" - every refresh scans parameters metadata and fetches only new and changed parameters</p>
+     */
+    static public final String pName_RefreshMode            = "psRefreshMode";
+
+    /*
+      <p>Source of the Parameter Store change events: "file:/path/events.jsonl" or a {@link ParameterChangeQueue}
+      implementation class name (default: empty - no change events)</p>
+     */
+    static public final String pName_ChangeQueue            = "psChangeQueue";
+
+    /*
+      <p>"eager" (default) - all the parameters of the roots are downloaded at start</p>
+      <p>"lazy" - every property is fetched from AWS when it's requested for the first time</p>
+      <p>"manifest" - only the keys and prefixes of the compile-time key manifest are downloaded at start</p>
+     */
+    static public final String pName_LoadMode               = "psLoadMode";
+
+    /*
+      <p>Comma separated property names read in the manifest mode in addition to the manifest, e.g. "server.port"
+      (default: empty)</p>
+     */
+    static public final String pName_ManifestKeys           = "psManifestKeys";
+
+    /*
+      <p>Comma separated property prefixes read in the manifest mode in addition to the manifest, e.g. "logging,management"
+      (default: empty)</p>
+     */
+    static public final String pName_ManifestPrefixes       = "psManifestPrefixes";
+
+    /*
+      <p>Maximum number of cached lookups (both found and missed properties) in the lazy mode (default: 10000)</p>
+     */
+    static public final String pName_LazyCacheSize          = "psLazyCacheSize";
+
+    /*
+      <p>SecureString decryption: eager (default) - at start | lazy - on the first read of a property</p>
+     */
+    static public final String pName_Decryption             = "psDecryption";
+
+    /*
+      <p>Comma separated patterns of the parameters holding JSON documents, e.g. "/app/datasource,/common/blocks"
+      (default: empty - none, see {@link JsonParameters})</p>
+     */
+    static public final String pName_JsonParameters         = "psJsonParameters";
+
+    /*
+      <p>Maximum duration (in milliseconds) of the parameters reading (default: 0 - no limit)</p>
+      <p>If some roots are not read in time, the reading is treated as a connection failure</p>
+     */
+    static public final String pName_StartupTimeout         = "psStartupTimeoutMs";
+
+    /*
+      <p>Timeout (in milliseconds) of every single AWS call (default: 0 - the AWS SDK default)</p>
+     */
+    static public final String pName_CallTimeout            = "psCallTimeoutMs";
+
+    /*
+      <p>Maximum rate of AWS calls per second, shared by all the roots (default: 0 - no limit)</p>
+      <p>The rate is halved on every ThrottlingException and slowly recovers on successful calls</p>
+     */
+    static public final String pName_RateLimit              = "psRateLimit";
+
+    /*
+      <p>Maximum number of retries of a throttled (or 5xx) call (default: 0, or 5 if psRateLimit is set)</p>
+      <p>With psRateLimit or psMaxRetries set the AWS clients are built without the SDK retries</p>
+     */
+    static public final String pName_MaxRetries             = "psMaxRetries";
+
+    /*
+      <p>Minimum and maximum delays (in milliseconds) of the "decorrelated jitter" retry backoff (default: 100 and 10000)</p>
+     */
+    static public final String pName_RetryBaseDelay         = "psRetryBaseDelayMs";
+    static public final String pName_RetryMaxDelay          = "psRetryMaxDelayMs";
+
+    /*
+      <p>Maximum random delay (in milliseconds) before the parameters reading (default: 0)</p>
+      <p>Spreads the AWS calls of many instances started at once</p>
+     */
+    static public final String pName_StartupJitter          = "psStartupJitterMs";
+
+    /*
+      <p>The library logging: off | summary (default) | roots | keys (see {@link ParameterStoreLog})</p>
+     */
+    static public final String pName_LogVerbosity           = "psLogVerbosity";
+
+    /*
+      <p>Comma separated patterns of the parameter paths to load, e.g. "/common/shared/**,/common/db/*"
+      (default: empty - the whole roots, see {@link ParameterSelection})</p>
+     */
+    static public final String pName_IncludePaths           = "psIncludePaths";
+
+    /*
+      <p>Comma separated patterns of the parameter paths not to load, e.g. "/common/team-b/**"</p>
+     */
+    static public final String pName_ExcludePaths           = "psExcludePaths";
+
+    /*
+      <p>Maximum depth of the loaded parameters below a root: for all the roots ("2") or per root ("/common=2,/app=3")
+      (default: empty - no limit)</p>
+     */
+    static public final String pName_MaxDepth               = "psMaxDepth";
+
+    /*
+      <p>Comma separated roots read in shards - child paths downloaded in parallel (default: empty - no sharding,
+      see {@link ParameterShards})</p>
+     */
+    static public final String pName_ShardedRoots           = "psShardedRoots";
+
+    /*
+      <p>Comma separated shard prefixes of the sharded roots, e.g. "/big/team-a,/big/team-b"
+      (default: empty - the shards are discovered with a DescribeParameters pass)</p>
+     */
+    static public final String pName_ShardPrefixes          = "psShardPrefixes";
+
+    /*
+      <p>Maximum number of concurrent calls reading the sharded roots or the roots in the manifest mode, all the roots
+      together (default: 4)</p>
+     */
+    static public final String pName_ShardThreads           = "psShardThreads";
+
+    /*
+      <p>true (default) | false - list a root sharded by psShardPrefixes with DescribeParameters to find and read
+      the parameters outside the prefixes; false - the parameters outside the prefixes are not loaded</p>
+     */
+    static public final String pName_ShardCoverageCheck     = "psShardCoverageCheck";
+
+    /*
+      <p>Directory of the host-level cache shared by the JVMs of the host, e.g. /dev/shm/aws-parameter-store
+      (default: empty - not used, see {@link HostSharedParameterCache})</p>
+     */
+    static public final String pName_SharedCacheDir         = "psSharedCacheDir";
+
+    /*
+      <p>Comma separated roots read through the shared cache (default: all the roots)</p>
+     */
+    static public final String pName_SharedCacheRoots       = "psSharedCacheRoots";
+
+    /*
+      <p>Maximum age (in seconds) of the shared data, older data is re-read by a single JVM (default: 300)</p>
+     */
+    static public final String pName_SharedCacheMaxAge      = "psSharedCacheMaxAgeSec";
+
+    /*
+      <p>How long (in milliseconds) to wait for the JVM which is reading a root before reading it directly (default: 5000)</p>
+     */
+    static public final String pName_SharedCacheWait        = "psSharedCacheWaitMs";
+
+    /*
+      <p>Warm-up window (in seconds) after the application start; then the loaded but never read parameters are reported
+      (default: 0 - the reads are not tracked, see {@link ParameterUsageReport})</p>
+     */
+    static public final String pName_UsageWarmup            = "psUsageWarmupSec";
+
+    /*
+      <p>A properties file the usage report is written to: psExcludePaths skipping the unread parameters, the unread names
+      (default: empty - the report is only logged)</p>
+     */
+    static public final String pName_UsageReportFile        = "psUsageReportFile";
+
+    static final String PROPERTY_SOURCE_NAME = "AwsParameterStorePropertySource";
+
+    static final AwsParameterStoreRegistry registry = new AwsParameterStoreRegistry();
 
     private AWSParameterStoreClientBuilder awsParameterStoreClientBuilder = new AWSParameterStoreClientBuilder();
 
     @Override
     public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        ParameterStoreLog.setVerbosity(getLogVerbosity(environment));
+
+        try {
+            connect(environment, application);
+        } catch (RuntimeException | Error e) {
+            ParameterStoreLog.replay(); // the application fails before any event reaches its listeners
+            throw e;
+        }
+
+        // the logging system is initialized right after the environment post processors,
+        // the messages are replayed by ParameterStoreLogReplayListener on ApplicationPreparedEvent
+        if (application == null) ParameterStoreLog.replay();
+    }
+
+    private void connect(ConfigurableEnvironment environment, SpringApplication application) {
         logger.info("AWS Parameter Store integration: initialization started...");
 
-        if (!initialized && isParameterStorePropertySourceEnabled(environment)) {
+        if (!isParameterStorePropertySourceEnabled(environment)) {
+            logger.warn("AWS Parameter Store integration: was not activated");
+            return;
+        }
+
+        if (environment.getPropertySources().contains(PROPERTY_SOURCE_NAME)) {
+            logger.info("AWS Parameter Store integration: already activated for this environment");
+            return;
+        }
+
+        String[] roots = getRoots(environment);
+
+        AwsParameterStoreMetrics metrics = new AwsParameterStoreMetrics();
 
-            String[] roots = environment.getProperty(pName_Roots, String.class, "")
-                    .split(",");
-            if (roots.length == 0) roots = new String[]{""};
+        if ("lazy".equalsIgnoreCase(getProperty(environment, pName_LoadMode, String.class, "eager"))) {
+            activateLazyMode(roots, environment, metrics, application);
+            return;
+        }
 
-            AWSSimpleSystemsManagement client = buildAwsClient(roots, environment);
+        if (isManifestMode(environment)) {
+            ParameterKeyManifest manifest = getManifest(environment);
+            if (manifest != null) logger.info("AWS Parameter Store integration: key manifest " + manifest);
+            else logger.warn("AWS Parameter Store integration: no key manifest (" + ParameterKeyManifest.RESOURCE
+                    + ") found in the classpath and no " + pName_ManifestKeys + ", the whole roots are read");
+        }
 
-            if (client != null) {
-                Map<String, Parameter> params = readAllProps(client, roots);
-                if ( !params.isEmpty() ) {
-                    environment.getPropertySources()
-                            .addFirst( new AwsParameterStorePropertySource( "AwsParameterStorePropertySource", params ) );
-                    logger.info("AWS Parameter Store integration: activated ("+ params.size() +" parameters loaded)");
-                } else {
-                    logger.warn("AWS Parameter Store integration: was not activated (no parameters found)");
+        AwsParameterStoreSnapshot snapshot = buildSnapshot(environment);
+        boolean warm = snapshot != null && "warm".equalsIgnoreCase(getProperty(environment, pName_SnapshotMode, String.class, "fallback"));
+
+        List<Object> key = registryKey(roots, environment);
+        AtomicReference<Map<String, Parameter>> warmStart = new AtomicReference<>();
+        AtomicBoolean loaded = new AtomicBoolean();
+
+        ParameterIndex index = registry.getOrLoad(key, getProperty(environment, pName_RefreshInterval, Long.class, 0L) * 1000, () -> {
+            loaded.set(true);
+            if (warm) {
+                Map<String, Parameter> params = snapshot.read();
+                if (params != null && !params.isEmpty()) {
+                    warmStart.set(params);
+                    return newIndex(params, environment);
                 }
-            } else {
-                logger.warn("AWS Parameter Store integration: was not activated due a connection issue");
             }
+            Map<String, Parameter> params = loadParameters(roots, environment, snapshot, metrics);
+            return params != null ? newIndex(params, environment) : null;
+        });
 
-            initialized = true;
+        if (index == null) {
+            logger.warn("AWS Parameter Store integration: was not activated due a connection issue");
+            return;
+        }
+        if (index.size() == 0) {
+            logger.warn("AWS Parameter Store integration: was not activated (no parameters found)");
+            return;
+        }
+
+        AwsParameterStorePropertySource propertySource = newPropertySource(index, environment);
+        environment.getPropertySources().addFirst( propertySource );
+        if (warmStart.get() != null) {
+            logger.info("AWS Parameter Store integration: activated from the snapshot " + snapshot.getFile() + " ("+ index.size() +" parameters loaded)");
+            checkSnapshot(snapshot, key, index, propertySource, roots, environment);
+        } else if (loaded.get()) {
+            logger.info("AWS Parameter Store integration: activated ("+ index.size() +" parameters loaded)");
         } else {
-            logger.warn("AWS Parameter Store integration: was not activated");
+            logger.info("AWS Parameter Store integration: activated ("+ index.size() +" parameters loaded earlier in this JVM)");
         }
+        registerRefresher(propertySource, roots, environment, application);
+        registerChangeListener(propertySource, roots, environment, application);
+        registerUsageReporter(propertySource, roots, environment, application);
+        registerMetricsPublisher(metrics, propertySource, application);
     }
 
-    private Map<String, Parameter> readAllProps(AWSSimpleSystemsManagement client, String[] roots) {
-
-        Map<String, Parameter> props = new HashMap<>();
+    /**
+     * Loaded parameters are shared by the environments with the same credentials, roots and index settings.
+     */
+    private List<Object> registryKey(String[] roots, ConfigurableEnvironment environment) {
+        return AwsParameterStoreRegistry.key(
+                getAwsParameterStoreClientBuilder().getIdentity(environment),
+                Arrays.asList(roots),
+                getSelection(environment).toString(),
+                isLazyDecryption(environment),
+                isWithMetadata(environment),
+                getJsonParameters(environment).toString(),
+                isManifestMode(environment) ? getManifest(environment) : null);
+    }
 
-        for (String root : roots) {
-            String nextToken = null;
+    private void activateLazyMode(String[] roots, ConfigurableEnvironment environment,
+                                  AwsParameterStoreMetrics metrics, SpringApplication application) {
+        ParameterStoreClient client = getAwsParameterStoreClientBuilder().getClient(environment);
+        if (client == null) {
+            logger.warn("AWS Parameter Store integration: was not activated due a connection issue");
+            return;
+        }
 
-            do {
-                GetParametersByPathResult result = client.getParametersByPath( new GetParametersByPathRequest()
-                        .withPath(root)
-                        .withWithDecryption(true)
-                        .withRecursive(true)
-                        .withNextToken(nextToken)
-                );
-                nextToken = result.getNextToken();
+        int cacheSize = getProperty(environment, pName_LazyCacheSize, Integer.class, 10_000);
+        AwsParameterStoreLazyPropertySource propertySource = new AwsParameterStoreLazyPropertySource(
+                PROPERTY_SOURCE_NAME, roots, newReader(client, environment).withDecryption(true).withMetrics(metrics), cacheSize, isProd(environment));
+        environment.getPropertySources().addFirst( propertySource );
+        logger.info("AWS Parameter Store integration: activated (lazy mode)");
+        registerMetricsPublisher(metrics, propertySource, application);
+    }
 
-                if (result.getParameters() != null){
-                    for ( Parameter p : result.getParameters() ) {
-                        props.computeIfAbsent(p.getName().substring(root.length()+1).replace("/", "."),
-                                key -> {
-                                    logger.info("AWS Parameter Store loaded: {\"springProperty\": \"" + key
-                                            + "\", \"name\" = \"" + p.getName()
-                                            + "\", \"value\" = \"" + getSecureValue( p ) + "\"}"
-                                    );
-                                    return p;
-                                }
-                        );
-                    }
+    /**
+     * Reads the parameters from AWS. If AWS can't be reached (no call of the reading succeeded) or the startup deadline
+     * is missed, the snapshot (if configured) is used instead. A failure after AWS has answered (an access denied to
+     * another root, a KMS error on a later page) is rethrown.
+     *
+     * @return loaded parameters or <code>null</code> in case of a connection issue
+     */
+    private Map<String, Parameter> loadParameters(String[] roots, ConfigurableEnvironment environment,
+                                                  AwsParameterStoreSnapshot snapshot, AwsParameterStoreMetrics metrics) {
+        RuntimeException failure = null;
+
+        ParameterStoreClient client = getAwsParameterStoreClientBuilder().getClient(environment);
+        if (client != null) {
+            // there is no separate connection check: the first page of the real reading plays this role
+            AwsParameterStoreReader reader = newReader(client, environment).withMetrics(metrics);
+            try {
+                AdaptiveThrottler.randomDelay(getProperty(environment, pName_StartupJitter, Long.class, 0L));
+                long start = System.nanoTime();
+                Map<String, Parameter> params = reader.readAllProps(roots);
+                metrics.recordLoad(System.nanoTime() - start, reader.getThrottler());
+                if (reader.getThrottler() != null) logger.info("AWS Parameter Store integration: " + reader.getThrottler());
+                if (client instanceof HedgedParameterStoreClient) {
+                    metrics.recordHedging((HedgedParameterStoreClient) client);
+                    logger.info("AWS Parameter Store integration: hedging " + client);
+                }
+                logger.info("AWS Parameter Store integration: load metrics " + metrics);
+                if (snapshot != null) snapshot.write(params);
+                return params;
+            } catch (AwsParameterStoreTimeoutException e) {
+                logger.warn(e.getMessage());
+                failure = e;
+            } catch (RuntimeException e) {
+                if (reader.isReached()) {
+                    logger.error("AWS Parameter Store reading failed: " + e.getClass().getSimpleName() + " " + e.getMessage());
+                    throw e;
                 }
+                logger.warn("AWS Parameter Store can't be reached: " + e.getClass().getSimpleName() + " " + e.getMessage());
+                failure = e;
+            } finally {
+                client.close();
+            }
+        }
 
-            } while (nextToken != null);
+        if (snapshot != null) {
+            Map<String, Parameter> params = snapshot.read();
+            if (params != null) {
+                logger.warn("AWS Parameter Store is unreachable: the last known good snapshot " + snapshot.getFile() + " is used");
+                return params;
+            }
+        }
 
+        if (failure != null) {
+            if (isProd(environment)) {
+                logger.error("AWS Parameter Store is unreachable vs default credentials!");
+                throw failure;
+            }
+            logger.info("AWS Parameter Store is unreachable vs default credentials. Local instance settings only will be used for the application configuration.");
         }
 
-        return props;
+        return null;
+    }
+
+    /**
+     * Checks the parameters started from the snapshot against AWS in a background thread.
+     */
+    private void checkSnapshot(AwsParameterStoreSnapshot snapshot, List<Object> key, ParameterIndex index,
+                               AwsParameterStorePropertySource propertySource, String[] roots, ConfigurableEnvironment environment) {
+        ParameterStoreExecutors.threadFactory("aws-ps-snapshot-check-").newThread(() -> {
+            try {
+                ParameterStoreClient client = getAwsParameterStoreClientBuilder().getClient(environment);
+                if (client == null) return;
+
+                Map<String, Parameter> actual;
+                try {
+                    actual = readAllProps(client, roots, environment);
+                } finally {
+                    client.close();
+                }
+                ParameterIndex actualIndex = newIndex(actual, environment);
+                Set<String> changed = ParameterIndex.changedKeys(index, actualIndex);
+                // a refresh or a change notification may have replaced the snapshot index already
+                if (!changed.isEmpty() && propertySource.compareAndSetIndex(index, actualIndex)) {
+                    registry.put(key, actualIndex);
+                    logger.warn("AWS Parameter Store snapshot was stale, changed properties: " + changed);
+                }
+                snapshot.write(actual);
+            } catch (RuntimeException e) {
+                logger.warn("AWS Parameter Store snapshot check failed: " + e.getClass().getSimpleName() + " " + e.getMessage());
+            }
+        }).start();
+    }
+
+    private ParameterIndex newIndex(Map<String, Parameter> params, ConfigurableEnvironment environment) {
+        return ParameterIndex.of(params, isWithMetadata(environment), isLazyDecryption(environment), getJsonParameters(environment));
+    }
+
+    private AwsParameterStorePropertySource newPropertySource(ParameterIndex index, ConfigurableEnvironment environment) {
+        AwsParameterStorePropertySource propertySource = new AwsParameterStorePropertySource(PROPERTY_SOURCE_NAME, index);
+        if (!index.isEncrypted()) return propertySource;
+
+        SecureStringDecryptor decryptor = new SecureStringDecryptor(() -> {
+            ParameterStoreClient client = getAwsParameterStoreClientBuilder().getClient(environment);
+            return client != null ? newReader(client, environment).withDecryption(true) : null;
+        }, isProd(environment));
+        return propertySource.withDecryptor(decryptor);
+    }
+
+    private boolean isWithMetadata(ConfigurableEnvironment environment) {
+        // names and versions are needed only for the incremental refresh; names - to keep JSON parameters through a refresh
+        // and for the usage report
+        return getProperty(environment, pName_RefreshInterval, Long.class, 0L) > 0 && isIncrementalRefresh(environment)
+                || !getJsonParameters(environment).isEmpty()
+                || getProperty(environment, pName_UsageWarmup, Long.class, 0L) > 0;
+    }
+
+    private boolean isLazyDecryption(ConfigurableEnvironment environment) {
+        return "lazy".equalsIgnoreCase(getProperty(environment, pName_Decryption, String.class, "eager"));
     }
 
-    private String getSecureValue(Parameter p) {
-        String t = p.getType();
-        if (t == null) return "???";
-        return (t.startsWith("Secure") || t.contains("pass") || t.contains("priva")) ? "***" : p.getValue();
+    private boolean isIncrementalRefresh(ConfigurableEnvironment environment) {
+        return "incremental".equalsIgnoreCase(getProperty(environment, pName_RefreshMode, String.class, "full"));
     }
 
-    private AWSSimpleSystemsManagement buildAwsClient(String[] roots, ConfigurableEnvironment environment) {
-        AWSSimpleSystemsManagement client = getAwsParameterStoreClientBuilder().getClient();
+    private void registerRefresher(AwsParameterStorePropertySource propertySource, String[] roots,
+                                   ConfigurableEnvironment environment, SpringApplication application) {
+        long interval = getProperty(environment, pName_RefreshInterval, Long.class, 0L);
+        if (interval <= 0 || application == null) return;
 
-        if (client == null) return null;
+        application.addListeners(new AwsParameterStoreRefresher(propertySource, roots, () -> {
+            ParameterStoreClient client = getAwsParameterStoreClientBuilder().getClient(environment);
+            return client != null ? newReader(client, environment) : null;
+        }, interval * 1000, isIncrementalRefresh(environment)));
+    }
+
+    private void registerChangeListener(AwsParameterStorePropertySource propertySource, String[] roots,
+                                        ConfigurableEnvironment environment, SpringApplication application) {
+        String queue = getProperty(environment, pName_ChangeQueue, String.class, "");
+        if (queue.isEmpty() || application == null) return;
+
+        application.addListeners(new AwsParameterStoreChangeListener(propertySource, roots, () -> {
+            ParameterStoreClient client = getAwsParameterStoreClientBuilder().getClient(environment);
+            return client != null ? newReader(client, environment) : null;
+        }, newChangeQueue(queue, environment)));
+    }
+
+    private void registerUsageReporter(AwsParameterStorePropertySource propertySource, String[] roots,
+                                       ConfigurableEnvironment environment, SpringApplication application) {
+        long warmup = getProperty(environment, pName_UsageWarmup, Long.class, 0L);
+        if (warmup <= 0 || application == null) return;
+
+        String file = getProperty(environment, pName_UsageReportFile, String.class, "");
+        application.addListeners(new AwsParameterStoreUsageReporter(propertySource, roots, warmup * 1000,
+                file.isEmpty() ? null : new File(file)));
+    }
+
+    static ParameterChangeQueue newChangeQueue(String queue, PropertyResolver environment) {
+        if (queue.startsWith("file:")) return new FileParameterChangeQueue(new File(queue.substring("file:".length())));
 
         try {
-            // AWS Connection checking: trying to read properties from the specified roots
-            client.getParametersByPath( new GetParametersByPathRequest()
-                    .withMaxResults(1)
-                    .withPath(roots[0])
-                    .withWithDecryption(true)
-                    .withRecursive(true)
-            );
-
-        } catch (Exception e) {
-            if (environment.acceptsProfiles("Prod")) {
-                logger.error("AWS Parameter Store is unreachable vs default credentials!");
-                throw e;
-            } else {
-                logger.info("AWS Parameter Store is unreachable vs default credentials. Local instance settings only will be used for the application configuration.");
-                return null;
+            Class<?> type = Class.forName(queue.trim());
+            if (!ParameterChangeQueue.class.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Change queue " + queue + " is not a " + ParameterChangeQueue.class.getName());
+            }
+            try {
+                return (ParameterChangeQueue) type.getConstructor(PropertyResolver.class).newInstance(environment);
+            } catch (NoSuchMethodException e) {
+                return (ParameterChangeQueue) type.getConstructor().newInstance();
             }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Change queue " + queue + " can't be created: " + e, e);
         }
+    }
+
+    private void registerMetricsPublisher(AwsParameterStoreMetrics metrics, PropertySource<?> propertySource, SpringApplication application) {
+        if (application != null) application.addListeners(new AwsParameterStoreMetricsPublisher(metrics, propertySource));
+    }
+
+    private AwsParameterStoreSnapshot buildSnapshot(ConfigurableEnvironment environment) {
+        String file = getProperty(environment, pName_SnapshotFile, String.class, "");
+        if (file.isEmpty()) return null;
+
+        return new AwsParameterStoreSnapshot(new File(file),
+                AwsParameterStoreSnapshot.decodeKey(getProperty(environment, pName_SnapshotKey, String.class, "")),
+                getRoots(environment), getAwsParameterStoreClientBuilder().getIdentity(environment));
+    }
+
+    private Map<String, Parameter> readAllProps(ParameterStoreClient client, String[] roots, ConfigurableEnvironment environment) {
+        return newReader(client, environment).readAllProps(roots);
+    }
+
+    private AwsParameterStoreReader newReader(ParameterStoreClient client, ConfigurableEnvironment environment) {
+        int fetchThreads = getProperty(environment, pName_FetchThreads, Integer.class, 1);
+        ParameterKeyManifest manifest = isManifestMode(environment) ? getManifest(environment) : null;
+        return new AwsParameterStoreReader(client, fetchThreads)
+                .withDecryption(!isLazyDecryption(environment))
+                .withCallTimeout(getProperty(environment, pName_CallTimeout, Integer.class, 0))
+                .withDeadline(getProperty(environment, pName_StartupTimeout, Long.class, 0L))
+                .withThrottler(newThrottler(environment))
+                .withSelection(getSelection(environment))
+                .withSharding(getShards(environment), getProperty(environment, pName_ShardThreads, Integer.class, 4))
+                .withShardCoverageCheck(getProperty(environment, pName_ShardCoverageCheck, Boolean.class, true))
+                .withManifest(manifest, getRoots(environment), getJsonParameters(environment))
+                .withSharedCache(newSharedCache(environment), sharedCacheRoots(environment),
+                        getAwsParameterStoreClientBuilder().getIdentity(environment));
+    }
+
+    private HostSharedParameterCache newSharedCache(ConfigurableEnvironment environment) {
+        String dir = getProperty(environment, pName_SharedCacheDir, String.class, "");
+        if (dir.isEmpty()) return null;
+
+        return new HostSharedParameterCache(new File(dir),
+                getProperty(environment, pName_SharedCacheMaxAge, Long.class, 300L) * 1000,
+                getProperty(environment, pName_SharedCacheWait, Long.class, 5000L));
+    }
+
+    private List<String> sharedCacheRoots(ConfigurableEnvironment environment) {
+        String roots = getProperty(environment, pName_SharedCacheRoots, String.class, "");
+        return roots.isEmpty() ? null : Arrays.asList(roots.split(","));
+    }
+
+    private AdaptiveThrottler newThrottler(ConfigurableEnvironment environment) {
+        double rateLimit = getProperty(environment, pName_RateLimit, Double.class, 0d);
+        int maxRetries = getProperty(environment, pName_MaxRetries, Integer.class, rateLimit > 0 ? 5 : 0);
+        if (rateLimit <= 0 && maxRetries <= 0) return null;
 
-        return client;
+        return new AdaptiveThrottler(rateLimit, maxRetries,
+                getProperty(environment, pName_RetryBaseDelay, Long.class, 100L),
+                getProperty(environment, pName_RetryMaxDelay, Long.class, 10_000L));
+    }
+
+    private boolean isProd(ConfigurableEnvironment environment) {
+        return environment.acceptsProfiles("Prod");
+    }
+
+    private static String[] getRoots(ConfigurableEnvironment environment) {
+        String[] roots = environment.getProperty(pName_Roots, String.class, "")
+                .split(",");
+        return roots.length == 0 ? new String[]{""} : roots;
+    }
+
+    private JsonParameters getJsonParameters(ConfigurableEnvironment environment) {
+        return JsonParameters.of(getRoots(environment), getProperty(environment, pName_JsonParameters, String.class, ""));
+    }
+
+    private boolean isManifestMode(ConfigurableEnvironment environment) {
+        return "manifest".equalsIgnoreCase(getProperty(environment, pName_LoadMode, String.class, "eager"));
+    }
+
+    /**
+     * @return the manifests of the classpath with the configured keys and prefixes, <code>null</code> if all of them are empty
+     */
+    private ParameterKeyManifest getManifest(ConfigurableEnvironment environment) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ParameterKeyManifest manifest = ParameterKeyManifest.load(classLoader != null ? classLoader : getClass().getClassLoader())
+                .with(getProperty(environment, pName_ManifestKeys, String.class, ""),
+                      getProperty(environment, pName_ManifestPrefixes, String.class, ""));
+        return manifest.isEmpty() ? null : manifest;
+    }
+
+    private ParameterSelection getSelection(ConfigurableEnvironment environment) {
+        return ParameterSelection.of(getRoots(environment),
+                getProperty(environment, pName_IncludePaths, String.class, ""),
+                getProperty(environment, pName_ExcludePaths, String.class, ""),
+                getProperty(environment, pName_MaxDepth, String.class, ""));
+    }
+
+    /**
+     * @return sharded roots -> their shard prefixes (empty - to be discovered)
+     */
+    private Map<String, List<String>> getShards(ConfigurableEnvironment environment) {
+        String roots = getProperty(environment, pName_ShardedRoots, String.class, "");
+        if (roots.trim().isEmpty()) return Collections.emptyMap();
+
+        Map<String, List<String>> shards = new HashMap<>();
+        for (String root : roots.split(",")) {
+            if (!root.trim().isEmpty()) shards.put(root.trim(), new ArrayList<>());
+        }
+        for (String prefix : getProperty(environment, pName_ShardPrefixes, String.class, "").split(",")) {
+            String p = prefix.trim();
+            if (p.isEmpty()) continue;
+            List<String> rootPrefixes = shards.entrySet().stream()
+                    .filter(e -> p.startsWith(e.getKey() + "/"))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Shard prefix '" + p + "' is not below any of the sharded roots " + roots));
+            rootPrefixes.add(p);
+        }
+        return shards;
     }
 
     private boolean isParameterStorePropertySourceEnabled(ConfigurableEnvironment environment){
@@ -195,6 +799,20 @@ public class AwsParameterStoreConnector implements EnvironmentPostProcessor {
         return environment.acceptsProfiles(profiles);
     }
 
+    private static ParameterStoreLog.Verbosity getLogVerbosity(ConfigurableEnvironment environment) {
+        String verbosity = getProperty(environment, pName_LogVerbosity, String.class, "summary");
+        try {
+            return ParameterStoreLog.Verbosity.valueOf(verbosity.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ParameterStoreLog.Verbosity.SUMMARY;
+        }
+    }
+
+    static <T> T getProperty(ConfigurableEnvironment environment, String name, Class<T> type, T defaultValue) {
+        T value = environment.getProperty(name, type);
+        return value != null ? value : defaultValue;
+    }
+
     public AWSParameterStoreClientBuilder getAwsParameterStoreClientBuilder() {
         return awsParameterStoreClientBuilder;
     }
@@ -0,0 +1,103 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Incremental synchronization of already loaded parameters with AWS Parameter Store.
+ * <p>
+ *     Instead of a full recursive <code>GetParametersByPath</code> (with decryption of every SecureString),
+ *     every sync scans only the parameters metadata (<code>DescribeParameters</code>, 50 parameters per page,
+ *     no decryption) and compares <code>Version</code> / <code>LastModifiedDate</code> with the known parameters.
+ *     Only new and changed parameters are fetched (<code>GetParameters</code>, 10 names per call);
+ *     parameters which disappeared from the metadata are removed.
+ * </p>
+ * <p>
+ *     The state is kept per root (including parameters shadowed by an earlier root), so the merged result
+ *     follows exactly the same precedence rules as the full reading.
+ *     The class is not thread safe: syncs must not run concurrently.
+ * </p>
+ */
+public class AwsParameterStoreIncrementalSync {
+
+    private final AwsParameterStoreReader reader;
+    private final String[] roots;
+    private final List<Map<String, Parameter>> state;
+
+    /**
+     * @param loaded already loaded parameters (spring property name -> parameter); parameters shadowed by an earlier root
+     *               are not there (as well as parameters without a name), so they will be fetched during the first sync
+     */
+    public AwsParameterStoreIncrementalSync(AwsParameterStoreReader reader, String[] roots, Map<String, Parameter> loaded) {
+        this.reader = reader;
+        this.roots = roots;
+        this.state = new ArrayList<>(roots.length);
+        for (int i = 0; i < roots.length; i++) state.add(new HashMap<>());
+
+        for (Map.Entry<String, Parameter> e : loaded.entrySet()) {
+            if (e.getValue().getName() == null) continue; // loaded without metadata
+            int root = rootOf(e.getKey(), e.getValue().getName());
+            if (root >= 0) state.get(root).put(e.getValue().getName(), e.getValue());
+        }
+    }
+
+    /**
+     * @return new merged parameters (spring property name -> parameter) or <code>null</code> if nothing has changed
+     */
+    public Map<String, Parameter> sync() {
+        boolean changed = false;
+
+        for (int i = 0; i < roots.length; i++) {
+            Map<String, Parameter> known = state.get(i);
+
+            Set<String> present = new HashSet<>();
+            List<String> modified = new ArrayList<>();
+            for (ParameterMetadata m : reader.describeRoot(roots[i])) {
+                present.add(m.getName());
+                Parameter p = known.get(m.getName());
+                if (p == null || isModified(p, m)) modified.add(m.getName());
+            }
+
+            for (Iterator<String> it = known.keySet().iterator(); it.hasNext(); ) {
+                if (!present.contains(it.next())) {
+                    it.remove();
+                    changed = true;
+                }
+            }
+
+            for (Parameter p : reader.readParameters(modified)) {
+                known.put(p.getName(), p);
+                changed = true;
+            }
+        }
+
+        if (!changed) return null;
+
+        List<Iterable<Parameter>> rootsParameters = new ArrayList<>(roots.length);
+        for (Map<String, Parameter> known : state) rootsParameters.add(known.values());
+        return AwsParameterStoreReader.merge(roots, rootsParameters, false);
+    }
+
+    private int rootOf(String propertyName, String parameterName) {
+        for (int i = 0; i < roots.length; i++) {
+            String root = roots[i];
+            if (parameterName.startsWith(root + "/") && AwsParameterStoreReader.toPropertyName(root, parameterName).equals(propertyName)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isModified(Parameter p, ParameterMetadata m) {
+        if (p.getVersion() != null && m.getVersion() != null) return !p.getVersion().equals(m.getVersion());
+        return m.getLastModifiedDate() == null || !Objects.equals(p.getLastModifiedDate(), m.getLastModifiedDate());
+    }
+
+}
@@ -0,0 +1,106 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.springframework.core.env.PropertySource;
+import tga.aws.spring.parameterstore.exception.AwsParameterStoreConnectorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Spring property source which resolves properties on demand instead of downloading whole roots.
+ * <p>
+ *     A requested property name is converted to a candidate parameter name for every root
+ *     (<code>server.port</code> -&gt; <code>/app/server/port</code>, <code>/common/server/port</code>);
+ *     all the candidates are fetched with a single <code>GetParameters</code> call (see {@link ParameterBatchLoader})
+ *     and the first root which has the parameter wins.
+ * </p>
+ * <p>
+ *     Both hits and misses are cached in a bounded cache, so every property name goes to AWS at most once
+ *     (until it's evicted).
+ * </p>
+ * <p>
+ *     If AWS can't be reached, {@link AwsParameterStoreConnectorException} is thrown when <code>failOnError</code>
+ *     is set; otherwise the property is reported as missing (and not cached).
+ * </p>
+ */
+public class AwsParameterStoreLazyPropertySource extends PropertySource<AwsParameterStorePropertySource.EmptySource>
+        implements ParameterLookupCounters {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    private static final Object MISSED_VALUE = new Object();
+
+    /** the characters allowed in a parameter name by AWS */
+    private static final Pattern VALID_NAME = Pattern.compile("[a-zA-Z0-9_.\\-/]+");
+
+    private final String[] roots;
+    private final ParameterBatchLoader loader;
+    private final BoundedCache<String, Object> cache;
+    private final boolean failOnError;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AwsParameterStoreLazyPropertySource(String name, String[] roots, AwsParameterStoreReader reader, int cacheSize, boolean failOnError) {
+        super(name, new AwsParameterStorePropertySource.EmptySource());
+        this.roots = roots;
+        this.loader = new ParameterBatchLoader(reader);
+        this.cache = new BoundedCache<>(cacheSize);
+        this.failOnError = failOnError;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        Object value = cache.get(name);
+        if (value == null) {
+            try {
+                value = resolve(name);
+            } catch (RuntimeException e) {
+                if (failOnError) throw new AwsParameterStoreConnectorException(name, e);
+                logger.warn("AWS Parameter Store is unreachable: property '" + name + "' is not resolved (" + e.getClass().getSimpleName() + ")");
+                misses.increment();
+                return null;
+            }
+            cache.put(name, value);
+        }
+        if (value == MISSED_VALUE) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return value;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private Object resolve(String name) {
+        if (!VALID_NAME.matcher(name).matches()) return MISSED_VALUE;
+
+        List<String> candidates = new ArrayList<>(roots.length);
+        for (String root : roots) candidates.add(toParameterName(root, name));
+
+        Map<String, Parameter> found = loader.load(candidates);
+        for (String candidate : candidates) {
+            Parameter p = found.get(candidate);
+            if (p != null && p.getValue() != null) return p.getValue();
+        }
+        return MISSED_VALUE;
+    }
+
+    static String toParameterName(String root, String propertyName) {
+        return root + "/" + propertyName.replace('.', '/');
+    }
+
+}
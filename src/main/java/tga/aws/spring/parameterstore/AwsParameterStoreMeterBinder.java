@@ -0,0 +1,121 @@
+package tga.aws.spring.parameterstore;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.PropertySource;
+import tga.aws.spring.parameterstore.AwsParameterStoreMetrics.CallStats;
+import tga.aws.spring.parameterstore.AwsParameterStoreMetrics.Operation;
+import tga.aws.spring.parameterstore.AwsParameterStoreMetrics.RootStats;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the library:
+ * <ul>
+ *     <li><i>aws.parameterstore.load.time</i> - the whole load at the start</li>
+ *     <li><i>aws.parameterstore.root.load.time</i>, <i>.root.pages</i>, <i>.root.parameters</i>, <i>.root.bytes</i> - per root (tag <i>root</i>)</li>
+ *     <li><i>aws.parameterstore.calls</i> (timer), <i>.call.errors</i>, <i>.call.bytes</i> - per AWS operation (tag <i>operation</i>)</li>
+ *     <li><i>aws.parameterstore.retries</i>, <i>.throttles</i> - retried and throttled calls at the start</li>
+ *     <li><i>aws.parameterstore.hedged</i>, <i>.hedge.wins</i> - calls sent to a backup region and won by it at the start</li>
+ *     <li><i>aws.parameterstore.lookups</i> - property lookups (tag <i>result</i>: hit, miss)</li>
+ *     <li><i>aws.parameterstore.parameters</i> - loaded parameters</li>
+ * </ul>
+ * All the meters are function based: they read the library counters when scraped, nothing is added to the lookup path.
+ */
+public class AwsParameterStoreMeterBinder implements MeterBinder {
+
+    static private final String PREFIX = "aws.parameterstore.";
+
+    private final AwsParameterStoreMetrics metrics;
+    private final PropertySource<?> propertySource;
+
+    public AwsParameterStoreMeterBinder(AwsParameterStoreMetrics metrics, PropertySource<?> propertySource) {
+        this.metrics = metrics;
+        this.propertySource = propertySource;
+    }
+
+    /**
+     * Binds the meters to the primary meter registry of the context, or to every registry if there is no primary one.
+     */
+    static void bindTo(ApplicationContext context, AwsParameterStoreMeterBinder binder) {
+        Map<String, MeterRegistry> registries = context.getBeansOfType(MeterRegistry.class);
+        if (registries.isEmpty()) return;
+
+        if (registries.size() == 1) {
+            binder.bindTo(registries.values().iterator().next());
+            return;
+        }
+
+        try {
+            binder.bindTo(context.getBean(MeterRegistry.class));
+        } catch (NoSuchBeanDefinitionException e) {
+            for (MeterRegistry registry : registries.values()) binder.bindTo(registry);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder(PREFIX + "load.time", metrics, TimeUnit.MILLISECONDS, AwsParameterStoreMetrics::getLoadMillis)
+                .description("Loading of all the roots at the start")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "retries", metrics, AwsParameterStoreMetrics::getRetries)
+                .description("Retried AWS calls at the start")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "throttles", metrics, AwsParameterStoreMetrics::getThrottles)
+                .description("Throttled AWS calls at the start")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "hedged", metrics, AwsParameterStoreMetrics::getHedgedCalls)
+                .description("AWS calls sent to a backup region at the start")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "hedge.wins", metrics, AwsParameterStoreMetrics::getHedgeWins)
+                .description("AWS calls answered by a backup region first at the start")
+                .register(registry);
+
+        for (RootStats root : metrics.getRoots()) {
+            TimeGauge.builder(PREFIX + "root.load.time", root, TimeUnit.NANOSECONDS, RootStats::getNanos)
+                    .tag("root", root.getRoot())
+                    .register(registry);
+            Gauge.builder(PREFIX + "root.pages", root, RootStats::getPages).tag("root", root.getRoot()).register(registry);
+            Gauge.builder(PREFIX + "root.parameters", root, RootStats::getParameters).tag("root", root.getRoot()).register(registry);
+            Gauge.builder(PREFIX + "root.bytes", root, RootStats::getBytes).tag("root", root.getRoot()).baseUnit("bytes").register(registry);
+        }
+
+        for (Operation operation : Operation.values()) {
+            CallStats calls = metrics.getCalls(operation);
+            FunctionTimer.builder(PREFIX + "calls", calls, CallStats::getCount, CallStats::getNanos, TimeUnit.NANOSECONDS)
+                    .tag("operation", operation.name())
+                    .description("AWS Parameter Store calls")
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + "call.errors", calls, CallStats::getErrors)
+                    .tag("operation", operation.name())
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + "call.bytes", calls, CallStats::getBytes)
+                    .tag("operation", operation.name())
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+
+        if (propertySource instanceof ParameterLookupCounters) {
+            ParameterLookupCounters counters = (ParameterLookupCounters) propertySource;
+            FunctionCounter.builder(PREFIX + "lookups", counters, ParameterLookupCounters::getHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + "lookups", counters, ParameterLookupCounters::getMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+        }
+
+        if (propertySource instanceof AwsParameterStorePropertySource) {
+            Gauge.builder(PREFIX + "parameters", (AwsParameterStorePropertySource) propertySource, ps -> ps.getIndex().size())
+                    .register(registry);
+        }
+    }
+
+}
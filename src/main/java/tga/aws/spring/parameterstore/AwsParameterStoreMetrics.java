@@ -0,0 +1,189 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load metrics of the library: every root read at the start and every AWS call.
+ * <p>
+ *     Recording is thread safe: roots are read in parallel (see {@link AwsParameterStoreReader}),
+ *     and the calls of a lazy property source keep being recorded after the start.
+ *     "Bytes" are the characters of the returned parameter names and values (the SDK doesn't expose the wire size).
+ * </p>
+ * <p>
+ *     The metrics are logged in a single line at the end of the start and published as Micrometer meters
+ *     once the application is ready (see {@link AwsParameterStoreMetricsPublisher}).
+ * </p>
+ */
+public class AwsParameterStoreMetrics {
+
+    public enum Operation { GetParametersByPath, GetParameters, DescribeParameters }
+
+    private final Map<Operation, CallStats> calls = new EnumMap<>(Operation.class);
+    private final List<RootStats> roots = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile long loadNanos;
+    private volatile long retries;
+    private volatile long throttles;
+    private volatile long hedgedCalls;
+    private volatile long hedgeWins;
+
+    public AwsParameterStoreMetrics() {
+        for (Operation operation : Operation.values()) calls.put(operation, new CallStats(operation));
+    }
+
+    void recordCall(Operation operation, long nanos, long parameters, long bytes, boolean failed) {
+        calls.get(operation).record(nanos, parameters, bytes, failed);
+    }
+
+    void recordRoot(String root, long nanos, int pages, int parameters, long bytes) {
+        roots.add(new RootStats(root, nanos, pages, parameters, bytes));
+    }
+
+    void recordLoad(long nanos, AdaptiveThrottler throttler) {
+        this.loadNanos = nanos;
+        if (throttler != null) {
+            this.retries = throttler.getRetries();
+            this.throttles = throttler.getThrottles();
+        }
+    }
+
+    void recordHedging(HedgedParameterStoreClient client) {
+        this.hedgedCalls = client.getHedgedCalls();
+        this.hedgeWins = client.getHedgeWins();
+    }
+
+    public long getLoadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(loadNanos);
+    }
+
+    /**
+     * @return retries of throttled or failed calls during the start
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return throttled calls during the start
+     */
+    public long getThrottles() {
+        return throttles;
+    }
+
+    /**
+     * @return calls sent to a backup region during the start (see {@link HedgedParameterStoreClient})
+     */
+    public long getHedgedCalls() {
+        return hedgedCalls;
+    }
+
+    /**
+     * @return calls answered by a backup region first during the start
+     */
+    public long getHedgeWins() {
+        return hedgeWins;
+    }
+
+    public CallStats getCalls(Operation operation) {
+        return calls.get(operation);
+    }
+
+    public long getTotalCalls() {
+        long total = 0;
+        for (CallStats c : calls.values()) total += c.getCount();
+        return total;
+    }
+
+    public List<RootStats> getRoots() {
+        synchronized (roots) {
+            return new ArrayList<>(roots);
+        }
+    }
+
+    public static class CallStats {
+        private final Operation operation;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder parameters = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        CallStats(Operation operation) {
+            this.operation = operation;
+        }
+
+        void record(long nanos, long parameters, long bytes, boolean failed) {
+            this.count.increment();
+            this.nanos.add(nanos);
+            this.parameters.add(parameters);
+            this.bytes.add(bytes);
+            if (failed) this.errors.increment();
+        }
+
+        public Operation getOperation() { return operation; }
+        public long getCount()          { return count.sum(); }
+        public long getErrors()         { return errors.sum(); }
+        public long getNanos()          { return nanos.sum(); }
+        public long getParameters()     { return parameters.sum(); }
+        public long getBytes()          { return bytes.sum(); }
+    }
+
+    public static class RootStats {
+        private final String root;
+        private final long nanos;
+        private final int pages;
+        private final int parameters;
+        private final long bytes;
+
+        RootStats(String root, long nanos, int pages, int parameters, long bytes) {
+            this.root = root;
+            this.nanos = nanos;
+            this.pages = pages;
+            this.parameters = parameters;
+            this.bytes = bytes;
+        }
+
+        public String getRoot()      { return root; }
+        public long getNanos()       { return nanos; }
+        public long getMillis()      { return TimeUnit.NANOSECONDS.toMillis(nanos); }
+        public int getPages()        { return pages; }
+        public int getParameters()   { return parameters; }
+        public long getBytes()       { return bytes; }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{\"loadMs\": ").append(getLoadMillis()).append(", \"roots\": [");
+        List<RootStats> rootStats = getRoots();
+        for (int i = 0; i < rootStats.size(); i++) {
+            RootStats r = rootStats.get(i);
+            if (i > 0) sb.append(", ");
+            sb.append("{\"root\": \"").append(r.getRoot())
+              .append("\", \"ms\": ").append(r.getMillis())
+              .append(", \"pages\": ").append(r.getPages())
+              .append(", \"parameters\": ").append(r.getParameters())
+              .append(", \"bytes\": ").append(r.getBytes()).append('}');
+        }
+        sb.append("], \"calls\": {");
+        boolean first = true;
+        for (CallStats c : calls.values()) {
+            if (c.getCount() == 0) continue;
+            if (!first) sb.append(", ");
+            first = false;
+            sb.append('"').append(c.getOperation()).append("\": {\"count\": ").append(c.getCount())
+              .append(", \"errors\": ").append(c.getErrors())
+              .append(", \"ms\": ").append(TimeUnit.NANOSECONDS.toMillis(c.getNanos())).append('}');
+        }
+        sb.append("}, \"retries\": ").append(retries).append(", \"throttled\": ").append(throttles);
+        if (hedgedCalls > 0) sb.append(", \"hedged\": ").append(hedgedCalls).append(", \"hedgeWins\": ").append(hedgeWins);
+        sb.append('}');
+        return sb.toString();
+    }
+
+}
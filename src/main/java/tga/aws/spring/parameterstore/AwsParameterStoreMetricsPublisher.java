@@ -0,0 +1,41 @@
+package tga.aws.spring.parameterstore;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.PropertySource;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Publishes the library metrics as Micrometer meters once the application is ready
+ * (the meter registry doesn't exist yet when the parameters are loaded).
+ * <p>
+ *     Does nothing if Micrometer is not in the classpath: all the Micrometer classes are used by
+ *     {@link AwsParameterStoreMeterBinder} only, which is not loaded in this case.
+ * </p>
+ */
+public class AwsParameterStoreMetricsPublisher implements ApplicationListener<ApplicationReadyEvent> {
+
+    static private final String METER_REGISTRY_CLASS = "io.micrometer.core.instrument.MeterRegistry";
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    private final AwsParameterStoreMetrics metrics;
+    private final PropertySource<?> propertySource;
+
+    public AwsParameterStoreMetricsPublisher(AwsParameterStoreMetrics metrics, PropertySource<?> propertySource) {
+        this.metrics = metrics;
+        this.propertySource = propertySource;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!ClassUtils.isPresent(METER_REGISTRY_CLASS, getClass().getClassLoader())) return;
+
+        try {
+            AwsParameterStoreMeterBinder.bindTo(event.getApplicationContext(), new AwsParameterStoreMeterBinder(metrics, propertySource));
+        } catch (RuntimeException e) {
+            logger.warn("AWS Parameter Store metrics were not published: " + e.getClass().getSimpleName() + " " + e.getMessage());
+        }
+    }
+
+}
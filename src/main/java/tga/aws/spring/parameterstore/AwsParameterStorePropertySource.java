@@ -1,25 +1,188 @@
 package tga.aws.spring.parameterstore;
 
 import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
-import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.EnumerablePropertySource;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
-public class AwsParameterStorePropertySource extends PropertySource<AwsParameterStorePropertySource.EmptySource> {
+/**
+ * Spring property source backed by the parameters loaded from AWS Parameter Store.
+ * <p>
+ *     The values are kept in a compact read-only {@link ParameterIndex}. The index is never modified in place:
+ *     a refresh builds a new index and publishes it with a single atomic reference swap,
+ *     so {@link #getProperty(String)} stays lock-free and never sees a half-built index.
+ * </p>
+ * <p>
+ *     Hits and misses are counted with striped {@link LongAdder} counters: lookups from many threads
+ *     don't contend on a single counter.
+ * </p>
+ * <p>
+ *     The source is enumerable, so Spring Boot can bind maps and lists (<code>@ConfigurationProperties</code>) from it.
+ *     {@link #getPropertyNames()} returns the same precomputed array until the index is replaced: Spring Boot caches
+ *     the mapped names of an enumerable source while the array stays the same (its descendant checks scan
+ *     those mapped names, so the source offers no prefix queries of its own).
+ * </p>
+ * <p>
+ *     With an encrypted index (parameters loaded without decryption) a SecureString value is decrypted on its first read
+ *     and the plaintext is memoized by the index; all the other values are served as they are.
+ * </p>
+ * <p>
+ *     JSON parameters (see {@link JsonParameters}) are served as flat properties: a document is parsed on the first
+ *     lookup below its key, the enumeration (the first Spring Boot binding) expands all the documents of the index once.
+ * </p>
+ * <p>
+ *     With the usage tracking (see {@link ParameterUsage}) the first {@link #getProperty(String)} of a parameter sets
+ *     its bit; a property of a JSON document marks the JSON parameter. Enumeration is not a read.
+ * </p>
+ */
+public class AwsParameterStorePropertySource extends EnumerablePropertySource<AwsParameterStorePropertySource.EmptySource>
+        implements ParameterLookupCounters {
 
-    private final Map<String, Parameter> parameters;
+    private final AtomicReference<ParameterIndex> index;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
-    private final Parameter MISSED_VALUE = new Parameter().withValue(null);
+    private volatile SecureStringDecryptor decryptor;
+    private volatile ParameterUsage usage;
 
     public AwsParameterStorePropertySource(String name, Map<String, Parameter> parameters) {
+        this(name, ParameterIndex.of(parameters, false));
+    }
+
+    public AwsParameterStorePropertySource(String name, ParameterIndex index) {
         super(name, new EmptySource());
-        this.parameters = parameters;
+        this.index = new AtomicReference<>(index);
+    }
+
+    public ParameterIndex getIndex() {
+        return index.get();
+    }
 
+    /**
+     * Replaces all the parameters at once (readers see either the old or the new index, never a mix of them).
+     *
+     * @return the previous index
+     */
+    public ParameterIndex setIndex(ParameterIndex index) {
+        ParameterIndex previous = this.index.getAndSet(index);
+        ParameterUsage u = usage;
+        if (u != null) u.rebind(index);
+        return previous;
+    }
+
+    /**
+     * Replaces the index only if it is still the expected one (an update built from an index doesn't overwrite
+     * a concurrent update of it).
+     *
+     * @return <code>true</code> if the index was replaced
+     */
+    public boolean compareAndSetIndex(ParameterIndex expected, ParameterIndex index) {
+        if (!this.index.compareAndSet(expected, index)) return false;
+        ParameterUsage u = usage;
+        if (u != null) u.rebind(index);
+        return true;
+    }
+
+    /**
+     * Replaces all the parameters at once; the metadata side table and the encryption are retained from the current index.
+     *
+     * @return the previous index
+     */
+    public ParameterIndex setParameters(Map<String, Parameter> parameters) {
+        ParameterIndex current = getIndex();
+        return setIndex(ParameterIndex.of(parameters, current.hasMetadata(), current.isEncrypted(), current.getJsonParameters()));
+    }
+
+    /**
+     * @param decryptor decrypts SecureString values of an encrypted index on demand
+     */
+    AwsParameterStorePropertySource withDecryptor(SecureStringDecryptor decryptor) {
+        this.decryptor = decryptor;
+        return this;
+    }
+
+    /**
+     * Starts recording which parameters are read (see {@link ParameterUsage}).
+     */
+    AwsParameterStorePropertySource withUsageTracking() {
+        if (usage == null) usage = new ParameterUsage(getIndex());
+        return this;
+    }
+
+    /**
+     * @return read parameters or <code>null</code> if not tracked
+     */
+    public ParameterUsage getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return the property names in sorted order; the same array instance is returned until the index is replaced,
+     * it must not be modified
+     */
+    @Override
+    public String[] getPropertyNames() {
+        ParameterIndex current = index.get();
+        JsonExpansion json = current.json();
+        return json == null ? current.names() : json.names(current, position -> valueAt(current, position));
+    }
+
+    @Override
+    public boolean containsProperty(String name) {
+        ParameterIndex current = index.get();
+        JsonExpansion json = current.json();
+        return json == null ? current.containsKey(name) : json.resolve(current, name, position -> valueAt(current, position)) != null;
     }
 
     @Override
     public Object getProperty(String name) {
-        return parameters.getOrDefault(name, MISSED_VALUE).getValue();
+        ParameterIndex current = index.get();
+        ParameterUsage u = usage;
+        JsonExpansion json = current.json();
+        if (json != null) {
+            String value = json.resolve(current, name, position -> valueAt(current, position),
+                    u != null ? position -> u.mark(current, position) : null);
+            (value != null ? hits : misses).increment();
+            return value;
+        }
+
+        int position = current.indexOf(name);
+        if (position < 0) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        if (u != null) u.mark(current, position);
+        return valueAt(current, position);
+    }
+
+    private String valueAt(ParameterIndex current, int position) {
+        String encryptedName = current.encryptedNameAt(position);
+        return encryptedName == null ? current.valueAt(position) : decrypt(current, position, current.keyAt(position), encryptedName);
+    }
+
+    private String decrypt(ParameterIndex current, int position, String name, String parameterName) {
+        String plaintext = current.plaintextAt(position);
+        if (plaintext == null) {
+            SecureStringDecryptor d = decryptor;
+            if (d == null) return null; // a ciphertext is never returned as a value
+            plaintext = d.decrypt(name, parameterName);
+            if (plaintext != null) current.setPlaintext(position, plaintext);
+        }
+        return plaintext;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
     }
 
     public static class EmptySource {
@@ -36,13 +199,13 @@ public class AwsParameterStorePropertySource extends PropertySource<AwsParameter
 
         AwsParameterStorePropertySource that = (AwsParameterStorePropertySource) o;
 
-        return parameters != null ? parameters.equals(that.parameters) : that.parameters == null;
+        return getIndex().equals(that.getIndex());
     }
 
     @Override
     public int hashCode() {
         int result = super.hashCode();
-        result = 31 * result + (parameters != null ? parameters.hashCode() : 0);
+        result = 31 * result + getIndex().hashCode();
         return result;
     }
 }
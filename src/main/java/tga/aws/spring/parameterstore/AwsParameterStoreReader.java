@@ -0,0 +1,800 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilter;
+import tga.aws.spring.parameterstore.AwsParameterStoreMetrics.Operation;
+import tga.aws.spring.parameterstore.ParameterKeyManifest.RootKeys;
+import tga.aws.spring.parameterstore.ParameterSelection.FetchPath;
+import tga.aws.spring.parameterstore.ParameterSelection.RootSelection;
+import tga.aws.spring.parameterstore.ParameterShards.Shard;
+import tga.aws.spring.parameterstore.ParameterStoreLog.Verbosity;
+import tga.aws.spring.parameterstore.exception.AwsParameterStoreTimeoutException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reads all parameters from a list of AWS Parameter Store root folders and merges them into a single map
+ * (spring property name -> AWS parameter).
+ * <p>
+ *     Roots are merged in the order they are listed: if the same spring property exists under several roots,
+ *     the parameter from the first root wins.
+ * </p>
+ * <p>
+ *     With <code>fetchThreads &gt; 1</code> the roots are downloaded in parallel on a bounded thread pool
+ *     (see {@link ParameterStoreExecutors}). The merge is still done in the roots order after all the downloads
+ *     have finished, so the result is exactly the same as for the sequential reading.
+ * </p>
+ * <p>
+ *     Optional limits:
+ *     <ul>
+ *         <li>call timeout - the SDK client execution timeout of every single AWS call</li>
+ *         <li>deadline - the overall time of {@link #readAllProps(String[])}; roots which did not finish in time are
+ *         cancelled and {@link AwsParameterStoreTimeoutException} (with the completed roots) is thrown:
+ *         a result without one of the roots would break the roots precedence</li>
+ *         <li>throttler - rate limit and retries of throttled calls (see {@link AdaptiveThrottler})</li>
+ *         <li>metrics - timings, pages and sizes of every call and root (see {@link AwsParameterStoreMetrics})</li>
+ *         <li>sharding - huge roots are split into child paths read in parallel (see {@link ParameterShards});
+ *         the calls of all the sharded and manifest roots share <code>shardThreads</code> permits, so parallel roots
+ *         don't multiply the concurrency</li>
+ *         <li>key manifest - only the parameters named by a compile-time manifest are read (see {@link ParameterKeyManifest})</li>
+ *     </ul>
+ * </p>
+ */
+public class AwsParameterStoreReader {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    static final int GET_PARAMETERS_BATCH_SIZE = 10;
+    static final int DESCRIBE_PAGE_SIZE = 50;
+    static final int GET_PARAMETERS_BY_PATH_PAGE_SIZE = 10;
+
+    private final ParameterStoreClient client;
+    private final int fetchThreads;
+
+    private int callTimeoutMillis;
+    private long deadlineMillis;
+    private AdaptiveThrottler throttler;
+    private AwsParameterStoreMetrics metrics;
+    private boolean decryption = true;
+    private ParameterSelection selection = ParameterSelection.none();
+    private HostSharedParameterCache sharedCache;
+    private Set<String> sharedRoots;
+    private String sharedIdentity = "";
+    private Map<String, List<String>> shardedRoots = Collections.emptyMap();
+    private int shardThreads = 1;
+    private Semaphore shardPermits = new Semaphore(1);
+    private boolean shardCoverageCheck = true;
+    private Map<String, RootKeys> manifestRoots = Collections.emptyMap();
+
+    private volatile List<String> completedRoots = Collections.emptyList();
+    private volatile boolean reached;
+
+    public AwsParameterStoreReader(AWSSimpleSystemsManagement client, int fetchThreads) {
+        this(new SdkV1ParameterStoreClient(client), fetchThreads);
+    }
+
+    public AwsParameterStoreReader(ParameterStoreClient client, int fetchThreads) {
+        this.client = client;
+        this.fetchThreads = Math.max(1, fetchThreads);
+    }
+
+    /**
+     * @param callTimeoutMillis timeout of every single AWS call (0 - the SDK default)
+     */
+    public AwsParameterStoreReader withCallTimeout(int callTimeoutMillis) {
+        this.callTimeoutMillis = callTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * @param deadlineMillis maximum duration of {@link #readAllProps(String[])} (0 - no limit)
+     */
+    public AwsParameterStoreReader withDeadline(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+        return this;
+    }
+
+    /**
+     * @param throttler rate limiter and retry policy shared by all the calls of this reader (<code>null</code> - no throttling)
+     */
+    public AwsParameterStoreReader withThrottler(AdaptiveThrottler throttler) {
+        this.throttler = throttler;
+        return this;
+    }
+
+    /**
+     * @param decryption decrypt SecureString values (default); without decryption they are returned as ciphertexts
+     *                   and no KMS calls are made
+     */
+    public AwsParameterStoreReader withDecryption(boolean decryption) {
+        this.decryption = decryption;
+        return this;
+    }
+
+    /**
+     * @param metrics records every call and every root read by this reader (<code>null</code> - no recording)
+     */
+    public AwsParameterStoreReader withMetrics(AwsParameterStoreMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @param selection parts of the roots to read (default: the whole roots)
+     */
+    public AwsParameterStoreReader withSelection(ParameterSelection selection) {
+        this.selection = selection != null ? selection : ParameterSelection.none();
+        return this;
+    }
+
+    /**
+     * @param sharedCache host-level cache used to read the roots (<code>null</code> - every root is read from AWS)
+     * @param sharedRoots roots read through the cache (<code>null</code> or empty - all of them)
+     * @param identity    the account / region / credentials the client reads (see {@link AWSParameterStoreClientBuilder#getIdentity}):
+     *                    the same root of another identity is another cache entry
+     */
+    public AwsParameterStoreReader withSharedCache(HostSharedParameterCache sharedCache, Collection<String> sharedRoots, String identity) {
+        this.sharedCache = sharedCache;
+        this.sharedRoots = sharedRoots == null || sharedRoots.isEmpty() ? null : new HashSet<>(sharedRoots);
+        this.sharedIdentity = identity != null ? identity : "";
+        return this;
+    }
+
+    /**
+     * @param shardedRoots roots read in shards -> their shard prefixes (an empty list - the shards are discovered
+     *                     with a <code>DescribeParameters</code> pass)
+     * @param shardThreads maximum number of concurrent calls of all the sharded (and manifest) roots together
+     */
+    public AwsParameterStoreReader withSharding(Map<String, List<String>> shardedRoots, int shardThreads) {
+        this.shardedRoots = shardedRoots != null ? shardedRoots : Collections.emptyMap();
+        this.shardThreads = Math.max(1, shardThreads);
+        this.shardPermits = new Semaphore(this.shardThreads);
+        return this;
+    }
+
+    /**
+     * @param check list a root read with configured shard prefixes with <code>DescribeParameters</code> alongside
+     *              to find (and read by names) the parameters outside the prefixes (default); without the check
+     *              only the prefixes and the direct parameters of the root are read, which saves a call per
+     *              50 parameters of the whole root but loses everything else
+     */
+    public AwsParameterStoreReader withShardCoverageCheck(boolean check) {
+        this.shardCoverageCheck = check;
+        return this;
+    }
+
+    /**
+     * The concurrency of a manifest reading is limited by the <code>shardThreads</code> of {@link #withSharding(Map, int)}.
+     *
+     * @param manifest names and prefixes to read instead of the whole roots (<code>null</code> - the whole roots)
+     * @param roots    the roots the manifest applies to
+     * @param json     the JSON parameters: the documents above the manifest keys are read too
+     */
+    public AwsParameterStoreReader withManifest(ParameterKeyManifest manifest, String[] roots, JsonParameters json) {
+        Map<String, RootKeys> keys = new LinkedHashMap<>();
+        if (manifest != null) {
+            for (String root : roots) keys.put(root, manifest.forRoot(root, json::isJson));
+        }
+        this.manifestRoots = keys;
+        return this;
+    }
+
+    public AwsParameterStoreMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AdaptiveThrottler getThrottler() {
+        return throttler;
+    }
+
+    /**
+     * @return <code>true</code> if a call of this reader has succeeded: AWS is reachable with the client credentials,
+     *         so a failure of the reading is not an outage
+     */
+    public boolean isReached() {
+        return reached;
+    }
+
+    /**
+     * @return roots completely read by the last {@link #readAllProps(String[])} call
+     */
+    public List<String> getCompletedRoots() {
+        return completedRoots;
+    }
+
+    public Map<String, Parameter> readAllProps(String[] roots) {
+        completedRoots = Collections.emptyList();
+
+        List<List<Parameter>> rootsParameters = (deadlineMillis > 0 || (fetchThreads > 1 && roots.length > 1))
+                ? readConcurrently(roots)
+                : readSequentially(roots);
+
+        completedRoots = Collections.unmodifiableList(Arrays.asList(roots));
+
+        return merge(roots, rootsParameters, true);
+    }
+
+    /**
+     * Merges parameters of several roots into a single map (spring property name -> AWS parameter).
+     * A property found in an earlier root wins.
+     *
+     * @param rootsParameters parameters of every root, in the same order as the roots
+     * @param verbose log numbers of parameters of every root and every loaded parameter (according to the log verbosity)
+     */
+    static Map<String, Parameter> merge(String[] roots, List<? extends Iterable<Parameter>> rootsParameters, boolean verbose) {
+        Map<String, Parameter> props = new HashMap<>();
+        boolean logKeys = verbose && logger.isEnabled(Verbosity.KEYS);
+        boolean logRoots = verbose && logger.isEnabled(Verbosity.ROOTS);
+
+        for (int i = 0; i < roots.length; i++) {
+            String root = roots[i];
+            int total = 0;
+            int loaded = 0;
+            for ( Parameter p : rootsParameters.get(i) ) {
+                total++;
+                String key = toPropertyName(root, p.getName());
+                if (props.putIfAbsent(key, p) == null) {
+                    loaded++;
+                    if (logKeys) logger.info("AWS Parameter Store loaded: {\"springProperty\": \"" + key
+                            + "\", \"name\" = \"" + p.getName()
+                            + "\", \"value\" = \"" + getSecureValue( p ) + "\"}"
+                    );
+                }
+            }
+            if (logRoots) logger.info("AWS Parameter Store root: {\"root\": \"" + root + "\", \"parameters\": " + total
+                    + ", \"overridden\": " + (total - loaded) + "}");
+        }
+
+        return props;
+    }
+
+    /**
+     * Reads all parameters of a single root folder (all pages).
+     */
+    public List<Parameter> readRoot(String root) {
+        RootKeys rootKeys = manifestRoots.get(root);
+        if (rootKeys != null) return readManifest(rootKeys);
+        RootSelection rootSelection = selection.forRoot(root);
+        if (rootSelection != null) return readSelected(root, rootSelection);
+        List<String> shardPrefixes = shardedRoots.get(root);
+        if (shardPrefixes != null) return readSharded(root, shardPrefixes);
+
+        List<Parameter> parameters = new ArrayList<>();
+        long start = System.nanoTime();
+        int pages = readPath(root, true, parameters);
+
+        if (metrics != null) metrics.recordRoot(root, System.nanoTime() - start, pages, parameters.size(), bytes(parameters));
+
+        return parameters;
+    }
+
+    /**
+     * Reads the selected parts of a root folder only (see {@link ParameterSelection}) and logs the number of calls
+     * (and the number of calls saved compared with a full recursive reading, if the whole root was listed).
+     */
+    private List<Parameter> readSelected(String root, RootSelection rootSelection) {
+        List<Parameter> parameters = new ArrayList<>();
+        long start = System.nanoTime();
+        List<FetchPath> plan = rootSelection.plan();
+        int calls = 0;
+        int listed = -1; // number of parameters of the root, if the whole root was listed
+
+        for (FetchPath path : plan) {
+            if (path.isListing()) {
+                List<ParameterMetadata> metadata = new ArrayList<>();
+                calls += describePath(path.getPath(), metadata);
+                if (path.getPath().equals(rootSelection.getRoot())) listed = metadata.size();
+
+                List<String> names = new ArrayList<>();
+                for (ParameterMetadata m : metadata) if (rootSelection.matches(m.getName())) names.add(m.getName());
+                calls += pages(names.size(), GET_PARAMETERS_BATCH_SIZE);
+                parameters.addAll(readParameters(names));
+            } else {
+                calls += readPath(path.getPath(), path.isRecursive(), parameters);
+            }
+        }
+        parameters.removeIf(p -> !rootSelection.matches(p.getName()));
+
+        if (metrics != null) metrics.recordRoot(root, System.nanoTime() - start, calls, parameters.size(), bytes(parameters));
+
+        String saved = "";
+        if (listed >= 0) {
+            int fullScanCalls = Math.max(1, pages(listed, GET_PARAMETERS_BY_PATH_PAGE_SIZE));
+            saved = ", \"fullScanCalls\": " + fullScanCalls + ", \"savedCalls\": " + (fullScanCalls - calls);
+        }
+        logger.info("AWS Parameter Store root selection: {\"root\": \"" + root + "\", \"paths\": \"" + plan
+                + "\", \"calls\": " + calls + ", \"parameters\": " + parameters.size() + saved + "}");
+
+        return parameters;
+    }
+
+    /**
+     * Reads the parameters of a root named by the key manifest (see {@link ParameterKeyManifest}): the names in batches
+     * of 10 and the prefix paths recursively, all the calls on a pool of <code>shardThreads</code> threads.
+     * A path selection still applies to the result.
+     */
+    private List<Parameter> readManifest(RootKeys rootKeys) {
+        String root = rootKeys.getRoot();
+        long start = System.nanoTime();
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Supplier<List<Parameter>>> tasks = new ArrayList<>();
+        List<String> batch = new ArrayList<>(GET_PARAMETERS_BATCH_SIZE);
+        for (String name : rootKeys.getNames()) {
+            if (!selection.matches(name)) continue;
+            batch.add(name);
+            if (batch.size() == GET_PARAMETERS_BATCH_SIZE) {
+                tasks.add(batchTask(new ArrayList<>(batch), calls));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) tasks.add(batchTask(batch, calls));
+        for (String path : rootKeys.getPaths()) {
+            tasks.add(() -> withPermit(() -> {
+                List<Parameter> parameters = new ArrayList<>();
+                calls.addAndGet(readPath(path, true, parameters));
+                return parameters;
+            }));
+        }
+
+        Map<String, Parameter> parameters = new TreeMap<>();
+        for (List<Parameter> part : runAll("aws-ps-manifest-", tasks)) {
+            for (Parameter p : part) {
+                if (selection.matches(p.getName())) parameters.put(p.getName(), p);
+            }
+        }
+
+        List<Parameter> result = new ArrayList<>(parameters.values());
+        if (metrics != null) metrics.recordRoot(root, System.nanoTime() - start, calls.get(), result.size(), bytes(result));
+        logger.info("AWS Parameter Store root manifest: {\"root\": \"" + root + "\", \"names\": " + rootKeys.getNames().size()
+                + ", \"paths\": \"" + rootKeys.getPaths() + "\", \"calls\": " + calls.get() + ", \"parameters\": " + result.size() + "}");
+
+        return result;
+    }
+
+    private Supplier<List<Parameter>> batchTask(List<String> names, AtomicInteger calls) {
+        return () -> withPermit(() -> {
+            calls.incrementAndGet();
+            return readBatch(names);
+        });
+    }
+
+    /**
+     * Runs the calls holding one of the <code>shardThreads</code> permits shared by all the roots.
+     */
+    private <T> T withPermit(Supplier<T> calls) {
+        try {
+            shardPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reading of AWS Parameter Store was interrupted", e);
+        }
+        try {
+            return calls.get();
+        } finally {
+            shardPermits.release();
+        }
+    }
+
+    /**
+     * @return results of the tasks in the tasks order; a single task (or a single thread) runs in the calling thread
+     */
+    private <T> List<T> runAll(String threadPrefix, List<Supplier<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.size() <= 1 || shardThreads <= 1) {
+            for (Supplier<T> task : tasks) results.add(task.get());
+            return results;
+        }
+
+        ExecutorService executor = ParameterStoreExecutors.newFixedPool(threadPrefix, Math.min(shardThreads, tasks.size()));
+        try {
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Supplier<T> task : tasks) futures.add(executor.submit(task::get));
+            for (Future<T> f : futures) results.add(getResult(f));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads a root in shards (see {@link ParameterShards}) on a pool of <code>shardThreads</code> threads;
+     * the calls take the permits shared with the other roots.
+     * <p>
+     *     Without configured prefixes the shards are discovered by a <code>DescribeParameters</code> pass (50 names
+     *     per call). With prefixes the shards are read at once while the names are listed alongside to find
+     *     parameters outside the prefixes (they are read by names afterwards, a warning is logged); the listing
+     *     is skipped only if the coverage check is turned off.
+     * </p>
+     * <p>
+     *     The parameters are returned in the names order, like the pages of a sequential reading,
+     *     so the merge result does not depend on the sharding.
+     * </p>
+     */
+    private List<Parameter> readSharded(String root, List<String> prefixes) {
+        long start = System.nanoTime();
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = ParameterStoreExecutors.newFixedPool("aws-ps-shard-", shardThreads);
+        try {
+            List<Shard> shards;
+            Future<List<ParameterMetadata>> listing = null;
+            if (prefixes.isEmpty()) {
+                List<ParameterMetadata> metadata = new ArrayList<>();
+                calls.addAndGet(withPermit(() -> describePath(root, metadata)));
+                List<String> names = new ArrayList<>(metadata.size());
+                for (ParameterMetadata m : metadata) names.add(m.getName());
+                shards = ParameterShards.discover(root, names, shardSize(names.size()));
+            } else {
+                shards = ParameterShards.of(root, prefixes);
+                if (shardCoverageCheck) {
+                    listing = executor.submit(() -> {
+                        List<ParameterMetadata> metadata = new ArrayList<>();
+                        calls.addAndGet(withPermit(() -> describePath(root, metadata)));
+                        return metadata;
+                    });
+                }
+            }
+
+            List<Future<List<Parameter>>> futures = new ArrayList<>(shards.size());
+            for (Shard shard : shards) futures.add(executor.submit(() -> readShard(shard, calls)));
+
+            Map<String, Parameter> parameters = new TreeMap<>();
+            for (Future<List<Parameter>> f : futures) {
+                for (Parameter p : getResult(f)) parameters.put(p.getName(), p);
+            }
+
+            if (listing != null) {
+                List<String> missing = new ArrayList<>();
+                for (ParameterMetadata m : getResult(listing)) {
+                    if (!parameters.containsKey(m.getName()) && !ParameterShards.isCovered(m.getName(), shards)) missing.add(m.getName());
+                }
+                if (!missing.isEmpty()) {
+                    logger.warn("AWS Parameter Store shards of the root " + root + " don't cover " + missing.size()
+                            + " parameters (e.g. " + missing.get(0) + "), they are read by names");
+                    calls.addAndGet(pages(missing.size(), GET_PARAMETERS_BATCH_SIZE));
+                    for (Parameter p : withPermit(() -> readParameters(missing))) parameters.put(p.getName(), p);
+                }
+            }
+
+            List<Parameter> result = new ArrayList<>(parameters.values());
+            if (metrics != null) metrics.recordRoot(root, System.nanoTime() - start, calls.get(), result.size(), bytes(result));
+            logger.info("AWS Parameter Store root shards: {\"root\": \"" + root + "\", \"shards\": " + shards.size()
+                    + ", \"threads\": " + shardThreads + ", \"calls\": " + calls.get() + ", \"parameters\": " + result.size() + "}");
+
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Parameter> readShard(Shard shard, AtomicInteger calls) {
+        return withPermit(() -> {
+            List<Parameter> parameters = new ArrayList<>();
+            if (shard.names != null) {
+                calls.addAndGet(pages(shard.names.size(), GET_PARAMETERS_BATCH_SIZE));
+                parameters.addAll(readParameters(shard.names));
+            } else {
+                calls.addAndGet(readPath(shard.path, shard.recursive, parameters));
+            }
+            return parameters;
+        });
+    }
+
+    /**
+     * @return a shard size giving about 4 shards per thread (for an even load), in whole pages
+     */
+    private int shardSize(int parameters) {
+        int size = Math.max(GET_PARAMETERS_BY_PATH_PAGE_SIZE, pages(parameters, shardThreads * 4));
+        return pages(size, GET_PARAMETERS_BY_PATH_PAGE_SIZE) * GET_PARAMETERS_BY_PATH_PAGE_SIZE;
+    }
+
+    /**
+     * Reads all parameters below the path (or its direct children only), all pages.
+     *
+     * @return number of pages
+     */
+    private int readPath(String path, boolean recursive, List<Parameter> parameters) {
+        String nextToken = null;
+        int pages = 0;
+
+        do {
+            GetParametersByPathRequest request = timed(new GetParametersByPathRequest()
+                    .withPath(path)
+                    .withWithDecryption(decryption)
+                    .withRecursive(recursive)
+                    .withNextToken(nextToken)
+            );
+            GetParametersByPathResult result = call(Operation.GetParametersByPath, () -> client.getParametersByPath(request),
+                    GetParametersByPathResult::getParameters);
+            nextToken = result.getNextToken();
+            pages++;
+
+            if (result.getParameters() != null) parameters.addAll(result.getParameters());
+
+        } while (nextToken != null);
+
+        return pages;
+    }
+
+    /**
+     * Reads metadata (no values) of all parameters of a single root folder.
+     * A metadata page holds up to 50 parameters, and no KMS decryption is involved.
+     */
+    public List<ParameterMetadata> describeRoot(String root) {
+        List<ParameterMetadata> metadata = new ArrayList<>();
+        describePath(root, metadata);
+        if (!selection.isEmpty() || !manifestRoots.isEmpty()) metadata.removeIf(m -> !isSelected(m.getName()));
+        return metadata;
+    }
+
+    /**
+     * @return number of pages
+     */
+    private int describePath(String path, List<ParameterMetadata> metadata) {
+        String nextToken = null;
+        int pages = 0;
+
+        do {
+            DescribeParametersRequest request = timed(new DescribeParametersRequest()
+                    .withParameterFilters( new ParameterStringFilter()
+                            .withKey("Path")
+                            .withOption("Recursive")
+                            .withValues(path.isEmpty() ? "/" : path)
+                    )
+                    .withMaxResults(DESCRIBE_PAGE_SIZE)
+                    .withNextToken(nextToken)
+            );
+            DescribeParametersResult result = call(Operation.DescribeParameters, () -> client.describeParameters(request),
+                    DescribeParametersResult::getParameters);
+            nextToken = result.getNextToken();
+            pages++;
+
+            if (result.getParameters() != null) metadata.addAll(result.getParameters());
+
+        } while (nextToken != null);
+
+        return pages;
+    }
+
+    /**
+     * Reads parameters by their full names using batches of 10 names (the GetParameters limit).
+     * Names which don't exist or are not selected (see {@link #withSelection(ParameterSelection)}
+     * and {@link #withManifest(ParameterKeyManifest, String[], JsonParameters)}) are silently skipped.
+     */
+    public List<Parameter> readParameters(Collection<String> names) {
+        List<Parameter> parameters = new ArrayList<>(names.size());
+        List<String> batch = new ArrayList<>(GET_PARAMETERS_BATCH_SIZE);
+
+        for (String name : names) {
+            if (!isSelected(name)) continue;
+            batch.add(name);
+            if (batch.size() == GET_PARAMETERS_BATCH_SIZE) {
+                parameters.addAll(readBatch(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) parameters.addAll(readBatch(batch));
+
+        return parameters;
+    }
+
+    /**
+     * @return <code>false</code> if the parameter is excluded by the selection or is not in the manifest of its root
+     */
+    private boolean isSelected(String name) {
+        if (!selection.matches(name)) return false;
+        for (RootKeys rootKeys : manifestRoots.values()) {
+            if (name.startsWith(rootKeys.getRoot() + "/")) return rootKeys.matches(name);
+        }
+        return true;
+    }
+
+    private List<Parameter> readBatch(List<String> names) {
+        GetParametersRequest request = timed(new GetParametersRequest()
+                .withNames(new ArrayList<>(names))
+                .withWithDecryption(decryption)
+        );
+        GetParametersResult result = call(Operation.GetParameters, () -> client.getParameters(request),
+                GetParametersResult::getParameters);
+        return result.getParameters() != null ? result.getParameters() : Collections.emptyList();
+    }
+
+    private <T> T call(Operation operation, Supplier<T> request, Function<T, List<?>> items) {
+        if (metrics == null) return call(request);
+
+        long start = System.nanoTime();
+        try {
+            T result = call(request);
+            List<?> returned = items.apply(result);
+            metrics.recordCall(operation, System.nanoTime() - start,
+                    returned != null ? returned.size() : 0, bytes(returned), false);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordCall(operation, System.nanoTime() - start, 0, 0, true);
+            throw e;
+        }
+    }
+
+    private <T> T call(Supplier<T> request) {
+        T result = throttler != null ? throttler.call(request) : request.get();
+        reached = true;
+        return result;
+    }
+
+    /**
+     * @return characters of the names and values of parameters (or names of parameters metadata)
+     */
+    static long bytes(List<?> items) {
+        if (items == null) return 0;
+        long bytes = 0;
+        for (Object item : items) {
+            if (item instanceof Parameter) {
+                Parameter p = (Parameter) item;
+                bytes += length(p.getName()) + length(p.getValue());
+            } else if (item instanceof ParameterMetadata) {
+                bytes += length(((ParameterMetadata) item).getName());
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
+    private <T extends AmazonWebServiceRequest> T timed(T request) {
+        if (callTimeoutMillis > 0) request.setSdkClientExecutionTimeout(callTimeoutMillis);
+        return request;
+    }
+
+    static String toPropertyName(String root, String parameterName) {
+        return parameterName.substring(root.length()+1).replace("/", ".");
+    }
+
+    /**
+     * @return spring properties which were added, removed or have another value in the <code>actual</code> map
+     */
+    static Set<String> changedProperties(Map<String, Parameter> previous, Map<String, Parameter> actual) {
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, Parameter> e : actual.entrySet()) {
+            Parameter p = previous.get(e.getKey());
+            if (p == null || !Objects.equals(p.getValue(), e.getValue().getValue())) changed.add(e.getKey());
+        }
+        for (String key : previous.keySet()) {
+            if (!actual.containsKey(key)) changed.add(key);
+        }
+        return changed;
+    }
+
+    private static int pages(int items, int pageSize) {
+        return (items + pageSize - 1) / pageSize;
+    }
+
+    static String getSecureValue(Parameter p) {
+        String t = p.getType();
+        if (t == null) return "???";
+        return (t.startsWith("Secure") || t.contains("pass") || t.contains("priva")) ? "***" : p.getValue();
+    }
+
+    /**
+     * Reads a root through the shared cache (if it is configured for the root) or directly from AWS.
+     */
+    List<Parameter> loadRoot(String root) {
+        if (sharedCache == null || (sharedRoots != null && !sharedRoots.contains(root))) return readRoot(root);
+
+        // a root is shared with the JVMs reading the same account and region with the same selection only
+        RootSelection rootSelection = selection.forRoot(root);
+        RootKeys rootKeys = manifestRoots.get(root);
+        String key = rootSelection != null ? root + " " + rootSelection : root;
+        if (rootKeys != null) key += " manifest@" + Integer.toHexString(31 * rootKeys.getNames().hashCode() + rootKeys.getPaths().hashCode());
+        key += " identity@" + HostSharedParameterCache.digest(sharedIdentity);
+
+        boolean[] fetched = {false};
+        List<Parameter> parameters = sharedCache.load(key, decryption, k -> {
+            fetched[0] = true;
+            return readRoot(root);
+        });
+        if (!fetched[0] && logger.isEnabled(Verbosity.ROOTS)) {
+            logger.info("AWS Parameter Store root: {\"root\": \"" + root + "\", \"sharedCache\": \"hit\", \"parameters\": " + parameters.size() + "}");
+        }
+        return parameters;
+    }
+
+    private List<List<Parameter>> readSequentially(String[] roots) {
+        List<List<Parameter>> result = new ArrayList<>(roots.length);
+        for (String root : roots) result.add(loadRoot(root));
+        return result;
+    }
+
+    private List<List<Parameter>> readConcurrently(String[] roots) {
+        ExecutorService executor = ParameterStoreExecutors.newFixedPool("aws-ps-fetch-", Math.min(fetchThreads, roots.length));
+        try {
+            List<Future<List<Parameter>>> futures = new ArrayList<>(roots.length);
+            for (String root : roots) futures.add(executor.submit(() -> loadRoot(root)));
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+            List<String> completed = new ArrayList<>();
+            List<String> timedOut = new ArrayList<>();
+
+            List<List<Parameter>> result = new ArrayList<>(roots.length);
+            for (int i = 0; i < roots.length; i++) {
+                Future<List<Parameter>> f = futures.get(i);
+                try {
+                    result.add(deadlineMillis > 0 ? getResult(f, deadline - System.nanoTime()) : getResult(f));
+                    completed.add(roots[i]);
+                } catch (TimeoutException e) {
+                    f.cancel(true);
+                    timedOut.add(roots[i]);
+                }
+            }
+
+            completedRoots = Collections.unmodifiableList(completed);
+            if (!timedOut.isEmpty()) throw new AwsParameterStoreTimeoutException(deadlineMillis, completed, timedOut);
+
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T getResult(Future<T> future, long timeoutNanos) throws TimeoutException {
+        if (timeoutNanos <= 0 && !future.isDone()) throw new TimeoutException();
+        try {
+            return future.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reading of AWS Parameter Store was interrupted", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reading of AWS Parameter Store was interrupted", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new IllegalStateException(cause);
+    }
+
+}
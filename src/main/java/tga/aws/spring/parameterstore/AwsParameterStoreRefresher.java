@@ -0,0 +1,174 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Periodically re-reads the roots and applies changed values to an {@link AwsParameterStorePropertySource}.
+ * <p>
+ *     A refresh builds a completely new parameters index and publishes it with a single reference swap
+ *     (see {@link AwsParameterStorePropertySource#compareAndSetIndex(ParameterIndex, ParameterIndex)}), then publishes
+ *     an {@link AwsParameterStoreChangeEvent} with the changed property names.
+ * </p>
+ * <p>
+ *     The refresher is registered as an application listener by {@link AwsParameterStoreConnector}:
+ *     it starts on {@link ApplicationReadyEvent} and stops when the context of that event is closed.
+ *     Only one refresh runs at a time (single scheduler thread).
+ * </p>
+ * <p>
+ *     In the incremental mode only new and changed parameters are fetched (see {@link AwsParameterStoreIncrementalSync}).
+ * </p>
+ */
+public class AwsParameterStoreRefresher implements ApplicationListener<ApplicationEvent> {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    private final AwsParameterStorePropertySource propertySource;
+    private final String[] roots;
+    private final Supplier<AwsParameterStoreReader> readerSupplier;
+    private final long intervalMillis;
+    private final boolean incremental;
+
+    private AwsParameterStoreReader reader;
+    private AwsParameterStoreIncrementalSync sync;
+    private volatile ApplicationEventPublisher publisher;
+    private ScheduledExecutorService scheduler;
+    private volatile ApplicationContext context;
+
+    /**
+     * @param readerSupplier creates a reader (with an AWS client) on the first refresh; can return <code>null</code> if AWS is unreachable
+     */
+    public AwsParameterStoreRefresher(AwsParameterStorePropertySource propertySource, String[] roots,
+                                      Supplier<AwsParameterStoreReader> readerSupplier, long intervalMillis) {
+        this(propertySource, roots, readerSupplier, intervalMillis, false);
+    }
+
+    /**
+     * @param incremental fetch only new and changed parameters instead of re-reading the whole roots
+     */
+    public AwsParameterStoreRefresher(AwsParameterStorePropertySource propertySource, String[] roots,
+                                      Supplier<AwsParameterStoreReader> readerSupplier, long intervalMillis, boolean incremental) {
+        this.propertySource = propertySource;
+        this.roots = roots;
+        this.readerSupplier = readerSupplier;
+        this.intervalMillis = intervalMillis;
+        this.incremental = incremental;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationReadyEvent) {
+            ConfigurableApplicationContext ready = ((ApplicationReadyEvent) event).getApplicationContext();
+            if (context == null) context = ready;
+            if (context == ready) start(ready);
+        } else if (event instanceof ContextClosedEvent && ((ContextClosedEvent) event).getApplicationContext() == context) {
+            stop(); // a closed child context (or a context of another application) doesn't stop this one
+        }
+    }
+
+    public synchronized void start(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(ParameterStoreExecutors.threadFactory("aws-ps-refresh-"));
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("AWS Parameter Store integration: refresh every " + intervalMillis + " ms");
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Re-reads all the roots and applies the changes (if any).
+     *
+     * @return changed spring property names
+     */
+    public Set<String> refresh() {
+        if (reader == null) reader = readerSupplier.get();
+        if (reader == null) return Collections.emptySet();
+
+        if (incremental) {
+            if (sync == null) sync = new AwsParameterStoreIncrementalSync(reader, roots, propertySource.getIndex().toParameters());
+            Map<String, Parameter> actual = sync.sync();
+            return actual != null ? apply(actual) : Collections.emptySet();
+        }
+
+        Map<String, Parameter> actual = reader.readAllProps(roots);
+        return apply(actual);
+    }
+
+    Set<String> apply(Map<String, Parameter> actual) {
+        return apply(propertySource, actual, publisher);
+    }
+
+    /**
+     * Swaps a new index built from the parameters into the property source and publishes the changed property names.
+     *
+     * @return changed spring property names
+     */
+    static Set<String> apply(AwsParameterStorePropertySource propertySource, Map<String, Parameter> actual,
+                             ApplicationEventPublisher publisher) {
+        return apply(propertySource, current -> actual, publisher);
+    }
+
+    /**
+     * Swaps a new index built from the current one into the property source and publishes the changed property names.
+     * The update is retried if the index is replaced concurrently (a refresh and a change notification don't lose
+     * each other's changes).
+     *
+     * @param update the parameters of the new index, built from the current index (called once per attempt)
+     * @return changed spring property names
+     */
+    static Set<String> apply(AwsParameterStorePropertySource propertySource,
+                             Function<ParameterIndex, Map<String, Parameter>> update,
+                             ApplicationEventPublisher publisher) {
+        ParameterIndex previous;
+        ParameterIndex next;
+        Set<String> changed;
+        do {
+            previous = propertySource.getIndex();
+            next = ParameterIndex.of(update.apply(previous), previous.hasMetadata(), previous.isEncrypted(), previous.getJsonParameters());
+
+            changed = ParameterIndex.changedKeys(previous, next);
+            if (changed.isEmpty()) return changed;
+        } while (!propertySource.compareAndSetIndex(previous, next));
+
+        logger.info("AWS Parameter Store integration: " + changed.size() + " properties changed " + changed);
+
+        if (publisher != null) publisher.publishEvent(new AwsParameterStoreChangeEvent(propertySource, changed));
+
+        return changed;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.warn("AWS Parameter Store refresh failed: " + e.getClass().getSimpleName() + " " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of loaded parameter sets (see {@link AwsParameterStoreConnector}).
+ * <p>
+ *     Every Spring environment of a JVM (child contexts, Spring Cloud bootstrap contexts, test contexts)
+ *     gets its own property source, but the parameters are loaded only once per key
+ *     (credentials identity, region, roots, decryption mode, ...) and the immutable {@link ParameterIndex}
+ *     is shared by all of them.
+ * </p>
+ * <p>
+ *     Concurrent loads of the same key wait for the first one. A failed load (an exception or no result)
+ *     is not kept, so the next environment tries again. An entry older than its <code>maxAge</code> is reloaded.
+ * </p>
+ */
+public class AwsParameterStoreRegistry {
+
+    private final ConcurrentMap<List<Object>, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    public static List<Object> key(Object... parts) {
+        return Arrays.asList(parts);
+    }
+
+    /**
+     * @param maxAgeMillis the loaded parameters are reused during this time (0 - forever)
+     * @param loader       loads the parameters (<code>null</code> - nothing loaded)
+     * @return the shared index or <code>null</code> if the loader returned nothing
+     */
+    public ParameterIndex getOrLoad(List<Object> key, long maxAgeMillis, Supplier<ParameterIndex> loader) {
+        while (true) {
+            CompletableFuture<Entry> created = new CompletableFuture<>();
+            CompletableFuture<Entry> existing = entries.putIfAbsent(key, created);
+
+            if (existing == null) return load(key, created, loader);
+
+            Entry entry = join(existing);
+            if (entry == null) return null; // a concurrent load has just failed
+            if (maxAgeMillis <= 0 || System.currentTimeMillis() - entry.loadedAt <= maxAgeMillis) return entry.index;
+
+            entries.remove(key, existing); // expired
+        }
+    }
+
+    /**
+     * Replaces the parameters of a key (e.g. after a check of the snapshot they were loaded from).
+     */
+    public void put(List<Object> key, ParameterIndex index) {
+        entries.put(key, CompletableFuture.completedFuture(new Entry(index)));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private ParameterIndex load(List<Object> key, CompletableFuture<Entry> future, Supplier<ParameterIndex> loader) {
+        ParameterIndex index;
+        try {
+            index = loader.get();
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+        if (index == null) {
+            entries.remove(key, future);
+            future.complete(null);
+        } else {
+            future.complete(new Entry(index));
+        }
+        return index;
+    }
+
+    private static Entry join(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    private static final class Entry {
+        final ParameterIndex index;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(ParameterIndex index) {
+            this.index = index;
+        }
+    }
+
+}
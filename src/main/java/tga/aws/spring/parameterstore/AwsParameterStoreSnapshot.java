@@ -0,0 +1,268 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A "last known good" copy of the parameters loaded from AWS Parameter Store, kept in a local file.
+ * <p>
+ *     File layout (all numbers are big-endian):
+ *     <pre>
+ *     int     magic          "AWPS"
+ *     short   format version
+ *     byte    flags          (1 = payload is encrypted)
+ *     long    created at     (epoch millis)
+ *     string  roots          (comma separated, in the precedence order)
+ *     string  identity       (a digest of the client identity: region, access key, profile)
+ *     int     payload length
+ *     long    CRC32 of the payload (as stored)
+ *     byte[]  payload        (gzipped records; AES-GCM encrypted if the flag is set, the first 12 bytes are the IV)
+ *     </pre>
+ * </p>
+ * <p>
+ *     If the parameters contain SecureStrings, the snapshot is written only when an encryption key is configured:
+ *     decrypted secrets never go to the disk in plain text.
+ * </p>
+ * <p>
+ *     A snapshot written for other roots or another account / region is not used: it's not the last known good state of
+ *     the parameters the application reads now. Every length is checked against the bytes left in the file before
+ *     anything is allocated, so a corrupted file is rejected rather than failing the start.
+ * </p>
+ */
+public class AwsParameterStoreSnapshot {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    static final int MAGIC = 0x41575053; // "AWPS"
+    static final short FORMAT_VERSION = 2;
+
+    private static final byte FLAG_ENCRYPTED = 1;
+    private static final int IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final int MIN_RECORD_SIZE = 4 * 4 + 8; // 4 string lengths and the version
+
+    private final File file;
+    private final SecretKey key;
+    private final String roots;
+    private final String identity;
+
+    /**
+     * @param file     snapshot file
+     * @param key      AES key for SecureString protection, can be <code>null</code>
+     * @param roots    the roots the parameters are loaded from
+     * @param identity the client identity (see {@link AWSParameterStoreClientBuilder#getIdentity}), can be <code>null</code>
+     */
+    public AwsParameterStoreSnapshot(File file, SecretKey key, String[] roots, String identity) {
+        this.file = file;
+        this.key = key;
+        this.roots = String.join(",", Arrays.asList(roots));
+        this.identity = HostSharedParameterCache.digest(identity != null ? identity : "");
+    }
+
+    /**
+     * @param base64Key a base64 encoded AES key (16, 24 or 32 bytes), can be <code>null</code> or empty
+     */
+    public static SecretKey decodeKey(String base64Key) {
+        if (base64Key == null || base64Key.isEmpty()) return null;
+        return new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Stores the parameters into the snapshot file (atomically replaces the previous one).
+     *
+     * @return <code>false</code> if the snapshot was not written
+     */
+    public boolean write(Map<String, Parameter> parameters) {
+        boolean secure = parameters.values().stream().anyMatch(AwsParameterStoreSnapshot::isSecure);
+        if (secure && key == null) {
+            logger.warn("AWS Parameter Store snapshot was not written: SecureString parameters can't be stored without an encryption key");
+            return false;
+        }
+
+        try {
+            byte[] payload = encodeRecords(parameters);
+            if (secure) payload = encrypt(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeByte(secure ? FLAG_ENCRYPTED : 0);
+            out.writeLong(System.currentTimeMillis());
+            writeString(out, roots);
+            writeString(out, identity);
+            out.writeInt(payload.length);
+            out.writeLong(crc.getValue());
+            out.write(payload);
+            out.flush();
+
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) throw new IOException("Can't create directory " + dir);
+
+            File tmp = new File(dir, file.getName() + ".tmp");
+            Files.write(tmp.toPath(), bytes.toByteArray());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | GeneralSecurityException e) {
+            logger.warn("AWS Parameter Store snapshot was not written: " + e.getClass().getSimpleName() + " " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the snapshot file.
+     *
+     * @return loaded parameters or <code>null</code> if the file is absent, corrupted or can't be decrypted
+     */
+    public Map<String, Parameter> read() {
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a snapshot file");
+
+            short version = in.readShort();
+            if (version != FORMAT_VERSION) throw new IOException("unsupported snapshot version " + version);
+
+            byte flags = in.readByte();
+            in.readLong(); // created at
+            String snapshotRoots = readString(in);
+            if (!roots.equals(snapshotRoots)) throw new IOException("written for other roots (" + snapshotRoots + ")");
+            if (!identity.equals(readString(in))) throw new IOException("written for another account, region or credentials");
+
+            int length = in.readInt();
+            long checksum = in.readLong();
+            if (length < 0 || length > in.available()) throw new IOException("corrupted payload length " + length);
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != checksum) throw new IOException("checksum mismatch");
+
+            if ((flags & FLAG_ENCRYPTED) != 0) {
+                if (key == null) throw new IOException("snapshot is encrypted, but no key is configured");
+                payload = decrypt(payload);
+            }
+
+            return decodeRecords(payload);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            logger.warn("AWS Parameter Store snapshot " + file + " can't be used: " + e.getClass().getSimpleName() + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isSecure(Parameter p) {
+        return p.getType() != null && p.getType().startsWith("Secure");
+    }
+
+    private static byte[] encodeRecords(Map<String, Parameter> parameters) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(parameters.size());
+            for (Map.Entry<String, Parameter> e : parameters.entrySet()) {
+                Parameter p = e.getValue();
+                writeString(out, e.getKey());
+                writeString(out, p.getName());
+                writeString(out, p.getType());
+                writeString(out, p.getValue());
+                out.writeLong(p.getVersion() != null ? p.getVersion() : -1L);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, Parameter> decodeRecords(byte[] payload) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream(payload.length * 4);
+        try (GZIPInputStream unzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            byte[] buffer = new byte[8192];
+            for (int n = unzip.read(buffer); n >= 0; n = unzip.read(buffer)) records.write(buffer, 0, n);
+        }
+
+        // the lengths are checked against the bytes left: available() of a byte array stream is exact
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(records.toByteArray()))) {
+            int count = in.readInt();
+            if (count < 0 || count > in.available() / MIN_RECORD_SIZE) throw new IOException("corrupted parameters count " + count);
+            Map<String, Parameter> parameters = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                Parameter p = new Parameter()
+                        .withName(readString(in))
+                        .withType(readString(in))
+                        .withValue(readString(in));
+                long version = in.readLong();
+                if (version >= 0) p.setVersion(version);
+                parameters.put(key, p);
+            }
+            return parameters;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        if (length > in.available()) throw new IOException("corrupted string length " + length);
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private byte[] encrypt(byte[] plain) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        new SecureRandom().nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+        byte[] encrypted = cipher.doFinal(plain);
+
+        byte[] result = new byte[IV_LENGTH + encrypted.length];
+        System.arraycopy(iv, 0, result, 0, IV_LENGTH);
+        System.arraycopy(encrypted, 0, result, IV_LENGTH, encrypted.length);
+        return result;
+    }
+
+    private byte[] decrypt(byte[] payload) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, payload, 0, IV_LENGTH));
+        return cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH);
+    }
+
+}
@@ -0,0 +1,117 @@
+package tga.aws.spring.parameterstore;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the loaded but never read parameters (see {@link ParameterUsageReport}) once the warm-up window after
+ * {@link ApplicationReadyEvent} is over, or when the context of that event is closed earlier (short-living jobs).
+ * <p>
+ *     The summary is logged (with <i>keys</i> verbosity - every unread name); with <strong>psUsageReportFile</strong>
+ *     the whole report is written as a properties file which can feed <strong>psExcludePaths</strong> of the next deployment.
+ * </p>
+ */
+public class AwsParameterStoreUsageReporter implements ApplicationListener<ApplicationEvent> {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    private final AwsParameterStorePropertySource propertySource;
+    private final String[] roots;
+    private final long warmupMillis;
+    private final File reportFile;
+    private final long started = System.nanoTime();
+
+    private ScheduledExecutorService scheduler;
+    private boolean reported;
+    private volatile ApplicationContext context;
+
+    /**
+     * @param reportFile where to write the report; <code>null</code> - only log it
+     */
+    public AwsParameterStoreUsageReporter(AwsParameterStorePropertySource propertySource, String[] roots,
+                                          long warmupMillis, File reportFile) {
+        this.propertySource = propertySource.withUsageTracking();
+        this.roots = roots;
+        this.warmupMillis = warmupMillis;
+        this.reportFile = reportFile;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationReadyEvent) {
+            ConfigurableApplicationContext ready = ((ApplicationReadyEvent) event).getApplicationContext();
+            if (context == null) context = ready;
+            if (context == ready) start();
+        } else if (event instanceof ContextClosedEvent && ((ContextClosedEvent) event).getApplicationContext() == context) {
+            stop(); // a closed child context (or a context of another application) doesn't stop this one
+        }
+    }
+
+    public synchronized void start() {
+        if (scheduler != null || reported) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(ParameterStoreExecutors.threadFactory("aws-ps-usage-"));
+        scheduler.schedule(this::reportQuietly, warmupMillis, TimeUnit.MILLISECONDS);
+        logger.info("AWS Parameter Store integration: unread parameters are reported in " + warmupMillis + " ms");
+    }
+
+    /**
+     * Reports the usage now unless it was reported already.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        reportQuietly();
+    }
+
+    /**
+     * @return the report of the parameters read so far
+     */
+    public ParameterUsageReport report() {
+        return propertySource.getUsage().report(roots, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    private synchronized void reportQuietly() {
+        if (reported) return;
+        reported = true;
+        try {
+            ParameterUsageReport report = report();
+            logger.info("AWS Parameter Store usage: " + report);
+            if (!report.getExcludePaths().isEmpty()) {
+                logger.info("AWS Parameter Store usage: unread parameters can be skipped with "
+                        + AwsParameterStoreConnector.pName_ExcludePaths + "=" + String.join(",", report.getExcludePaths()));
+            }
+            if (logger.isEnabled(ParameterStoreLog.Verbosity.KEYS)) {
+                logger.info("AWS Parameter Store usage: never read " + report.getUnreadNames());
+            }
+            if (reportFile != null) write(report);
+        } catch (RuntimeException | IOException e) {
+            logger.warn("AWS Parameter Store usage report failed: " + e.getClass().getSimpleName() + " " + e.getMessage());
+        }
+    }
+
+    private void write(ParameterUsageReport report) throws IOException {
+        File dir = reportFile.getAbsoluteFile().getParentFile();
+        if (dir != null) Files.createDirectories(dir.toPath());
+        File tmp = new File(reportFile.getPath() + ".tmp");
+        Files.write(tmp.toPath(), report.toProperties().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), reportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        logger.info("AWS Parameter Store usage: the report is written to " + reportFile);
+    }
+
+}
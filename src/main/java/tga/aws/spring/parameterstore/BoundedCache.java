@@ -0,0 +1,45 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A small concurrent cache with a maximum size and FIFO eviction.
+ * Reads are plain {@link ConcurrentHashMap} lookups (lock-free); the oldest entries are evicted on writes.
+ */
+final class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+    private final Queue<K> order = new ConcurrentLinkedQueue<>();
+
+    BoundedCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    V get(K key) {
+        return map.get(key);
+    }
+
+    void put(K key, V value) {
+        if (map.put(key, value) == null) {
+            order.add(key);
+            while (map.size() > maxSize) {
+                K eldest = order.poll();
+                if (eldest == null) break;
+                map.remove(eldest);
+            }
+        }
+    }
+
+    void clear() {
+        map.clear();
+        order.clear();
+    }
+
+    int size() {
+        return map.size();
+    }
+
+}
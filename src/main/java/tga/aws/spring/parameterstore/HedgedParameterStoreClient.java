@@ -0,0 +1,252 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Hedged reading from several regions holding replicated parameters (<strong>psHedgeRegions</strong>).
+ * <p>
+ *     A call goes to the primary (the first) region; if it hasn't answered within the hedge delay, the same request is sent
+ *     to the next region, and so on. The first answer is used, the other calls are cancelled (an AWS SDK v1 call is
+ *     interrupted, an SDK v2 one is cancelled). A failed call starts the next region at once, the call fails only when
+ *     all the regions have failed (with the error of the first one).
+ * </p>
+ * <p>
+ *     A <code>NextToken</code> is valid only in the region which returned it, so only the first page of a reading is hedged:
+ *     the next pages of the same root (or shard, or listing) are sent to the region which answered the first one.
+ * </p>
+ * <p>
+ *     The numbers of calls, hedged calls (a backup request was sent) and calls won by the backup regions are logged
+ *     at the end of the start - to tune the delay: a delay about the p95 latency of the primary region hedges ~5% of the calls.
+ * </p>
+ */
+public class HedgedParameterStoreClient implements ParameterStoreClient {
+
+    private final List<ParameterStoreClient> clients;
+    private final List<String> regions;
+    private final long hedgeDelayMillis;
+
+    private final ExecutorService calls = Executors.newCachedThreadPool(ParameterStoreExecutors.threadFactory("aws-ps-hedge-"));
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(ParameterStoreExecutors.threadFactory("aws-ps-hedge-timer-"));
+    private final Map<String, Integer> tokenRegions = new ConcurrentHashMap<>();
+
+    private final LongAdder hedgeableCalls = new LongAdder();
+    private final LongAdder hedgedCalls = new LongAdder();
+    private final LongAdder pinnedCalls = new LongAdder();
+    private final LongAdder[] wins;
+
+    /**
+     * @param clients          clients of the regions, the primary one first
+     * @param regions          names of the regions (for the statistics)
+     * @param hedgeDelayMillis how long to wait for a region before sending the request to the next one
+     */
+    public HedgedParameterStoreClient(List<ParameterStoreClient> clients, List<String> regions, long hedgeDelayMillis) {
+        if (clients.isEmpty() || clients.size() != regions.size()) throw new IllegalArgumentException("a region name is expected for every client");
+        this.clients = new ArrayList<>(clients);
+        this.regions = new ArrayList<>(regions);
+        this.hedgeDelayMillis = Math.max(0, hedgeDelayMillis);
+        this.wins = new LongAdder[clients.size()];
+        for (int i = 0; i < wins.length; i++) wins[i] = new LongAdder();
+    }
+
+    @Override
+    public CompletableFuture<GetParametersByPathResult> getParametersByPathAsync(GetParametersByPathRequest request) {
+        return paged(request.getNextToken(), c -> c.getParametersByPathAsync(request), GetParametersByPathResult::getNextToken);
+    }
+
+    @Override
+    public CompletableFuture<GetParametersResult> getParametersAsync(GetParametersRequest request) {
+        return new Race<>(c -> c.getParametersAsync(request), null).start();
+    }
+
+    @Override
+    public CompletableFuture<DescribeParametersResult> describeParametersAsync(DescribeParametersRequest request) {
+        return paged(request.getNextToken(), c -> c.describeParametersAsync(request), DescribeParametersResult::getNextToken);
+    }
+
+    /**
+     * The first page is hedged, the next ones go to the region which returned the token.
+     */
+    private <T> CompletableFuture<T> paged(String nextToken, Function<ParameterStoreClient, CompletableFuture<T>> call,
+                                           Function<T, String> token) {
+        Integer region = nextToken != null ? tokenRegions.remove(nextToken) : null;
+        if (nextToken == null || region == null) return new Race<>(call, token).start();
+
+        pinnedCalls.increment();
+        return call.apply(clients.get(region)).thenApply(page -> {
+            rememberToken(token.apply(page), region);
+            return page;
+        });
+    }
+
+    private void rememberToken(String nextToken, int region) {
+        if (nextToken != null) tokenRegions.put(nextToken, region);
+    }
+
+    /**
+     * @return calls which could be hedged (all but the next pages)
+     */
+    public long getCalls() {
+        return hedgeableCalls.sum();
+    }
+
+    /**
+     * @return calls a backup request was sent for
+     */
+    public long getHedgedCalls() {
+        return hedgedCalls.sum();
+    }
+
+    /**
+     * @return calls answered by a backup region first
+     */
+    public long getHedgeWins() {
+        long won = 0;
+        for (int i = 1; i < wins.length; i++) won += wins[i].sum();
+        return won;
+    }
+
+    public long getWins(String region) {
+        int i = regions.indexOf(region);
+        return i >= 0 ? wins[i].sum() : 0;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        calls.shutdownNow();
+        for (ParameterStoreClient client : clients) client.close();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{\"delayMs\": ").append(hedgeDelayMillis)
+                .append(", \"calls\": ").append(getCalls())
+                .append(", \"hedged\": ").append(getHedgedCalls())
+                .append(", \"hedgeWins\": ").append(getHedgeWins())
+                .append(", \"pinnedPages\": ").append(pinnedCalls.sum())
+                .append(", \"wins\": {");
+        for (int i = 0; i < regions.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('"').append(regions.get(i)).append("\": ").append(wins[i].sum());
+        }
+        return sb.append("}}").toString();
+    }
+
+    /**
+     * A single call sent to the regions one by one until one of them answers.
+     */
+    private final class Race<T> {
+        private final Function<ParameterStoreClient, CompletableFuture<T>> call;
+        private final Function<T, String> token;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private final Future<?>[] tasks = new Future<?>[clients.size()];
+        private final List<CompletableFuture<T>> pages = new ArrayList<>();
+        private int started;
+        private int failed;
+        private boolean answered;
+        private Throwable firstFailure;
+
+        Race(Function<ParameterStoreClient, CompletableFuture<T>> call, Function<T, String> token) {
+            this.call = call;
+            this.token = token;
+        }
+
+        CompletableFuture<T> start() {
+            hedgeableCalls.increment();
+            result.whenComplete((r, e) -> cancelAll());
+            startNext(0);
+            return result;
+        }
+
+        /**
+         * Starts the region unless it's started already or the call is over.
+         */
+        private void startNext(int region) {
+            synchronized (this) {
+                if (result.isDone() || region != started || region >= clients.size()) return;
+                started++;
+                if (region == 1) hedgedCalls.increment();
+                tasks[region] = calls.submit(() -> send(region));
+            }
+            if (region + 1 < clients.size()) {
+                timer.schedule(() -> startNext(region + 1), hedgeDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void send(int region) {
+            CompletableFuture<T> page;
+            try {
+                page = call.apply(clients.get(region));
+            } catch (RuntimeException e) {
+                page = new CompletableFuture<>();
+                page.completeExceptionally(e);
+            }
+            synchronized (this) {
+                pages.add(page);
+                if (result.isDone()) page.cancel(true);
+            }
+            page.whenComplete((r, e) -> {
+                if (e == null) won(region, r);
+                else lost(region, e);
+            });
+        }
+
+        private void won(int region, T page) {
+            synchronized (this) {
+                if (answered) return; // a late answer
+                answered = true;
+            }
+            // the token is remembered before the caller gets the page (and asks for the next one)
+            if (token != null) rememberToken(token.apply(page), region);
+            if (result.complete(page)) wins[region].increment();
+        }
+
+        private void lost(int region, Throwable e) {
+            boolean all;
+            int next;
+            synchronized (this) {
+                failed++;
+                if (firstFailure == null || region == 0) firstFailure = e;
+                all = failed == clients.size();
+                next = started;
+            }
+            if (all) result.completeExceptionally(firstFailure);
+            else startNext(next);
+        }
+
+        private void cancelAll() {
+            List<CompletableFuture<T>> sent;
+            List<Future<?>> running = new ArrayList<>();
+            synchronized (this) {
+                sent = new ArrayList<>(pages);
+                for (Future<?> task : tasks) {
+                    if (task != null) running.add(task);
+                }
+            }
+            for (CompletableFuture<T> page : sent) {
+                if (!page.isDone()) page.cancel(true);
+            }
+            for (Future<?> task : running) task.cancel(true);
+        }
+    }
+
+}
@@ -0,0 +1,366 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * A cache of root folders shared by all the JVMs of a host: every root is kept in a memory-mapped file
+ * (put the directory on a tmpfs, e.g. <code>/dev/shm</code>), so only one JVM reads a root from AWS and
+ * the others just map the file.
+ * <p>
+ *     File layout (all numbers are big-endian):
+ *     <pre>
+ *     int     magic          "AWPC"
+ *     int     format version
+ *     long    generation     (odd while the data is being written)
+ *     long    fetched at     (epoch millis, the start of the AWS reading)
+ *     int     payload length (-1: the root is not shared, see below)
+ *     int     CRC32 of the payload
+ *     byte[]  payload        (records: name, type, value, version)
+ *     </pre>
+ * </p>
+ * <p>
+ *     <ul>
+ *         <li>Leader: a JVM which finds the data missing or older than <code>maxAge</code> tries to lock
+ *         the <code>.lock</code> file next to the data file (an OS file lock, released when a process dies).
+ *         The lock owner reads the root from AWS and writes it; the others wait for the new generation.
+ *         If the leader doesn't finish in <code>leaderWait</code> (a stuck leader), they read AWS on their own
+ *         (without writing).</li>
+ *         <li>Torn reads: a writer makes the generation odd, writes the payload and makes the generation even again.
+ *         A reader retries if the generation is odd or changed while copying, and checks the CRC.
+ *         The file only grows, so a mapping never points beyond the end of the file.</li>
+ *     </ul>
+ * </p>
+ * <p>
+ *     Decrypted SecureString values are never written (the same rule as for {@link AwsParameterStoreSnapshot}):
+ *     such a root is read from AWS by every JVM. The leader writes a "not shared" header instead of the data,
+ *     so the other JVMs read AWS at once rather than waiting for the lock one after another. With <strong>psDecryption</strong>=<i>lazy</i> SecureStrings are
+ *     ciphertexts and are shared as well. Files are created readable by the owner only.
+ * </p>
+ */
+public class HostSharedParameterCache {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    static final int MAGIC = 0x41575043; // "AWPC"
+    static final int FORMAT_VERSION = 2;
+
+    static final int GENERATION_OFFSET = 8;
+    static final int FETCHED_AT_OFFSET = 16;
+    static final int LENGTH_OFFSET = 24;
+    static final int CRC_OFFSET = 28;
+    static final int HEADER_SIZE = 32;
+
+    static final int NOT_SHARED_LENGTH = -1;
+
+    /** The result of {@link #read(File)} for a root which is not shared: it has to be read from AWS by every JVM. */
+    static final List<Parameter> NOT_SHARED = Collections.unmodifiableList(new ArrayList<>());
+
+    private static final int SIZE_INCREMENT = 64 * 1024;
+    private static final int READ_ATTEMPTS = 20;
+    private static final long POLL_MILLIS = 50;
+
+    private final File directory;
+    private final long maxAgeMillis;
+    private final long leaderWaitMillis;
+
+    /**
+     * @param directory        directory of the cache files (shared by the JVMs)
+     * @param maxAgeMillis     data older than this is read from AWS again (by a single leader)
+     * @param leaderWaitMillis how long to wait for the current leader before reading AWS without it
+     */
+    public HostSharedParameterCache(File directory, long maxAgeMillis, long leaderWaitMillis) {
+        this.directory = directory;
+        this.maxAgeMillis = maxAgeMillis;
+        this.leaderWaitMillis = leaderWaitMillis;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the parameters of a root from the shared file, or reads them with the <code>fetcher</code>
+     * (and shares them) if the data is missing or stale.
+     *
+     * @param root      the root (or any other key identifying the content, e.g. the root, its selection and the client identity)
+     * @param decrypted the fetcher returns decrypted SecureString values (they are not shared then)
+     */
+    public List<Parameter> load(String root, boolean decrypted, Function<String, List<Parameter>> fetcher) {
+        File file = fileOf(root, decrypted);
+
+        List<Parameter> cached = read(file);
+        if (cached == NOT_SHARED) return fetcher.apply(root);
+        if (cached != null) return cached;
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaderWaitMillis);
+        while (true) {
+            try (FileChannel lockChannel = openLockFile(file);
+                 FileLock lock = tryLock(lockChannel)) {
+                if (lock != null) {
+                    // the previous leader could have written the data while we were waiting for the lock
+                    cached = read(file);
+                    if (cached == NOT_SHARED) break;
+                    if (cached != null) return cached;
+
+                    long fetchedAt = System.currentTimeMillis();
+                    List<Parameter> fresh = fetcher.apply(root);
+                    if (decrypted && fresh.stream().anyMatch(HostSharedParameterCache::isSecure)) {
+                        logger.warn("AWS Parameter Store shared cache: root '" + root + "' has decrypted SecureString values, it is not shared");
+                        write(file, null, fetchedAt);
+                    } else {
+                        write(file, fresh, fetchedAt);
+                    }
+                    return fresh;
+                }
+            } catch (IOException e) {
+                logger.warn("AWS Parameter Store shared cache can't be used for root '" + root + "': " + e.getClass().getSimpleName() + " " + e.getMessage());
+                return fetcher.apply(root);
+            }
+
+            if (System.nanoTime() - deadline > 0) {
+                logger.warn("AWS Parameter Store shared cache: no data from the leader in " + leaderWaitMillis + " ms, root '" + root + "' is read directly");
+                return fetcher.apply(root);
+            }
+
+            sleep(POLL_MILLIS);
+            cached = read(file);
+            if (cached == NOT_SHARED) break;
+            if (cached != null) return cached;
+        }
+        return fetcher.apply(root); // not shared: read without holding or waiting for the lock
+    }
+
+    File fileOf(String root, boolean decrypted) {
+        String name = root.replaceAll("^/+", "").replaceAll("[^a-zA-Z0-9_.-]", "_");
+        if (name.isEmpty()) name = "_root";
+        if (name.length() > 64) name = name.substring(0, 64);
+        return new File(directory, name + "-" + digest(root) + (decrypted ? "" : ".encrypted") + ".pscache");
+    }
+
+    /**
+     * @return the first 64 bits of the SHA-256 of the text, hex-encoded: file names of different keys don't collide
+     * (the keys can't be told apart by their hash codes), and a key can't be read back from a file name
+     */
+    static String digest(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) sb.append(String.format("%02x", hash[i]));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the parameters, {@link #NOT_SHARED} or <code>null</code> if the file is absent, stale, being written
+     *         or corrupted
+     */
+    List<Parameter> read(File file) {
+        if (!file.isFile()) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+                long size = channel.size();
+                if (size < HEADER_SIZE) return null;
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) return null;
+
+                long generation = buffer.getLong(GENERATION_OFFSET);
+                if ((generation & 1) != 0 || generation == 0) {
+                    if (generation == 0) return null; // never written
+                    sleep(1);
+                    continue;
+                }
+
+                long fetchedAt = buffer.getLong(FETCHED_AT_OFFSET);
+                int length = buffer.getInt(LENGTH_OFFSET);
+                int checksum = buffer.getInt(CRC_OFFSET);
+                if (length == NOT_SHARED_LENGTH) {
+                    if (buffer.getLong(GENERATION_OFFSET) != generation) continue;
+                    return System.currentTimeMillis() - fetchedAt > maxAgeMillis ? null : NOT_SHARED;
+                }
+                if (length < 0 || HEADER_SIZE + (long) length > size) continue; // grown by a writer: map again
+
+                byte[] payload = new byte[length];
+                buffer.position(HEADER_SIZE);
+                buffer.get(payload);
+
+                if (buffer.getLong(GENERATION_OFFSET) != generation) continue; // written while copying
+                if (crc(payload) != checksum) continue;
+
+                if (System.currentTimeMillis() - fetchedAt > maxAgeMillis) return null;
+
+                return decodeRecords(payload);
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("AWS Parameter Store shared cache " + file + " can't be read: " + e.getClass().getSimpleName() + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the parameters into the file; the caller must hold the leader lock.
+     *
+     * @param parameters the parameters or <code>null</code> - the root is not shared (only the header is written)
+     */
+    void write(File file, List<Parameter> parameters, long fetchedAt) throws IOException {
+        byte[] payload = parameters != null ? encodeRecords(parameters) : new byte[0];
+
+        try (FileChannel channel = FileChannel.open(createIfAbsent(file.toPath()), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long required = HEADER_SIZE + (long) payload.length;
+            long size = Math.max(channel.size(), (required / SIZE_INCREMENT + 1) * SIZE_INCREMENT);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                buffer.putLong(GENERATION_OFFSET, 0);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT_VERSION);
+            }
+
+            long generation = buffer.getLong(GENERATION_OFFSET) | 1; // odd: being written (also after a writer crash)
+            buffer.putLong(GENERATION_OFFSET, generation);
+
+            buffer.putLong(FETCHED_AT_OFFSET, fetchedAt);
+            buffer.putInt(LENGTH_OFFSET, parameters != null ? payload.length : NOT_SHARED_LENGTH);
+            buffer.putInt(CRC_OFFSET, crc(payload));
+            buffer.position(HEADER_SIZE);
+            buffer.put(payload);
+
+            buffer.putLong(GENERATION_OFFSET, generation + 1);
+        }
+    }
+
+    /**
+     * @return the current generation of a root file (0 - never written)
+     */
+    long generation(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).getLong(GENERATION_OFFSET);
+        }
+    }
+
+    private FileChannel openLockFile(File file) throws IOException {
+        return FileChannel.open(createIfAbsent(new File(file.getPath() + ".lock").toPath()), StandardOpenOption.WRITE);
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null; // the lock is held by another thread of this JVM
+        }
+    }
+
+    private Path createIfAbsent(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            Files.createDirectories(directory.toPath());
+            try {
+                if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                    Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+                } else {
+                    Files.createFile(path);
+                }
+            } catch (java.nio.file.FileAlreadyExistsException e) {
+                // created by another JVM
+            }
+        }
+        return path;
+    }
+
+    private static boolean isSecure(Parameter p) {
+        return p.getType() != null && p.getType().startsWith("Secure");
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeRecords(List<Parameter> parameters) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(parameters.size());
+            for (Parameter p : parameters) {
+                writeString(out, p.getName());
+                writeString(out, p.getType());
+                writeString(out, p.getValue());
+                out.writeLong(p.getVersion() != null ? p.getVersion() : -1L);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Parameter> decodeRecords(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            List<Parameter> parameters = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Parameter p = new Parameter()
+                        .withName(readString(in))
+                        .withType(readString(in))
+                        .withValue(readString(in));
+                long version = in.readLong();
+                if (version >= 0) p.setVersion(version);
+                parameters.add(p);
+            }
+            return parameters;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Waiting for the AWS Parameter Store shared cache was interrupted", e);
+        }
+    }
+
+}
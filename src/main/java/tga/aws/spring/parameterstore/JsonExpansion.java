@@ -0,0 +1,201 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * The JSON side table of a {@link ParameterIndex} (see {@link JsonParameters}).
+ * <p>
+ *     A JSON document is parsed and flattened on the first lookup of a property below its key, the result is memoized
+ *     for the life of the index. The key of a JSON parameter itself is not a property. Precedence of the same property
+ *     coming from a document and from a plain parameter follows the roots order: the earlier root wins, within a root
+ *     the plain parameter wins; of two documents of one root the nearer one (<code>a.b</code> over <code>a</code>) wins.
+ * </p>
+ * <p>
+ *     Only the lookups below a JSON key pay for the ancestors walk: other misses stop at the hash codes of the first
+ *     segments of the JSON keys, plain hits are returned at once unless a document of an earlier root may override them.
+ *     Enumeration ({@link #names(ParameterIndex, IntFunction)}) expands all the documents once. Spring Boot binding
+ *     enumerates an enumerable source before binding anything from it, so with any <code>@ConfigurationProperties</code>
+ *     (or <code>spring.*</code> setting) bound after the loading all the documents are parsed at start: the laziness
+ *     saves the parsing only for applications which resolve placeholders only (see <code>JsonExpansionBenchmark</code>).
+ * </p>
+ * <p>
+ *     Values are taken through a function of the index position, so a SecureString document of an encrypted index is
+ *     decrypted before the parsing (see {@link AwsParameterStorePropertySource}).
+ * </p>
+ */
+final class JsonExpansion {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    private final String[] keys;
+    private final boolean[] json;
+    private final int[] ranks;
+    private final boolean[] shadowable;     // a plain key which a document of an earlier root may override
+    private final int[] heads;              // hash codes of the first segments of the JSON keys, sorted
+    private final AtomicReferenceArray<Map<String, String>> documents;
+
+    private volatile String[] names;        // the expanded property names
+
+    private JsonExpansion(String[] keys, boolean[] json, int[] ranks) {
+        this.keys = keys;
+        this.json = json;
+        this.ranks = ranks;
+        this.shadowable = new boolean[keys.length];
+        this.documents = new AtomicReferenceArray<>(keys.length);
+
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (!json[i]) continue;
+            hashes.add(headHash(keys[i]));
+            markShadowable(i, keys[i] + ".");
+            markShadowable(i, keys[i] + "[");
+        }
+        this.heads = hashes.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * @param keys           sorted keys of the index
+     * @param parameterNames AWS parameter names of the keys
+     * @return the side table or <code>null</code> if none of the parameters is a JSON
+     */
+    static JsonExpansion of(String[] keys, String[] parameterNames, JsonParameters config) {
+        if (config.isEmpty()) return null;
+
+        boolean[] json = new boolean[keys.length];
+        boolean any = false;
+        for (int i = 0; i < keys.length; i++) {
+            json[i] = config.isJson(parameterNames[i]);
+            any |= json[i];
+        }
+        if (!any) return null;
+
+        int[] ranks = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) ranks[i] = config.rank(parameterNames[i]);
+        return new JsonExpansion(keys, json, ranks);
+    }
+
+    /**
+     * @param values the value at an index position (decrypted)
+     * @return the value of the property or <code>null</code>
+     */
+    String resolve(ParameterIndex index, String key, IntFunction<String> values) {
+        return resolve(index, key, values, null);
+    }
+
+    /**
+     * @param used gets the index position the value comes from (a plain parameter or a document), can be <code>null</code>
+     */
+    String resolve(ParameterIndex index, String key, IntFunction<String> values, IntConsumer used) {
+        int position = index.indexOf(key);
+        boolean plain = position >= 0 && !json[position];
+        int source = -1;
+        String value = null;
+
+        if (plain && !shadowable[position] || key == null || Arrays.binarySearch(heads, headHash(key)) < 0) {
+            if (plain) {
+                source = position;
+                value = values.apply(position);
+            }
+        } else {
+            int bestRank = plain ? ranks[position] : Integer.MAX_VALUE;
+            for (String ancestor = parent(key); ancestor != null; ancestor = parent(ancestor)) {
+                int p = index.indexOf(ancestor);
+                if (p < 0 || !json[p] || ranks[p] >= bestRank) continue;
+                String v = document(p, values).get(key);
+                if (v != null) {
+                    source = p;
+                    value = v;
+                    bestRank = ranks[p];
+                }
+            }
+            if (value == null && plain) {
+                source = position;
+                value = values.apply(position);
+            }
+        }
+
+        if (used != null && value != null) used.accept(source);
+        return value;
+    }
+
+    /**
+     * @return the property names (plain keys and the keys of all the documents) in sorted order, the same instance every time
+     */
+    String[] names(ParameterIndex index, IntFunction<String> values) {
+        String[] n = names;
+        if (n != null) return n;
+
+        Set<String> expanded = new TreeSet<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (!json[i]) expanded.add(keys[i]);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (!json[i]) continue;
+            for (String key : document(i, values).keySet()) {
+                if (resolve(index, key, values) != null) expanded.add(key);
+            }
+        }
+        n = expanded.toArray(new String[0]);
+        synchronized (this) {
+            if (names == null) names = n;
+            return names;
+        }
+    }
+
+    private Map<String, String> document(int position, IntFunction<String> values) {
+        Map<String, String> document = documents.get(position);
+        if (document != null) return document;
+
+        String value = values.apply(position);
+        if (value == null) return Collections.emptyMap(); // not decrypted: try again next time
+        try {
+            document = JsonParameters.flatten(keys[position], value);
+        } catch (IllegalArgumentException e) {
+            logger.warn("AWS Parameter Store: the JSON parameter of the property " + keys[position] + " can't be parsed: " + e.getMessage());
+            document = Collections.emptyMap();
+        }
+        documents.compareAndSet(position, null, document);
+        return documents.get(position);
+    }
+
+    /**
+     * Marks the plain keys starting with the prefix whose root is after the root of the document.
+     */
+    private void markShadowable(int document, String prefix) {
+        int from = Arrays.binarySearch(keys, prefix);
+        if (from < 0) from = -from - 1;
+        for (int i = from; i < keys.length && keys[i].startsWith(prefix); i++) {
+            if (!json[i] && ranks[i] > ranks[document]) shadowable[i] = true;
+        }
+    }
+
+    /**
+     * @return the name without its last element (<code>a.b[0].c</code> - <code>a.b[0]</code> - <code>a.b</code> - <code>a</code>), <code>null</code> for a single element
+     */
+    static String parent(String key) {
+        int end = Math.max(key.lastIndexOf('.'), key.lastIndexOf('['));
+        return end > 0 ? key.substring(0, end) : null;
+    }
+
+    /**
+     * @return <code>hashCode()</code> of the first element of the name, without a substring
+     */
+    private static int headHash(String key) {
+        int h = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '.' || c == '[') break;
+            h = 31 * h + c;
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,113 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parameters holding whole configuration blocks as JSON (<strong>psJsonParameters</strong>): a JSON parameter
+ * <code>/app/datasource</code> = <code>{"url": "...", "pool": {"max": 50}}</code> is served as the properties
+ * <code>datasource.url</code> and <code>datasource.pool.max</code>; arrays become indexed properties
+ * (<code>datasource.hosts[0]</code>), as for <code>SPRING_APPLICATION_JSON</code>.
+ * <p>
+ *     Patterns are parameter names with the same wildcards as the path selection (see {@link ParameterSelection}),
+ *     but a pattern matches the names themselves, not their subtrees: <code>/app/datasource</code>,
+ *     <code>/app/*&#47;json</code>, <code>/app/blocks/**</code>.
+ * </p>
+ * <p>
+ *     The documents are parsed by the index (see {@link JsonExpansion}): a lookup parses one document, the enumeration
+ *     of the property names - all of them. The roots order ({@link #rank(String)}) decides between a JSON property
+ *     and a plain parameter with the same property name.
+ * </p>
+ */
+public final class JsonParameters {
+
+    private static final JsonParameters NONE = new JsonParameters(new String[0], Collections.emptyList());
+
+    private final String[] roots;
+    private final List<String> patterns;
+    private final List<Pattern> regexps = new ArrayList<>();
+
+    private JsonParameters(String[] roots, List<String> patterns) {
+        this.roots = roots;
+        this.patterns = patterns;
+        for (String pattern : patterns) regexps.add(ParameterSelection.toRegex(pattern, false));
+    }
+
+    public static JsonParameters none() {
+        return NONE;
+    }
+
+    /**
+     * @param patterns comma separated patterns of the JSON parameter names (empty - none)
+     */
+    public static JsonParameters of(String[] roots, String patterns) {
+        List<String> list = new ArrayList<>();
+        if (patterns != null) {
+            for (String pattern : patterns.split(",")) {
+                if (!pattern.trim().isEmpty()) list.add(pattern.trim());
+            }
+        }
+        return list.isEmpty() ? NONE : new JsonParameters(roots.clone(), list);
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    public boolean isJson(String parameterName) {
+        if (parameterName == null) return false;
+        for (Pattern regexp : regexps) {
+            if (regexp.matcher(parameterName).matches()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return position of the first root the parameter belongs to (a lower rank wins), the number of roots if none
+     */
+    int rank(String parameterName) {
+        if (parameterName != null) {
+            for (int i = 0; i < roots.length; i++) {
+                if (parameterName.startsWith(roots[i] + "/")) return i;
+            }
+        }
+        return roots.length;
+    }
+
+    /**
+     * @return the document as flat properties (<code>key.field</code>, <code>key.list[0]</code>, ...) in the document order;
+     * <code>null</code> values and empty objects are skipped
+     * @throws IllegalArgumentException the value is not a JSON object or array
+     */
+    static Map<String, String> flatten(String key, String json) {
+        Object document = JsonReader.parse(json != null ? json : "");
+        if (!(document instanceof Map) && !(document instanceof List)) throw new IllegalArgumentException("not a JSON object or array");
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        flatten(key, document, properties);
+        return properties;
+    }
+
+    private static void flatten(String key, Object value, Map<String, String> properties) {
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                flatten(key.isEmpty() ? String.valueOf(e.getKey()) : key + "." + e.getKey(), e.getValue(), properties);
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) flatten(key + "[" + i + "]", list.get(i), properties);
+        } else if (value != null) {
+            properties.put(key, value.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return patterns.toString();
+    }
+
+}
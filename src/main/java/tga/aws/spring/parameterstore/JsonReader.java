@@ -0,0 +1,152 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small strict JSON parser for parameter values and change events.
+ * <p>
+ *     The library depends on spring-boot only, so <code>JsonParserFactory</code> falls back to its basic parser
+ *     when the application has no Jackson / Gson, and that parser (Spring Boot 2.0) doesn't trim array elements.
+ *     Objects are returned as {@link LinkedHashMap}s (the document order), arrays as {@link List}s, numbers as their
+ *     literal text (<code>50</code> stays "50", not "50.0"), <code>true</code> / <code>false</code> as {@link Boolean}s.
+ * </p>
+ */
+final class JsonReader {
+
+    private final String json;
+    private int position;
+
+    private JsonReader(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @throws IllegalArgumentException the text is not a valid JSON
+     */
+    static Object parse(String json) {
+        JsonReader reader = new JsonReader(json);
+        Object value = reader.value();
+        reader.skipSpaces();
+        if (reader.position < json.length()) throw reader.error("end of the document expected");
+        return value;
+    }
+
+    private Object value() {
+        skipSpaces();
+        if (position >= json.length()) throw error("a value expected");
+        char c = json.charAt(position);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipSpaces();
+        if (next('}')) return object;
+        do {
+            skipSpaces();
+            if (position >= json.length() || json.charAt(position) != '"') throw error("a field name expected");
+            String name = string();
+            skipSpaces();
+            if (!next(':')) throw error("':' expected");
+            object.put(name, value());
+            skipSpaces();
+        } while (next(','));
+        if (!next('}')) throw error("'}' expected");
+        return object;
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipSpaces();
+        if (next(']')) return array;
+        do {
+            array.add(value());
+            skipSpaces();
+        } while (next(','));
+        if (!next(']')) throw error("']' expected");
+        return array;
+    }
+
+    private String string() {
+        StringBuilder s = new StringBuilder();
+        position++;
+        while (position < json.length()) {
+            char c = json.charAt(position++);
+            if (c == '"') return s.toString();
+            if (c != '\\') {
+                s.append(c);
+                continue;
+            }
+            if (position >= json.length()) break;
+            char e = json.charAt(position++);
+            switch (e) {
+                case 'b': s.append('\b'); break;
+                case 'f': s.append('\f'); break;
+                case 'n': s.append('\n'); break;
+                case 'r': s.append('\r'); break;
+                case 't': s.append('\t'); break;
+                case 'u':
+                    if (position + 4 > json.length()) throw error("a unicode escape expected");
+                    try {
+                        s.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("a unicode escape expected");
+                    }
+                    position += 4;
+                    break;
+                default: s.append(e); // \" \\ \/
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private String number() {
+        int start = position;
+        while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) position++;
+        String literal = json.substring(start, position);
+        try {
+            Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            throw error("wrong number " + literal);
+        }
+        return literal;
+    }
+
+    private Object literal(String literal, Object value) {
+        if (!json.startsWith(literal, position)) throw error(literal + " expected");
+        position += literal.length();
+        return value;
+    }
+
+    private boolean next(char c) {
+        if (position < json.length() && json.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpaces() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON: " + message + " at " + position);
+    }
+
+}
@@ -0,0 +1,102 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Loads parameters by their full names combining concurrent requests into <code>GetParameters</code> batches
+ * of up to 10 names.
+ * <p>
+ *     Every requested name gets a future shared by all the callers interested in it while the request is in flight,
+ *     so a name is never fetched twice concurrently. The calling threads themselves drain the queue of pending names:
+ *     a caller may send a batch with names requested by other threads, and then waits for the futures of its own names.
+ * </p>
+ */
+class ParameterBatchLoader {
+
+    private final AwsParameterStoreReader reader;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Parameter>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+
+    ParameterBatchLoader(AwsParameterStoreReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return name -> parameter for the existing parameters (missing names are absent in the result)
+     */
+    Map<String, Parameter> load(Collection<String> names) {
+        Map<String, CompletableFuture<Parameter>> futures = new LinkedHashMap<>();
+        for (String name : names) {
+            CompletableFuture<Parameter> mine = new CompletableFuture<>();
+            CompletableFuture<Parameter> shared = inFlight.putIfAbsent(name, mine);
+            if (shared == null) {
+                shared = mine;
+                pending.add(name);
+            }
+            futures.put(name, shared);
+        }
+
+        drain();
+
+        Map<String, Parameter> result = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<Parameter>> e : futures.entrySet()) {
+            Parameter p = join(e.getValue());
+            if (p != null) result.put(e.getKey(), p);
+        }
+        return result;
+    }
+
+    private void drain() {
+        List<String> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            Map<String, Parameter> found = new HashMap<>();
+            Throwable failure = null;
+            try {
+                for (Parameter p : reader.readParameters(batch)) found.put(p.getName(), p);
+            } catch (Throwable e) {
+                failure = e;
+            }
+
+            for (String name : batch) {
+                CompletableFuture<Parameter> f = inFlight.remove(name);
+                if (f == null) continue;
+                if (failure != null) f.completeExceptionally(failure);
+                else f.complete(found.get(name));
+            }
+
+            // the waiters of the batch got the failure, an error stops this thread too (a runtime one comes from join)
+            if (failure instanceof Error) throw (Error) failure;
+        }
+    }
+
+    private List<String> nextBatch() {
+        List<String> batch = new ArrayList<>(AwsParameterStoreReader.GET_PARAMETERS_BATCH_SIZE);
+        String name;
+        while (batch.size() < AwsParameterStoreReader.GET_PARAMETERS_BATCH_SIZE && (name = pending.poll()) != null) batch.add(name);
+        return batch;
+    }
+
+    private static Parameter join(CompletableFuture<Parameter> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.Map;
+
+/**
+ * A Parameter Store change notification of the EventBridge "Parameter Store Change" shape:
+ * <pre>
+ * {"version": "0", "detail-type": "Parameter Store Change", "source": "aws.ssm", "time": "...", "region": "...",
+ *  "resources": ["arn:aws:ssm:...:parameter/app/db/url"],
+ *  "detail": {"operation": "Update", "name": "/app/db/url", "type": "String"}}
+ * </pre>
+ * The operation is <i>Create</i>, <i>Update</i>, <i>Delete</i>, <i>LabelParameterVersion</i> etc.
+ */
+public final class ParameterChange {
+
+    public static final String DETAIL_TYPE = "Parameter Store Change";
+
+    private final String name;
+    private final String operation;
+
+    public ParameterChange(String name, String operation) {
+        this.name = name;
+        this.operation = operation;
+    }
+
+    /**
+     * @return the change or <code>null</code> if the message is not a Parameter Store change event
+     */
+    @SuppressWarnings("unchecked")
+    public static ParameterChange parse(String event) {
+        Object parsed;
+        try {
+            parsed = JsonReader.parse(event);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!(parsed instanceof Map)) return null;
+
+        Map<String, Object> json = (Map<String, Object>) parsed;
+        if (!DETAIL_TYPE.equals(json.get("detail-type")) || !(json.get("detail") instanceof Map)) return null;
+
+        Map<String, Object> detail = (Map<String, Object>) json.get("detail");
+        Object name = detail.get("name");
+        if (!(name instanceof String)) return null;
+
+        Object operation = detail.get("operation");
+        return new ParameterChange((String) name, operation != null ? operation.toString() : null);
+    }
+
+    /**
+     * @return the change as an EventBridge event (a single line of JSON)
+     */
+    public String toEvent() {
+        return "{\"version\": \"0\", \"detail-type\": \"" + DETAIL_TYPE + "\", \"source\": \"aws.ssm\", "
+                + "\"detail\": {\"operation\": \"" + escape(operation) + "\", \"name\": \"" + escape(name) + "\"}}";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + name;
+    }
+
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+}
@@ -0,0 +1,31 @@
+package tga.aws.spring.parameterstore;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * A source of Parameter Store change notifications (see {@link ParameterChange}) consumed by
+ * {@link AwsParameterStoreChangeListener}, e.g. an SQS queue subscribed to the EventBridge rule
+ * <code>{"source": ["aws.ssm"], "detail-type": ["Parameter Store Change"]}</code>.
+ * <p>
+ *     Implementations are configured by the <strong>psChangeQueue</strong> property with a class name:
+ *     the class needs a public constructor taking a {@link org.springframework.core.env.PropertyResolver}
+ *     (to read its own settings) or a public no-arg constructor.
+ *     Offline stand-ins: {@link tga.aws.spring.parameterstore.local.InMemoryParameterChangeQueue},
+ *     {@link tga.aws.spring.parameterstore.local.FileParameterChangeQueue}.
+ * </p>
+ */
+public interface ParameterChangeQueue extends Closeable {
+
+    /**
+     * Waits for messages (a long poll).
+     *
+     * @return all the messages available (event JSON), an empty list if nothing came in <code>timeoutMillis</code>
+     */
+    List<String> poll(long timeoutMillis) throws InterruptedException;
+
+    @Override
+    default void close() {
+    }
+
+}
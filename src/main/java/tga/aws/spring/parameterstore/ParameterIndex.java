@@ -0,0 +1,304 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A compact read-only index of loaded parameters (spring property name -> value).
+ * <p>
+ *     Only the values are kept: the SDK {@link Parameter} objects (ARN, dates, selector, data type, ...) are dropped.
+ *     <ul>
+ *         <li>keys are kept in a sorted array, lookups go through an open addressing hash table of array positions
+ *         (<code>String.hashCode()</code> is cached by the strings, so a lookup is a hash probe plus one <code>equals</code>)</li>
+ *         <li>equal values share a single String instance</li>
+ *         <li>parameter names, types and versions are kept in a separate side table, only if requested
+ *         (the incremental refresh needs them; plain property resolution does not)</li>
+ *     </ul>
+ * </p>
+ * <p>
+ *     An index can be built from parameters loaded without decryption ("encrypted" index): the SecureString values are
+ *     ciphertexts then. Names of such parameters are kept, and their plaintexts are memoized by the index itself once
+ *     decrypted on demand (see {@link AwsParameterStorePropertySource}), so they live exactly as long as the index.
+ * </p>
+ * <p>
+ *     JSON parameters (see {@link JsonParameters}) are kept as they are; a side table ({@link JsonExpansion}) parses
+ *     them on demand and memoizes the flattened properties, again for the life of the index.
+ * </p>
+ */
+public final class ParameterIndex {
+
+    private static final ParameterIndex EMPTY = of(Collections.emptyMap(), false);
+
+    static final String SECURE_STRING = "SecureString";
+
+    private final String[] keys;
+    private final String[] values;
+    private final int[] slots;          // position + 1; 0 - empty slot
+    private final Metadata metadata;    // null - not retained
+
+    private final boolean encrypted;
+    private final String[] encryptedNames;                  // null - no encrypted values
+    private final AtomicReferenceArray<String> plaintexts;  // null - no encrypted values
+    private final JsonParameters jsonParameters;
+    private final JsonExpansion json;                       // null - no JSON values
+
+    private ParameterIndex(String[] keys, String[] values, Metadata metadata, boolean encrypted, String[] encryptedNames,
+                           JsonParameters jsonParameters, String[] parameterNames) {
+        this.keys = keys;
+        this.values = values;
+        this.metadata = metadata;
+        this.encrypted = encrypted;
+        this.encryptedNames = encryptedNames;
+        this.plaintexts = encryptedNames != null ? new AtomicReferenceArray<>(keys.length) : null;
+        this.slots = new int[tableSize(keys.length)];
+
+        int mask = slots.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            int slot = spread(keys[i].hashCode()) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = i + 1;
+        }
+
+        this.jsonParameters = jsonParameters;
+        this.json = JsonExpansion.of(keys, parameterNames, jsonParameters);
+    }
+
+    public static ParameterIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param parameters   spring property name -> parameter
+     * @param withMetadata retain parameter names, types and versions (see {@link #toParameters()})
+     */
+    public static ParameterIndex of(Map<String, Parameter> parameters, boolean withMetadata) {
+        return of(parameters, withMetadata, false);
+    }
+
+    /**
+     * @param parameters   spring property name -> parameter
+     * @param withMetadata retain parameter names, types and versions (see {@link #toParameters()})
+     * @param encrypted    the parameters were loaded without decryption: SecureString values are ciphertexts
+     */
+    public static ParameterIndex of(Map<String, Parameter> parameters, boolean withMetadata, boolean encrypted) {
+        return of(parameters, withMetadata, encrypted, JsonParameters.none());
+    }
+
+    /**
+     * @param parameters     spring property name -> parameter
+     * @param withMetadata   retain parameter names, types and versions (see {@link #toParameters()})
+     * @param encrypted      the parameters were loaded without decryption: SecureString values are ciphertexts
+     * @param jsonParameters parameters holding JSON documents, expanded into properties on demand
+     */
+    public static ParameterIndex of(Map<String, Parameter> parameters, boolean withMetadata, boolean encrypted,
+                                    JsonParameters jsonParameters) {
+        String[] keys = parameters.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+
+        Map<String, String> dictionary = new HashMap<>();
+        String[] values = new String[keys.length];
+        Metadata metadata = withMetadata ? new Metadata(keys.length) : null;
+        String[] encryptedNames = null;
+        String[] parameterNames = jsonParameters.isEmpty() ? null : new String[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            Parameter p = parameters.get(keys[i]);
+            if (parameterNames != null) parameterNames[i] = p.getName();
+            values[i] = dedup(dictionary, p.getValue());
+            if (encrypted && SECURE_STRING.equals(p.getType())) {
+                if (encryptedNames == null) encryptedNames = new String[keys.length];
+                encryptedNames[i] = p.getName();
+            }
+            if (metadata != null) {
+                metadata.names[i] = p.getName();
+                metadata.types[i] = dedup(dictionary, p.getType());
+                metadata.versions[i] = p.getVersion() != null ? p.getVersion() : -1L;
+            }
+        }
+
+        return new ParameterIndex(keys, values, metadata, encrypted, encryptedNames, jsonParameters, parameterNames);
+    }
+
+    /**
+     * @return the value (a ciphertext for a SecureString of an encrypted index) or <code>null</code> if there is no such key
+     */
+    public String get(String key) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return the keys in sorted order (a copy)
+     */
+    public String[] keys() {
+        return keys.clone();
+    }
+
+    /**
+     * @return the keys in sorted order - the index's own array, always the same instance (must not be modified)
+     */
+    String[] names() {
+        return keys;
+    }
+
+    public boolean hasMetadata() {
+        return metadata != null;
+    }
+
+    /**
+     * @return <code>true</code> if the index was built from parameters loaded without decryption
+     */
+    public boolean isEncrypted() {
+        return encrypted;
+    }
+
+    public JsonParameters getJsonParameters() {
+        return jsonParameters;
+    }
+
+    /**
+     * @return the JSON side table or <code>null</code> if there are no JSON parameters
+     */
+    JsonExpansion json() {
+        return json;
+    }
+
+    String keyAt(int position) {
+        return keys[position];
+    }
+
+    String valueAt(int position) {
+        return values[position];
+    }
+
+    /**
+     * @return the AWS parameter name (known with the metadata side table or for an encrypted value), <code>null</code> otherwise
+     */
+    String nameAt(int position) {
+        if (metadata != null) return metadata.names[position];
+        return encryptedNameAt(position);
+    }
+
+    /**
+     * @return the parameter name if the value at the position is a ciphertext, <code>null</code> otherwise
+     */
+    String encryptedNameAt(int position) {
+        return encryptedNames != null ? encryptedNames[position] : null;
+    }
+
+    String plaintextAt(int position) {
+        return plaintexts.get(position);
+    }
+
+    void setPlaintext(int position, String plaintext) {
+        plaintexts.set(position, plaintext);
+    }
+
+    /**
+     * Rebuilds SDK parameters (name, type, value, version) from the index.
+     * Without the metadata side table only the values are known.
+     */
+    public Map<String, Parameter> toParameters() {
+        Map<String, Parameter> parameters = new LinkedHashMap<>(keys.length * 4 / 3 + 1);
+        for (int i = 0; i < keys.length; i++) {
+            Parameter p = new Parameter().withValue(values[i]);
+            if (metadata != null) {
+                p.setName(metadata.names[i]);
+                p.setType(metadata.types[i]);
+                if (metadata.versions[i] >= 0) p.setVersion(metadata.versions[i]);
+            } else if (encryptedNameAt(i) != null) {
+                p.setName(encryptedNames[i]);
+                p.setType(SECURE_STRING);
+            }
+            parameters.put(keys[i], p);
+        }
+        return parameters;
+    }
+
+    /**
+     * @return keys which were added, removed or have another value in the <code>actual</code> index
+     */
+    public static Set<String> changedKeys(ParameterIndex previous, ParameterIndex actual) {
+        Set<String> changed = new TreeSet<>();
+        for (int i = 0; i < actual.keys.length; i++) {
+            int j = previous.indexOf(actual.keys[i]);
+            if (j < 0 || !Objects.equals(previous.values[j], actual.values[i])) changed.add(actual.keys[i]);
+        }
+        for (String key : previous.keys) {
+            if (!actual.containsKey(key)) changed.add(key);
+        }
+        return changed;
+    }
+
+    int indexOf(String key) {
+        if (key == null) return -1;
+        int mask = slots.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        int position;
+        while ((position = slots[slot]) != 0) {
+            if (keys[position - 1].equals(key)) return position - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static String dedup(Map<String, String> dictionary, String s) {
+        if (s == null) return null;
+        String known = dictionary.putIfAbsent(s, s);
+        return known != null ? known : s;
+    }
+
+    private static int tableSize(int count) {
+        int size = 2;
+        while (size < count * 2) size <<= 1;
+        return size;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ParameterIndex)) return false;
+
+        ParameterIndex that = (ParameterIndex) o;
+        return Arrays.equals(keys, that.keys) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+    }
+
+    private static final class Metadata {
+        final String[] names;
+        final String[] types;
+        final long[] versions;
+
+        Metadata(int size) {
+            names = new String[size];
+            types = new String[size];
+            versions = new long[size];
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+package tga.aws.spring.parameterstore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Property names an application refers to, collected at compile time (<strong>psLoadMode</strong>=<i>manifest</i>,
+ * see {@link tga.aws.spring.parameterstore.manifest.ParameterKeysProcessor}).
+ * <p>
+ *     A manifest holds exact keys (<code>@Value("${app.timeout}")</code> - <code>app.timeout</code>) and prefixes
+ *     (<code>@ConfigurationProperties("app.datasource")</code> - everything below <code>app.datasource</code>: a binding
+ *     needs the whole subtree). Every module of the application writes its own manifest, all of them found in
+ *     the classpath are merged.
+ * </p>
+ * <p>
+ *     For a root the keys become parameter names read with <code>GetParameters</code> (10 names per call, see
+ *     {@link RootKeys}) and the prefixes become paths read with <code>GetParametersByPath</code>; a name below one of
+ *     the paths is not requested by the name. A parameter which is not in the manifest is not loaded at all, so the
+ *     properties read by the frameworks (<code>server.port</code>, <code>logging.*</code>) or through
+ *     <code>Environment.getProperty(...)</code> have to be added with <strong>psManifestKeys</strong>
+ *     and <strong>psManifestPrefixes</strong>.
+ * </p>
+ * <p>
+ *     The manifest format is a line per entry: <code>key app.timeout</code>, <code>prefix app.datasource</code>;
+ *     lines starting with <code>#</code> are comments.
+ * </p>
+ */
+public final class ParameterKeyManifest {
+
+    /** The classpath resource of a module manifest. */
+    public static final String RESOURCE = "META-INF/aws-parameter-store/keys.manifest";
+
+    static final String KEY = "key";
+    static final String PREFIX = "prefix";
+
+    private final Set<String> keys;
+    private final Set<String> prefixes;
+
+    private ParameterKeyManifest(Set<String> keys, Set<String> prefixes) {
+        this.keys = Collections.unmodifiableSet(keys);
+        this.prefixes = Collections.unmodifiableSet(prefixes);
+    }
+
+    /**
+     * @param keys     exact property names
+     * @param prefixes property prefixes (an empty one - the whole roots)
+     */
+    public static ParameterKeyManifest of(Collection<String> keys, Collection<String> prefixes) {
+        Set<String> k = new TreeSet<>();
+        Set<String> p = new TreeSet<>();
+        for (String key : keys) addKey(k, key);
+        for (String prefix : prefixes) p.add(normalize(prefix));
+        return new ParameterKeyManifest(k, p);
+    }
+
+    /**
+     * Reads and merges all the manifests of the classpath.
+     */
+    public static ParameterKeyManifest load(ClassLoader classLoader) {
+        Set<String> keys = new TreeSet<>();
+        Set<String> prefixes = new TreeSet<>();
+        try {
+            Enumeration<URL> resources = classLoader != null
+                    ? classLoader.getResources(RESOURCE)
+                    : ClassLoader.getSystemResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                try (Reader reader = new InputStreamReader(url.openStream(), StandardCharsets.UTF_8)) {
+                    read(reader, keys, prefixes);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("AWS Parameter Store key manifest can't be read", e);
+        }
+        return new ParameterKeyManifest(keys, prefixes);
+    }
+
+    public static ParameterKeyManifest parse(String text) {
+        Set<String> keys = new TreeSet<>();
+        Set<String> prefixes = new TreeSet<>();
+        try {
+            read(new StringReader(text), keys, prefixes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ParameterKeyManifest(keys, prefixes);
+    }
+
+    private static void read(Reader reader, Set<String> keys, Set<String> prefixes) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int space = line.indexOf(' ');
+            String type = space < 0 ? line : line.substring(0, space);
+            String value = space < 0 ? "" : line.substring(space + 1).trim();
+            if (KEY.equals(type)) addKey(keys, value);
+            else if (PREFIX.equals(type)) prefixes.add(normalize(value));
+        }
+    }
+
+    /**
+     * @param keys     comma separated property names to add
+     * @param prefixes comma separated property prefixes to add
+     * @return the manifest with the configured entries
+     */
+    public ParameterKeyManifest with(String keys, String prefixes) {
+        Set<String> k = new TreeSet<>(this.keys);
+        Set<String> p = new TreeSet<>(this.prefixes);
+        for (String key : split(keys)) addKey(k, key);
+        for (String prefix : split(prefixes)) p.add(normalize(prefix));
+        return new ParameterKeyManifest(k, p);
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty() && prefixes.isEmpty();
+    }
+
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+    public Set<String> getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * @param json parameter names holding JSON documents (see {@link JsonParameters}): the documents above the keys
+     *             are requested too
+     */
+    public RootKeys forRoot(String root, Predicate<String> json) {
+        List<String> paths = new ArrayList<>();
+        for (String prefix : prefixes) {
+            String path = toParameterName(root, prefix);
+            if (!isUnder(path, paths)) paths.add(path);  // sorted: a parent path comes before its children
+        }
+
+        Set<String> names = new TreeSet<>();
+        for (String key : keys) {
+            String name = toParameterName(root, key);
+            if (!isUnder(name, paths)) names.add(name);
+            for (String parent = parent(name, root); parent != null; parent = parent(parent, root)) {
+                if (json.test(parent) && !isUnder(parent, paths)) names.add(parent);
+            }
+        }
+        return new RootKeys(root, new ArrayList<>(names), paths);
+    }
+
+    @Override
+    public String toString() {
+        return "{\"keys\": " + keys.size() + ", \"prefixes\": " + prefixes.size() + "}";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ParameterKeyManifest)) return false;
+        ParameterKeyManifest that = (ParameterKeyManifest) o;
+        return keys.equals(that.keys) && prefixes.equals(that.prefixes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * keys.hashCode() + prefixes.hashCode();
+    }
+
+    /**
+     * A list element (<code>app.hosts[0]</code>) can only come from a JSON document, its property is the list one.
+     */
+    private static void addKey(Set<String> keys, String key) {
+        String k = key.trim();
+        int bracket = k.indexOf('[');
+        if (bracket >= 0) k = k.substring(0, bracket);
+        if (!k.isEmpty()) keys.add(k);
+    }
+
+    private static String normalize(String prefix) {
+        String p = prefix.trim();
+        while (p.endsWith(".")) p = p.substring(0, p.length() - 1);
+        return p;
+    }
+
+    private static List<String> split(String list) {
+        List<String> items = new ArrayList<>();
+        if (list == null) return items;
+        for (String item : list.split(",")) {
+            if (!item.trim().isEmpty()) items.add(item.trim());
+        }
+        return items;
+    }
+
+    static String toParameterName(String root, String property) {
+        return property.isEmpty() ? root : root + "/" + property.replace('.', '/');
+    }
+
+    private static String parent(String name, String root) {
+        int slash = name.lastIndexOf('/');
+        return slash > root.length() ? name.substring(0, slash) : null;
+    }
+
+    private static boolean isUnder(String name, List<String> paths) {
+        for (String path : paths) {
+            if (name.equals(path) || name.startsWith(path + "/")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The parameters of a single root folder named by a manifest.
+     */
+    public static final class RootKeys {
+
+        private final String root;
+        private final List<String> names;
+        private final List<String> paths;
+
+        RootKeys(String root, List<String> names, List<String> paths) {
+            this.root = root;
+            this.names = Collections.unmodifiableList(names);
+            this.paths = Collections.unmodifiableList(paths);
+        }
+
+        public String getRoot() {
+            return root;
+        }
+
+        /**
+         * @return parameter names to read by the names, sorted; none of them is below one of the paths
+         */
+        public List<String> getNames() {
+            return names;
+        }
+
+        /**
+         * @return paths to read recursively; they don't overlap
+         */
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        /**
+         * @return <code>true</code> if the parameter of this root is named by the manifest
+         */
+        public boolean matches(String name) {
+            return isUnder(name, paths) || Collections.binarySearch(names, name) >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return "{\"root\": \"" + root + "\", \"names\": " + names.size() + ", \"paths\": " + paths + "}";
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package tga.aws.spring.parameterstore;
+
+/**
+ * Runtime <code>getProperty</code> counters of a property source of the library.
+ */
+public interface ParameterLookupCounters {
+
+    /**
+     * @return lookups of properties the property source has
+     */
+    long getHits();
+
+    /**
+     * @return lookups of properties the property source doesn't have
+     */
+    long getMisses();
+
+}
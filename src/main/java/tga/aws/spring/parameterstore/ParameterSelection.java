@@ -0,0 +1,343 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parts of the root folders to load: include / exclude path patterns and a maximum depth per root
+ * (<strong>psIncludePaths</strong>, <strong>psExcludePaths</strong>, <strong>psMaxDepth</strong>).
+ * <p>
+ *     Patterns are absolute parameter paths and belong to the root they start with:
+ *     <ul>
+ *         <li><code>*</code> - any characters within one path segment, <code>?</code> - one character,
+ *         <code>**</code> - any number of segments</li>
+ *         <li>a pattern covers the subtree of what it matches: <code>/common/db</code> = <code>/common/db/**</code>,
+ *         except a pattern ending with <code>/*</code>: <code>/common/db/*</code> covers only the direct children
+ *         of <code>/common/db</code></li>
+ *         <li>without include patterns the whole root is included; excludes win over includes</li>
+ *         <li>the depth is counted from the root: 1 - the direct children of the root only (0 - no limit)</li>
+ *     </ul>
+ * </p>
+ * <p>
+ *     The selection is applied before the download ({@link RootSelection#plan()}): an include is fetched
+ *     from its literal prefix (<code>/common/db/**</code> - <code>GetParametersByPath /common/db</code>, a one-level
+ *     reading for <code>/common/db/*</code>), a fully excluded path is not requested at all. Where an exclude, the depth
+ *     or a wildcard in the middle cuts a subtree, its names are listed with <code>DescribeParameters</code>
+ *     (50 names per call, no values) and only the selected values are read with <code>GetParameters</code>.
+ * </p>
+ */
+public final class ParameterSelection {
+
+    private static final ParameterSelection NONE = new ParameterSelection(Collections.emptyMap());
+
+    private final Map<String, RootSelection> roots;
+
+    private ParameterSelection(Map<String, RootSelection> roots) {
+        this.roots = roots;
+    }
+
+    public static ParameterSelection none() {
+        return NONE;
+    }
+
+    /**
+     * @param includes comma separated include patterns (empty - everything)
+     * @param excludes comma separated exclude patterns
+     * @param maxDepth the depth for all the roots ("3") or per root ("/common=2,/app=4"), empty - no limit
+     */
+    public static ParameterSelection of(String[] roots, String includes, String excludes, String maxDepth) {
+        List<String> includePatterns = split(includes);
+        List<String> excludePatterns = split(excludes);
+        Map<String, Integer> depths = parseDepths(maxDepth);
+
+        Map<String, RootSelection> selections = new HashMap<>();
+        for (String root : roots) {
+            String r = normalize(root);
+            List<String> rootIncludes = under(r, includePatterns);
+            List<String> rootExcludes = under(r, excludePatterns);
+            int depth = depths.getOrDefault(r, depths.getOrDefault("", 0));
+            if (rootIncludes.isEmpty() && rootExcludes.isEmpty() && depth <= 0) continue;
+
+            selections.put(r, new RootSelection(r, rootIncludes, rootExcludes, depth));
+        }
+        return selections.isEmpty() ? NONE : new ParameterSelection(selections);
+    }
+
+    public boolean isEmpty() {
+        return roots.isEmpty();
+    }
+
+    /**
+     * @return the selection of the root or <code>null</code> if the whole root is loaded
+     */
+    public RootSelection forRoot(String root) {
+        return roots.get(normalize(root));
+    }
+
+    /**
+     * @return <code>false</code> if the parameter is excluded by the selection of a root it belongs to
+     */
+    public boolean matches(String name) {
+        for (RootSelection selection : roots.values()) {
+            if (isUnder(name, selection.root) && !selection.matches(name)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return roots.values().toString();
+    }
+
+    /**
+     * The selection of a single root folder.
+     */
+    public static final class RootSelection {
+
+        private final String root;
+        private final List<String> includes;
+        private final List<Pattern> includePatterns = new ArrayList<>();
+        private final List<String> excludes;
+        private final List<Pattern> excludePatterns = new ArrayList<>();
+        private final int maxDepth;
+
+        RootSelection(String root, List<String> includes, List<String> excludes, int maxDepth) {
+            this.root = root;
+            this.includes = includes;
+            this.excludes = excludes;
+            this.maxDepth = maxDepth;
+            for (String include : includes) includePatterns.add(toRegex(include));
+            for (String exclude : excludes) excludePatterns.add(toRegex(exclude));
+        }
+
+        public boolean matches(String name) {
+            if (maxDepth > 0 && depth(name) > maxDepth) return false;
+            if (!includePatterns.isEmpty() && includePatterns.stream().noneMatch(p -> p.matcher(name).matches())) return false;
+            return excludePatterns.stream().noneMatch(p -> p.matcher(name).matches());
+        }
+
+        /**
+         * @return paths to request from AWS; they don't overlap
+         */
+        public List<FetchPath> plan() {
+            List<FetchPath> limited = new ArrayList<>();
+            if (includes.isEmpty()) {
+                addLimited(limited, new FetchPath(root, true, false));
+            } else {
+                for (String include : includes) {
+                    String prefix = literalPrefix(include);
+                    String rest = include.substring(prefix.length());
+                    if (rest.isEmpty() || rest.equals("/**")) addLimited(limited, new FetchPath(prefix, true, false));
+                    else if (rest.equals("/*")) addLimited(limited, new FetchPath(prefix, false, false));
+                    else addLimited(limited, new FetchPath(prefix, true, true)); // a wildcard in the middle
+                }
+            }
+
+            List<FetchPath> plan = new ArrayList<>();
+            for (FetchPath path : limited) {
+                if (!isCovered(path, limited) && !plan.contains(path)) plan.add(path);
+            }
+            return plan;
+        }
+
+        /**
+         * Applies the depth and the excludes to a path; nothing is added if nothing below the path can be selected.
+         */
+        private void addLimited(List<FetchPath> paths, FetchPath path) {
+            int depth = depth(path.path);
+            boolean recursive = path.recursive;
+            boolean listing = path.listing;
+
+            if (maxDepth > 0) {
+                if (depth >= maxDepth) return;
+                if (depth + 1 == maxDepth) recursive = false;
+                else if (recursive) listing = true;
+            }
+
+            for (int i = 0; i < excludes.size(); i++) {
+                String exclude = excludes.get(i);
+                if (!isOneLevel(exclude) && excludePatterns.get(i).matcher(path.path).matches()) return; // the whole subtree is excluded
+                String prefix = literalPrefix(exclude);
+                if (prefix.equals(path.path) || isUnder(prefix, path.path) || isUnder(path.path, prefix)) listing = true;
+            }
+
+            // a one-level reading is filtered after the download: listing the names would not save anything
+            paths.add(new FetchPath(path.path, recursive, listing && recursive));
+        }
+
+        private boolean isCovered(FetchPath path, List<FetchPath> paths) {
+            for (FetchPath other : paths) {
+                if (!other.recursive || other == path) continue;
+                if (isUnder(path.path, other.path)) return true;
+                if (other.path.equals(path.path) && (!path.recursive || path.listing && !other.listing)) return true;
+            }
+            return false;
+        }
+
+        private int depth(String name) {
+            String relative = root.isEmpty() ? name : name.substring(Math.min(root.length(), name.length()));
+            int depth = 0;
+            for (int i = 0; i < relative.length(); i++) if (relative.charAt(i) == '/') depth++;
+            return depth;
+        }
+
+        public String getRoot() {
+            return root;
+        }
+
+        @Override
+        public String toString() {
+            return "{\"root\": \"" + root + "\", \"includes\": " + includes + ", \"excludes\": " + excludes
+                    + ", \"maxDepth\": " + maxDepth + "}";
+        }
+    }
+
+    /**
+     * A path to request: all the parameters below it (recursive) or its direct children only.
+     * A listed path is read by names (<code>DescribeParameters</code> + <code>GetParameters</code>).
+     */
+    public static final class FetchPath {
+        final String path;
+        final boolean recursive;
+        final boolean listing;
+
+        FetchPath(String path, boolean recursive, boolean listing) {
+            this.path = path;
+            this.recursive = recursive;
+            this.listing = listing;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public boolean isRecursive() {
+            return recursive;
+        }
+
+        public boolean isListing() {
+            return listing;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FetchPath)) return false;
+            FetchPath that = (FetchPath) o;
+            return recursive == that.recursive && listing == that.listing && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + (recursive ? 2 : 0) + (listing ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return path + (recursive ? "/**" : "/*") + (listing ? " (listed)" : "");
+        }
+    }
+
+    /**
+     * @return the pattern as a regular expression which also matches the subtree of everything the pattern matches
+     */
+    static Pattern toRegex(String glob) {
+        return toRegex(glob, !isOneLevel(glob));
+    }
+
+    /**
+     * @param subtree match the subtree of everything the pattern matches as well
+     */
+    static Pattern toRegex(String glob, boolean subtree) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                i++;
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                    i++;
+                    regex.append("(?:.*/)?");
+                } else {
+                    regex.append(".*");
+                }
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(subtree ? regex + "(?:/.*)?" : regex.toString());
+    }
+
+    private static boolean isOneLevel(String glob) {
+        return glob.endsWith("/*") && !glob.endsWith("/**");
+    }
+
+    /**
+     * @return the segments of a pattern before the first one with a wildcard (without a trailing slash)
+     */
+    static String literalPrefix(String glob) {
+        int wildcard = glob.length();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                wildcard = i;
+                break;
+            }
+        }
+        if (wildcard == glob.length()) return glob;
+        return glob.substring(0, Math.max(0, glob.lastIndexOf('/', wildcard)));
+    }
+
+    private static boolean isUnder(String name, String path) {
+        return path.isEmpty() ? name.startsWith("/") : name.startsWith(path + "/");
+    }
+
+    private static List<String> under(String root, List<String> patterns) {
+        List<String> result = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.equals(root) || isUnder(pattern, root)) result.add(pattern);
+        }
+        return result;
+    }
+
+    private static String normalize(String root) {
+        String r = root.trim();
+        while (r.endsWith("/")) r = r.substring(0, r.length() - 1);
+        return r;
+    }
+
+    private static List<String> split(String patterns) {
+        List<String> result = new ArrayList<>();
+        if (patterns == null) return result;
+        for (String pattern : patterns.split(",")) {
+            String p = normalize(pattern);
+            if (!p.isEmpty()) result.add(p);
+        }
+        return result;
+    }
+
+    private static Map<String, Integer> parseDepths(String maxDepth) {
+        Map<String, Integer> depths = new HashMap<>();
+        if (maxDepth == null) return depths;
+        for (String entry : maxDepth.split(",")) {
+            String e = entry.trim();
+            if (e.isEmpty()) continue;
+            int eq = e.lastIndexOf('=');
+            try {
+                if (eq < 0) depths.put("", Integer.parseInt(e));
+                else depths.put(normalize(e.substring(0, eq)), Integer.parseInt(e.substring(eq + 1).trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Wrong maximum depth '" + e + "': a number or root=number expected", ex);
+            }
+        }
+        return depths;
+    }
+
+}
@@ -0,0 +1,139 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits a single root folder into parts (shards) which can be read in parallel.
+ * <p>
+ *     Pages of one <code>GetParametersByPath</code> reading are chained by their <code>NextToken</code>s and can't be
+ *     requested concurrently, but readings of different child paths can. A shard is:
+ *     <ul>
+ *         <li>a recursive reading of a child path of the root</li>
+ *         <li>a one-level reading of a path (its direct parameters only)</li>
+ *         <li>a list of names read with <code>GetParameters</code> (direct parameters of a big flat folder, and parameters
+ *         found outside the configured prefixes)</li>
+ *     </ul>
+ *     The shards of a root never overlap. Discovered shards together cover the whole root; configured prefixes
+ *     cover only their paths, so the reader lists the root alongside and reads the rest by names.
+ * </p>
+ */
+final class ParameterShards {
+
+    private ParameterShards() {
+    }
+
+    /**
+     * Splits a root by the names of its parameters (from a <code>DescribeParameters</code> pass):
+     * a path holding more than <code>maxShardSize</code> parameters is split into its child paths,
+     * its direct parameters are read by names in lists of <code>maxShardSize</code>.
+     */
+    static List<Shard> discover(String root, Collection<String> names, int maxShardSize) {
+        List<Shard> shards = new ArrayList<>();
+        split(root, new ArrayList<>(names), Math.max(1, maxShardSize), shards);
+        return shards;
+    }
+
+    /**
+     * @param prefixes configured child paths of the root; a prefix below another one is skipped
+     * @return a one-level reading of the root and a recursive reading of every prefix; the parameters of the other
+     *         child paths are not covered, they have to be found by a listing of the root (see {@link #isCovered(String, List)})
+     */
+    static List<Shard> of(String root, Collection<String> prefixes) {
+        List<Shard> shards = new ArrayList<>();
+        shards.add(Shard.path(root, false));
+        for (String prefix : prefixes) {
+            if (prefix.equals(root) || !isUnder(prefix, root) || isCovered(prefix, prefixes)) continue;
+            shards.add(Shard.path(prefix, true));
+        }
+        return shards;
+    }
+
+    /**
+     * @return <code>true</code> if the parameter is read by one of the shards
+     */
+    static boolean isCovered(String name, List<Shard> shards) {
+        for (Shard shard : shards) {
+            if (shard.names != null) {
+                if (shard.names.contains(name)) return true;
+            } else if (shard.recursive ? isUnder(name, shard.path) : isDirectChild(name, shard.path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void split(String path, List<String> names, int maxShardSize, List<Shard> shards) {
+        if (names.isEmpty()) return;
+        if (names.size() <= maxShardSize) {
+            shards.add(Shard.path(path, true));
+            return;
+        }
+
+        List<String> direct = new ArrayList<>();
+        Map<String, List<String>> children = new TreeMap<>();
+        for (String name : names) {
+            int slash = name.indexOf('/', path.length() + 1);
+            if (slash < 0) direct.add(name);
+            else children.computeIfAbsent(name.substring(0, slash), k -> new ArrayList<>()).add(name);
+        }
+
+        if (direct.size() <= maxShardSize) {
+            if (!direct.isEmpty()) shards.add(Shard.path(path, false));
+        } else {
+            for (int i = 0; i < direct.size(); i += maxShardSize) {
+                shards.add(Shard.names(path, new ArrayList<>(direct.subList(i, Math.min(direct.size(), i + maxShardSize)))));
+            }
+        }
+        for (Map.Entry<String, List<String>> child : children.entrySet()) {
+            split(child.getKey(), child.getValue(), maxShardSize, shards);
+        }
+    }
+
+    private static boolean isCovered(String prefix, Collection<String> prefixes) {
+        for (String other : prefixes) {
+            if (isUnder(prefix, other)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isUnder(String name, String path) {
+        return name.startsWith(path.endsWith("/") ? path : path + "/");
+    }
+
+    private static boolean isDirectChild(String name, String path) {
+        return isUnder(name, path) && name.indexOf('/', path.length() + 1) < 0;
+    }
+
+    /**
+     * A part of a root: a path (recursive or one-level) or a list of names.
+     */
+    static final class Shard {
+        final String path;
+        final boolean recursive;
+        final List<String> names;
+
+        private Shard(String path, boolean recursive, List<String> names) {
+            this.path = path;
+            this.recursive = recursive;
+            this.names = names;
+        }
+
+        static Shard path(String path, boolean recursive) {
+            return new Shard(path, recursive, null);
+        }
+
+        static Shard names(String path, List<String> names) {
+            return new Shard(path, false, names);
+        }
+
+        @Override
+        public String toString() {
+            return names != null ? path + "/[" + names.size() + " names]" : path + (recursive ? "/**" : "/*");
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The only AWS Parameter Store calls the library needs.
+ * <p>
+ *     Requests and results are the AWS SDK v1 model classes (plain beans), so the reading code doesn't depend on the
+ *     SDK used for the transport:
+ *     <ul>
+ *         <li>{@link SdkV1ParameterStoreClient} - AWS SDK v1 client (Apache HTTP client)</li>
+ *         <li>{@link SdkV2ParameterStoreClient} - AWS SDK v2 async client (AWS CRT HTTP client), a much smaller start footprint</li>
+ *     </ul>
+ *     Every call returns a page as a {@link CompletableFuture}; the blocking variants just wait for it.
+ *     Service errors are reported as {@link com.amazonaws.AmazonServiceException} by all implementations.
+ * </p>
+ */
+public interface ParameterStoreClient extends AutoCloseable {
+
+    CompletableFuture<GetParametersByPathResult> getParametersByPathAsync(GetParametersByPathRequest request);
+
+    CompletableFuture<GetParametersResult> getParametersAsync(GetParametersRequest request);
+
+    CompletableFuture<DescribeParametersResult> describeParametersAsync(DescribeParametersRequest request);
+
+    default GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+        return join(getParametersByPathAsync(request));
+    }
+
+    default GetParametersResult getParameters(GetParametersRequest request) {
+        return join(getParametersAsync(request));
+    }
+
+    default DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+        return join(describeParametersAsync(request));
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Waits for a page and rethrows the original failure (not wrapped into {@link CompletionException}).
+     */
+    static <T> T join(CompletableFuture<T> page) {
+        try {
+            return page.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package tga.aws.spring.parameterstore;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools used by the library for talking to AWS.
+ * <p>
+ *     The library is compiled for Java 8, so virtual threads can't be referenced directly.
+ *     If the running JVM has them (Java 21+), the pool threads are created as virtual threads via reflection,
+ *     otherwise ordinary daemon threads are used. In both cases the pool is bounded by the given number of threads.
+ * </p>
+ */
+final class ParameterStoreExecutors {
+
+    private ParameterStoreExecutors() {
+    }
+
+    static ExecutorService newFixedPool(String namePrefix, int threads) {
+        return Executors.newFixedThreadPool(threads, threadFactory(namePrefix));
+    }
+
+    static ThreadFactory threadFactory(String namePrefix) {
+        ThreadFactory virtual = virtualThreadFactory(namePrefix);
+        if (virtual != null) return virtual;
+
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, namePrefix + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = name.invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package tga.aws.spring.parameterstore;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.logging.DeferredLog;
+
+/**
+ * The library starts too early (in a Spring Boot application components instantiation chain):
+ * at the start moment the logging system (slf4j / logback) is not initialized yet.
+ * <p>
+ *     So the messages are buffered in memory (Spring Boot {@link DeferredLog}) and replayed into the application
+ *     logging system by {@link #replay()} once it's initialized (see {@link ParameterStoreLogReplayListener}).
+ *     Messages logged after the replay go to the logging system directly.
+ * </p>
+ * <p>
+ *     The amount of messages is controlled by the {@link Verbosity} (the <strong>psLogVerbosity</strong> property):
+ *     <ul>
+ *         <li><i>off</i> - nothing is logged</li>
+ *         <li><i>summary</i> (default) - a few lines about the whole load, warnings and errors</li>
+ *         <li><i>roots</i> - plus the numbers of parameters of every root</li>
+ *         <li><i>keys</i> - plus every loaded parameter (secure values are masked)</li>
+ *     </ul>
+ * </p>
+ */
+public class ParameterStoreLog {
+
+    public enum Verbosity { OFF, SUMMARY, ROOTS, KEYS }
+
+    static private final DeferredLog deferred = new DeferredLog();
+
+    static private volatile Log target;
+    static private volatile Verbosity verbosity = Verbosity.SUMMARY;
+
+    public void info(String msg){ if (isEnabled(Verbosity.SUMMARY)) log().info(msg); }
+    public void warn(String msg){ if (isEnabled(Verbosity.SUMMARY)) log().warn(msg); }
+    public void error(String msg){ if (isEnabled(Verbosity.SUMMARY)) log().error(msg); }
+
+    /**
+     * @return <code>true</code> if messages of the given verbosity are logged (allows to skip building of them)
+     */
+    public boolean isEnabled(Verbosity level) {
+        Verbosity current = verbosity;
+        return current != Verbosity.OFF && current.compareTo(level) >= 0;
+    }
+
+    static void setVerbosity(Verbosity verbosity) {
+        ParameterStoreLog.verbosity = verbosity;
+    }
+
+    static Verbosity getVerbosity() {
+        return verbosity;
+    }
+
+    /**
+     * Replays the buffered messages into the logging system and switches to it (once: later calls do nothing).
+     */
+    static void replay() {
+        if (target != null) return;
+        replay(LogFactory.getLog(AwsParameterStoreConnector.class));
+    }
+
+    static void replay(Log log) {
+        synchronized (deferred) {
+            if (target != null) return;
+            deferred.replayTo(log);
+            target = log;
+            deferred.replayTo(log); // messages of other threads logged during the first replay
+        }
+    }
+
+    /**
+     * Switches back to buffering (tests only).
+     */
+    static void reset() {
+        synchronized (deferred) {
+            target = null;
+        }
+    }
+
+    private static Log log() {
+        Log log = target;
+        return log != null ? log : deferred;
+    }
+
+}
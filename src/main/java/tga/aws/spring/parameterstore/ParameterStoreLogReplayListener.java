@@ -0,0 +1,28 @@
+package tga.aws.spring.parameterstore;
+
+import org.springframework.boot.context.event.ApplicationFailedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.SpringApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Replays the messages buffered by {@link ParameterStoreLog} once the logging system is initialized.
+ * <p>
+ *     The listener is registered in <code>META-INF/spring.factories</code>: only the listeners known to
+ *     <code>SpringApplication</code> before its run get the events published before the context refresh
+ *     (a listener added by an environment post processor doesn't get <code>ApplicationPreparedEvent</code>).
+ *     The logging system is initialized on <code>ApplicationEnvironmentPreparedEvent</code>, so the messages are replayed
+ *     on the next event: <code>ApplicationPreparedEvent</code>, or <code>ApplicationFailedEvent</code> if the start fails
+ *     earlier.
+ * </p>
+ */
+public class ParameterStoreLogReplayListener implements ApplicationListener<SpringApplicationEvent> {
+
+    @Override
+    public void onApplicationEvent(SpringApplicationEvent event) {
+        if (event instanceof ApplicationPreparedEvent || event instanceof ApplicationFailedEvent) {
+            ParameterStoreLog.replay();
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records which parameters of an {@link AwsParameterStorePropertySource} have ever been read
+ * (<strong>psUsageWarmupSec</strong>, see {@link ParameterUsageReport}).
+ * <p>
+ *     A bit per index position: the first read of a parameter sets its bit with a CAS, every later read only finds the bit
+ *     set (a single read of the bitset word), so the steady state cost of a lookup is close to zero. The bitset belongs
+ *     to an index; when the index is replaced the read bits are carried over to the new one by the keys.
+ *     A first read racing with the replacement may be missed.
+ * </p>
+ */
+public final class ParameterUsage {
+
+    private volatile Bits bits;
+
+    ParameterUsage(ParameterIndex index) {
+        this.bits = new Bits(index);
+    }
+
+    /**
+     * Marks the parameter at the position of the index as read.
+     */
+    void mark(ParameterIndex current, int position) {
+        Bits b = bits;
+        if (b.index == current) {
+            b.set(position);
+        } else {
+            int p = b.index.indexOf(current.keyAt(position)); // a lookup on a replaced index
+            if (p >= 0) b.set(p);
+        }
+    }
+
+    /**
+     * Moves the tracking to the new index (the read keys stay read).
+     */
+    synchronized void rebind(ParameterIndex index) {
+        Bits previous = bits;
+        if (previous.index == index) return;
+
+        Bits next = new Bits(index);
+        for (int i = 0; i < previous.index.size(); i++) {
+            if (!previous.isSet(i)) continue;
+            int p = index.indexOf(previous.index.keyAt(i));
+            if (p >= 0) next.set(p);
+        }
+        bits = next;
+    }
+
+    public boolean isRead(String key) {
+        Bits b = bits;
+        int p = b.index.indexOf(key);
+        return p >= 0 && b.isSet(p);
+    }
+
+    /**
+     * @return number of the parameters of the current index which have been read
+     */
+    public int getReadCount() {
+        Bits b = bits;
+        int count = 0;
+        for (int i = 0; i < b.words.length(); i++) count += Long.bitCount(b.words.get(i));
+        return count;
+    }
+
+    /**
+     * @param roots the roots in the precedence order
+     * @param seconds the tracked period (for the report header)
+     */
+    public ParameterUsageReport report(String[] roots, long seconds) {
+        Bits b = bits;
+        ParameterIndex index = b.index;
+        String[] names = new String[index.size()];
+        boolean[] read = new boolean[index.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = index.nameAt(i);
+            read[i] = b.isSet(i);
+        }
+        return new ParameterUsageReport(roots, index.names(), names, read, seconds);
+    }
+
+    private static final class Bits {
+        final ParameterIndex index;
+        final AtomicLongArray words;
+
+        Bits(ParameterIndex index) {
+            this.index = index;
+            this.words = new AtomicLongArray((index.size() + 63) >>> 6);
+        }
+
+        boolean isSet(int position) {
+            return (words.get(position >>> 6) & (1L << position)) != 0;
+        }
+
+        void set(int position) {
+            int word = position >>> 6;
+            long bit = 1L << position;
+            long w = words.get(word);
+            while ((w & bit) == 0 && !words.compareAndSet(word, w, w | bit)) w = words.get(word);
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+package tga.aws.spring.parameterstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Loaded but never read parameters (see {@link ParameterUsage}) and the path patterns which would skip them.
+ * <p>
+ *     The unread parameters are folded into the path patterns of {@link ParameterSelection}: a folder none of whose
+ *     parameters was read becomes a single exclude path (it covers the subtree), a folder all of whose parameters
+ *     were read becomes a single include path. {@link #toProperties()} renders the report as a properties file
+ *     with <strong>psExcludePaths</strong> ready for the next deployment (and <strong>psIncludePaths</strong> commented out:
+ *     an include list also drops the parameters added later).
+ * </p>
+ * <p>
+ *     A root none of whose parameters was read is reported as unused rather than excluded - it can be dropped from
+ *     <strong>psRoots</strong>. A parameter with read parameters below it can't be excluded alone (a pattern covers
+ *     its subtree), it stays in the unread list only. Parameters shadowed by an earlier root are not in the index,
+ *     so they are not reported.
+ * </p>
+ */
+public final class ParameterUsageReport {
+
+    private final long seconds;
+    private final int parameters;
+    private final int read;
+    private final Map<String, int[]> roots = new LinkedHashMap<>();    // root -> {loaded, read}
+    private final Map<String, String> unread = new TreeMap<>();        // parameter name -> property name
+    private final List<String> unusedRoots = new ArrayList<>();
+    private final List<String> excludePaths = new ArrayList<>();
+    private final List<String> includePaths = new ArrayList<>();
+
+    /**
+     * @param keys  property names
+     * @param names parameter names of the properties (<code>null</code> - unknown)
+     * @param read  read flags of the properties
+     */
+    ParameterUsageReport(String[] roots, String[] keys, String[] names, boolean[] read, long seconds) {
+        this.seconds = seconds;
+        this.parameters = keys.length;
+
+        Map<String, Map<String, Boolean>> byRoot = new LinkedHashMap<>();
+        for (String root : roots) byRoot.put(root, new TreeMap<>());
+
+        int readCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (read[i]) readCount++;
+            else unread.put(names[i] != null ? names[i] : keys[i], keys[i]);
+            if (names[i] == null) continue;
+            for (String root : roots) {
+                if (names[i].startsWith(root + "/")) {
+                    byRoot.get(root).put(names[i], read[i]);
+                    break;
+                }
+            }
+        }
+        this.read = readCount;
+
+        for (Map.Entry<String, Map<String, Boolean>> root : byRoot.entrySet()) {
+            Map<String, Boolean> entries = root.getValue();
+            int rootRead = count(entries);
+            this.roots.put(root.getKey(), new int[]{entries.size(), rootRead});
+            if (entries.isEmpty()) continue;
+            if (rootRead == 0) {
+                unusedRoots.add(root.getKey());
+                continue;
+            }
+            fold(root.getKey(), entries, true, excludePaths);
+            fold(root.getKey(), entries, false, includePaths);
+        }
+    }
+
+    /**
+     * @param entries parameter name -> read, all of them under the path
+     * @param unread  collect the paths of unread parameters (otherwise - of read ones)
+     */
+    private static void fold(String path, Map<String, Boolean> entries, boolean unread, List<String> paths) {
+        int read = count(entries);
+        int wanted = unread ? entries.size() - read : read;
+        if (wanted == 0) return;
+        if (wanted == entries.size()) {
+            paths.add(path);
+            return;
+        }
+        // a mixed folder: a read parameter at the path itself can only be included with its subtree
+        if (!unread && Boolean.TRUE.equals(entries.get(path))) {
+            paths.add(path);
+            return;
+        }
+
+        Map<String, Map<String, Boolean>> children = new TreeMap<>();
+        for (Map.Entry<String, Boolean> e : entries.entrySet()) {
+            String name = e.getKey();
+            if (name.equals(path)) continue;
+            int slash = name.indexOf('/', path.length() + 1);
+            String child = slash < 0 ? name : name.substring(0, slash);
+            children.computeIfAbsent(child, k -> new TreeMap<>()).put(name, e.getValue());
+        }
+        for (Map.Entry<String, Map<String, Boolean>> child : children.entrySet()) {
+            fold(child.getKey(), child.getValue(), unread, paths);
+        }
+    }
+
+    private static int count(Map<String, Boolean> entries) {
+        int count = 0;
+        for (Boolean read : entries.values()) {
+            if (read) count++;
+        }
+        return count;
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+
+    public int getParameters() {
+        return parameters;
+    }
+
+    public int getReadCount() {
+        return read;
+    }
+
+    /**
+     * @return names of the parameters which were never read, sorted
+     */
+    public List<String> getUnreadNames() {
+        return new ArrayList<>(unread.keySet());
+    }
+
+    /**
+     * @return roots none of whose parameters was read
+     */
+    public List<String> getUnusedRoots() {
+        return Collections.unmodifiableList(unusedRoots);
+    }
+
+    /**
+     * @return <strong>psExcludePaths</strong> patterns skipping the unread parameters
+     */
+    public List<String> getExcludePaths() {
+        return Collections.unmodifiableList(excludePaths);
+    }
+
+    /**
+     * @return <strong>psIncludePaths</strong> patterns loading the read parameters (and possibly some unread ones)
+     */
+    public List<String> getIncludePaths() {
+        return Collections.unmodifiableList(includePaths);
+    }
+
+    /**
+     * @return the report as a properties file: the patterns as properties, everything else as comments
+     */
+    public String toProperties() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# AWS Parameter Store usage: ").append(read).append(" of ").append(parameters)
+          .append(" parameters read in ").append(seconds).append(" s\n");
+        for (Map.Entry<String, int[]> root : roots.entrySet()) {
+            sb.append("#   ").append(root.getKey()).append(": ").append(root.getValue()[1]).append(" of ")
+              .append(root.getValue()[0]).append(" read\n");
+        }
+        if (!unusedRoots.isEmpty()) {
+            sb.append("# unused roots (can be removed from ").append(AwsParameterStoreConnector.pName_Roots).append("): ")
+              .append(String.join(",", unusedRoots)).append('\n');
+        }
+        sb.append(AwsParameterStoreConnector.pName_ExcludePaths).append('=').append(String.join(",", excludePaths)).append('\n');
+        sb.append("# or load only what was read (the parameters added later are skipped too):\n");
+        sb.append('#').append(AwsParameterStoreConnector.pName_IncludePaths).append('=').append(String.join(",", includePaths)).append('\n');
+        sb.append("# never read:\n");
+        for (String name : unread.keySet()) sb.append("#   ").append(name).append('\n');
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{\"seconds\": ").append(seconds)
+                .append(", \"parameters\": ").append(parameters)
+                .append(", \"read\": ").append(read)
+                .append(", \"roots\": {");
+        boolean first = true;
+        for (Map.Entry<String, int[]> root : roots.entrySet()) {
+            if (!first) sb.append(", ");
+            first = false;
+            sb.append('"').append(root.getKey()).append("\": \"").append(root.getValue()[1]).append('/').append(root.getValue()[0]).append('"');
+        }
+        return sb.append("}, \"unusedRoots\": \"").append(unusedRoots)
+                .append("\", \"excludePaths\": ").append(excludePaths.size())
+                .append(", \"includePaths\": ").append(includePaths.size()).append('}').toString();
+    }
+
+}
@@ -0,0 +1,79 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link ParameterStoreClient} over a (blocking) AWS SDK v1 client: the calls are executed in the caller thread.
+ */
+public class SdkV1ParameterStoreClient implements ParameterStoreClient {
+
+    private final AWSSimpleSystemsManagement client;
+
+    public SdkV1ParameterStoreClient(AWSSimpleSystemsManagement client) {
+        this.client = client;
+    }
+
+    public AWSSimpleSystemsManagement getClient() {
+        return client;
+    }
+
+    @Override
+    public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+        return client.getParametersByPath(request);
+    }
+
+    @Override
+    public GetParametersResult getParameters(GetParametersRequest request) {
+        return client.getParameters(request);
+    }
+
+    @Override
+    public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+        return client.describeParameters(request);
+    }
+
+    @Override
+    public CompletableFuture<GetParametersByPathResult> getParametersByPathAsync(GetParametersByPathRequest request) {
+        return completed(() -> getParametersByPath(request));
+    }
+
+    @Override
+    public CompletableFuture<GetParametersResult> getParametersAsync(GetParametersRequest request) {
+        return completed(() -> getParameters(request));
+    }
+
+    @Override
+    public CompletableFuture<DescribeParametersResult> describeParametersAsync(DescribeParametersRequest request) {
+        return completed(() -> describeParameters(request));
+    }
+
+    @Override
+    public void close() {
+        client.shutdown();
+    }
+
+    private static <T> CompletableFuture<T> completed(Supplier<T> call) {
+        CompletableFuture<T> page = new CompletableFuture<>();
+        try {
+            page.complete(call.get());
+        } catch (RuntimeException e) {
+            page.completeExceptionally(e);
+        }
+        return page;
+    }
+
+    @Override
+    public String toString() {
+        return "AWS SDK v1 client";
+    }
+
+}
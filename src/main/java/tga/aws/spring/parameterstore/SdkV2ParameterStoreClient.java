@@ -0,0 +1,227 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilter;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ssm.SsmAsyncClient;
+import software.amazon.awssdk.services.ssm.SsmAsyncClientBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link ParameterStoreClient} over the AWS SDK v2 {@link SsmAsyncClient} with the AWS CRT HTTP client.
+ * <p>
+ *     The v2 client with the CRT transport doesn't load Apache HTTP client and Jackson, so the first call costs
+ *     noticeably less classes (and time) than the v1 one - it matters for the application start, when this library
+ *     makes its calls. The SDK v2 artifacts (<code>software.amazon.awssdk:ssm</code>,
+ *     <code>software.amazon.awssdk:aws-crt-client</code>) are optional dependencies of the library.
+ * </p>
+ * <p>
+ *     Requests and results are converted from/to the v1 model classes, a v1 client execution timeout of a request
+ *     becomes the v2 API call timeout; service errors are converted to {@link AmazonServiceException}.
+ * </p>
+ */
+public class SdkV2ParameterStoreClient implements ParameterStoreClient {
+
+    private final SsmAsyncClient client;
+
+    public SdkV2ParameterStoreClient(SsmAsyncClient client) {
+        this.client = client;
+    }
+
+    /**
+     * A client with the default region and credentials providers chains and the AWS CRT HTTP client.
+     */
+    public static SdkV2ParameterStoreClient defaultClient() {
+        return client(null, true);
+    }
+
+    /**
+     * A client of the region with the default credentials providers chain and the AWS CRT HTTP client.
+     */
+    public static SdkV2ParameterStoreClient regionalClient(String region) {
+        return client(region, true);
+    }
+
+    /**
+     * @param region     the region (<code>null</code> - the default region providers chain)
+     * @param sdkRetries <code>false</code> - the SDK doesn't retry failed calls (the reader's throttler retries them)
+     */
+    public static SdkV2ParameterStoreClient client(String region, boolean sdkRetries) {
+        SsmAsyncClientBuilder builder = SsmAsyncClient.builder().httpClientBuilder(AwsCrtAsyncHttpClient.builder());
+        if (region != null) builder.region(Region.of(region));
+        if (!sdkRetries) builder.overrideConfiguration(ClientOverrideConfiguration.builder().retryPolicy(RetryPolicy.none()).build());
+        return new SdkV2ParameterStoreClient(builder.build());
+    }
+
+    @Override
+    public CompletableFuture<GetParametersByPathResult> getParametersByPathAsync(GetParametersByPathRequest request) {
+        return call(() -> client.getParametersByPath(b -> b
+                        .path(request.getPath())
+                        .recursive(request.getRecursive())
+                        .withDecryption(request.getWithDecryption())
+                        .maxResults(request.getMaxResults())
+                        .nextToken(request.getNextToken())
+                        .parameterFilters(toV2(request.getParameterFilters()))
+                        .overrideConfiguration(overrideConfiguration(request))
+                ),
+                response -> new GetParametersByPathResult()
+                        .withParameters(map(response.parameters(), SdkV2ParameterStoreClient::toV1))
+                        .withNextToken(response.nextToken())
+        );
+    }
+
+    @Override
+    public CompletableFuture<GetParametersResult> getParametersAsync(GetParametersRequest request) {
+        return call(() -> client.getParameters(b -> b
+                        .names(request.getNames())
+                        .withDecryption(request.getWithDecryption())
+                        .overrideConfiguration(overrideConfiguration(request))
+                ),
+                response -> new GetParametersResult()
+                        .withParameters(map(response.parameters(), SdkV2ParameterStoreClient::toV1))
+                        .withInvalidParameters(response.invalidParameters())
+        );
+    }
+
+    @Override
+    public CompletableFuture<DescribeParametersResult> describeParametersAsync(DescribeParametersRequest request) {
+        return call(() -> client.describeParameters(b -> b
+                        .parameterFilters(toV2(request.getParameterFilters()))
+                        .maxResults(request.getMaxResults())
+                        .nextToken(request.getNextToken())
+                        .overrideConfiguration(overrideConfiguration(request))
+                ),
+                response -> new DescribeParametersResult()
+                        .withParameters(map(response.parameters(), SdkV2ParameterStoreClient::toV1))
+                        .withNextToken(response.nextToken())
+        );
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private static <R, T> CompletableFuture<T> call(Supplier<CompletableFuture<R>> request, Function<R, T> converter) {
+        CompletableFuture<R> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(toV1(e));
+            return failed;
+        }
+
+        CompletableFuture<T> page = new CompletableFuture<>();
+        response.whenComplete((r, e) -> {
+            if (e != null) {
+                page.completeExceptionally(toV1(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+            } else {
+                page.complete(converter.apply(r));
+            }
+        });
+        return page;
+    }
+
+    private static AwsRequestOverrideConfiguration overrideConfiguration(AmazonWebServiceRequest request) {
+        Integer timeout = request.getSdkClientExecutionTimeout();
+        if (timeout == null || timeout <= 0) return null;
+        return AwsRequestOverrideConfiguration.builder().apiCallTimeout(Duration.ofMillis(timeout)).build();
+    }
+
+    static Throwable toV1(Throwable e) {
+        if (e instanceof AwsServiceException) {
+            AwsServiceException ase = (AwsServiceException) e;
+            AmazonServiceException v1 = new AmazonServiceException(ase.getMessage(), ase);
+            v1.setStatusCode(ase.statusCode());
+            v1.setRequestId(ase.requestId());
+            if (ase.awsErrorDetails() != null) {
+                v1.setErrorCode(ase.awsErrorDetails().errorCode());
+                v1.setErrorMessage(ase.awsErrorDetails().errorMessage());
+                v1.setServiceName(ase.awsErrorDetails().serviceName());
+            }
+            return v1;
+        }
+        if (e instanceof SdkException) return new com.amazonaws.SdkClientException(e.getMessage(), e);
+        return e;
+    }
+
+    static Parameter toV1(software.amazon.awssdk.services.ssm.model.Parameter p) {
+        return new Parameter()
+                .withName(p.name())
+                .withType(p.typeAsString())
+                .withValue(p.value())
+                .withVersion(p.version())
+                .withSelector(p.selector())
+                .withSourceResult(p.sourceResult())
+                .withLastModifiedDate(toDate(p.lastModifiedDate()))
+                .withARN(p.arn());
+    }
+
+    static ParameterMetadata toV1(software.amazon.awssdk.services.ssm.model.ParameterMetadata m) {
+        return new ParameterMetadata()
+                .withName(m.name())
+                .withType(m.typeAsString())
+                .withKeyId(m.keyId())
+                .withLastModifiedDate(toDate(m.lastModifiedDate()))
+                .withLastModifiedUser(m.lastModifiedUser())
+                .withDescription(m.description())
+                .withAllowedPattern(m.allowedPattern())
+                .withVersion(m.version());
+    }
+
+    private static List<software.amazon.awssdk.services.ssm.model.ParameterStringFilter> toV2(List<ParameterStringFilter> filters) {
+        return filters != null ? map(filters, SdkV2ParameterStoreClient::toV2) : null;
+    }
+
+    static software.amazon.awssdk.services.ssm.model.ParameterStringFilter toV2(ParameterStringFilter f) {
+        return software.amazon.awssdk.services.ssm.model.ParameterStringFilter.builder()
+                .key(f.getKey())
+                .option(f.getOption())
+                .values(f.getValues())
+                .build();
+    }
+
+    private static Date toDate(Instant instant) {
+        return instant != null ? Date.from(instant) : null;
+    }
+
+    private static <S, T> List<T> map(Collection<S> source, Function<S, T> converter) {
+        if (source == null) return Collections.emptyList();
+        List<T> result = new ArrayList<>(source.size());
+        for (S s : source) result.add(converter.apply(s));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "AWS SDK v2 async client (CRT)";
+    }
+
+}
@@ -0,0 +1,66 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import tga.aws.spring.parameterstore.exception.AwsParameterStoreConnectorException;
+
+import java.util.Collections;
+import java.util.function.Supplier;
+
+/**
+ * Decrypts SecureString parameters on demand (parameters loaded without decryption, see {@link ParameterIndex}).
+ * <p>
+ *     Concurrent first reads of secure properties are combined into <code>GetParameters</code> batches
+ *     (see {@link ParameterBatchLoader}); the reader (and its AWS client) is created on the first decryption.
+ * </p>
+ * <p>
+ *     If a value can't be decrypted, {@link AwsParameterStoreConnectorException} is thrown when <code>failOnError</code>
+ *     is set; otherwise the property is reported as missing (and decryption is retried on the next read).
+ * </p>
+ */
+class SecureStringDecryptor {
+
+    static private final ParameterStoreLog logger = new ParameterStoreLog();
+
+    private final Supplier<AwsParameterStoreReader> readerSupplier;
+    private final boolean failOnError;
+
+    private volatile ParameterBatchLoader loader;
+
+    /**
+     * @param readerSupplier creates a reader which decrypts; can return <code>null</code> if AWS is unreachable
+     */
+    SecureStringDecryptor(Supplier<AwsParameterStoreReader> readerSupplier, boolean failOnError) {
+        this.readerSupplier = readerSupplier;
+        this.failOnError = failOnError;
+    }
+
+    /**
+     * @return the plaintext or <code>null</code> if the parameter can't be decrypted
+     */
+    String decrypt(String propertyName, String parameterName) {
+        try {
+            Parameter p = loader().load(Collections.singletonList(parameterName)).get(parameterName);
+            return p != null ? p.getValue() : null;
+        } catch (RuntimeException e) {
+            if (failOnError) throw new AwsParameterStoreConnectorException(propertyName, e);
+            logger.warn("AWS Parameter Store: secure property '" + propertyName + "' is not decrypted (" + e.getClass().getSimpleName() + ")");
+            return null;
+        }
+    }
+
+    private ParameterBatchLoader loader() {
+        ParameterBatchLoader current = loader;
+        if (current == null) {
+            synchronized (this) {
+                current = loader;
+                if (current == null) {
+                    AwsParameterStoreReader reader = readerSupplier.get();
+                    if (reader == null) throw new IllegalStateException("AWS client can't be built");
+                    loader = current = new ParameterBatchLoader(reader);
+                }
+            }
+        }
+        return current;
+    }
+
+}
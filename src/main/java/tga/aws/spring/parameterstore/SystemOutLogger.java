@@ -5,19 +5,16 @@ package tga.aws.spring.parameterstore;
  * At the start moment a logger context (slf4j / logback) will not be initialized yet,
  * so we forced to log our messages in a standard output stream directly.
  *
+ * @deprecated the messages are buffered and replayed into the application logging system now:
+ *             use {@link ParameterStoreLog}; this class delegates to it and will be removed in a next major version
  */
+@Deprecated
 public class SystemOutLogger {
 
-    public void info(String msg){ println("[INFO] ", msg); }
-    public void warn(String msg){ println("[WARN] ", msg); }
-    public void error(String msg){ println("[ERROR] ", msg); }
-
-    private void println(String level, String msg){
-        System.out.print(level);
-        System.out.println(msg);
-    }
-
-
+    private final ParameterStoreLog log = new ParameterStoreLog();
 
+    public void info(String msg){ log.info(msg); }
+    public void warn(String msg){ log.warn(msg); }
+    public void error(String msg){ log.error(msg); }
 
 }
@@ -0,0 +1,25 @@
+package tga.aws.spring.parameterstore.exception;
+
+import java.util.List;
+
+public class AwsParameterStoreTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> completedRoots;
+    private final List<String> timedOutRoots;
+
+    public AwsParameterStoreTimeoutException(long timeoutMillis, List<String> completedRoots, List<String> timedOutRoots) {
+        super(String.format("Reading of AWS Parameter Store did not finish in %d ms: completed roots %s, timed out roots %s",
+                timeoutMillis, completedRoots, timedOutRoots));
+        this.completedRoots = completedRoots;
+        this.timedOutRoots = timedOutRoots;
+    }
+
+    public List<String> getCompletedRoots() {
+        return completedRoots;
+    }
+
+    public List<String> getTimedOutRoots() {
+        return timedOutRoots;
+    }
+}
@@ -0,0 +1,83 @@
+package tga.aws.spring.parameterstore.local;
+
+import tga.aws.spring.parameterstore.ParameterChangeQueue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A change queue backed by a local file of events, one JSON per line (<code>psChangeQueue=file:/path/events.jsonl</code>).
+ * <p>
+ *     Only the lines appended after the queue creation are delivered (the roots are loaded at start anyway).
+ *     The file is checked every 50 ms while a poll waits; a truncated file is read from its beginning again.
+ * </p>
+ */
+public class FileParameterChangeQueue implements ParameterChangeQueue {
+
+    private static final long CHECK_INTERVAL_MILLIS = 50;
+
+    private final File file;
+    private long position;
+
+    public FileParameterChangeQueue(File file) {
+        this.file = file;
+        this.position = file.length();
+    }
+
+    @Override
+    public synchronized List<String> poll(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            List<String> lines = readAppended();
+            long left = deadline - System.currentTimeMillis();
+            if (!lines.isEmpty() || left <= 0) return lines;
+            Thread.sleep(Math.min(CHECK_INTERVAL_MILLIS, left));
+        }
+    }
+
+    /**
+     * @return complete lines appended since the last call
+     */
+    private List<String> readAppended() {
+        List<String> lines = new ArrayList<>();
+        if (!file.exists()) return lines;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length < position) position = 0;
+            if (length == position) return lines;
+
+            raf.seek(position);
+            byte[] bytes = new byte[(int) Math.min(length - position, Integer.MAX_VALUE)];
+            raf.readFully(bytes);
+
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long consumed = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    String s = new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+                    if (!s.isEmpty()) lines.add(s);
+                    line.reset();
+                    consumed = i + 1;
+                } else {
+                    line.write(bytes[i]);
+                }
+            }
+            position += consumed; // an incomplete last line is read again by the next call
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+}
@@ -0,0 +1,47 @@
+package tga.aws.spring.parameterstore.local;
+
+import tga.aws.spring.parameterstore.ParameterChangeQueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * An in-process change queue, e.g. fed by a {@link LocalParameterStore}:
+ * <pre>
+ * InMemoryParameterChangeQueue queue = new InMemoryParameterChangeQueue();
+ * LocalParameterStore store = new LocalParameterStore().withChangeEvents(queue);
+ * </pre>
+ */
+public class InMemoryParameterChangeQueue implements ParameterChangeQueue, Consumer<String> {
+
+    private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+    /**
+     * Adds a message (event JSON) to the queue.
+     */
+    @Override
+    public void accept(String message) {
+        messages.add(message);
+    }
+
+    @Override
+    public List<String> poll(long timeoutMillis) throws InterruptedException {
+        String first = messages.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (first == null) return Collections.emptyList();
+
+        List<String> result = new ArrayList<>();
+        result.add(first);
+        messages.drainTo(result);
+        return result;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+}
@@ -0,0 +1,380 @@
+package tga.aws.spring.parameterstore.local;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simplesystemsmanagement.AbstractAWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.DeleteParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DeleteParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParameterResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import com.amazonaws.services.simplesystemsmanagement.model.PutParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.PutParameterResult;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.FileSystemResource;
+import tga.aws.spring.parameterstore.ParameterChange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A local (in-memory) implementation of the AWS Parameter Store API, for offline runs, tests and load tests.
+ * <p>
+ *     Supported: <code>GetParametersByPath</code> (pagination with NextToken, recursive and one-level reading),
+ *     <code>GetParameters</code>, <code>GetParameter</code>, <code>DescribeParameters</code> (Path / Name filters),
+ *     <code>PutParameter</code>, <code>DeleteParameter</code>. SecureStrings are returned "encrypted"
+ *     (see {@link #encrypt(String)}) unless the decryption is requested. Versions and modification dates are maintained;
+ *     puts and deletes can be published as change events (see {@link #withChangeEvents(Consumer)}).
+ * </p>
+ * <p>
+ *     Injectable faults: latency of every call, a request rate limit and random throttling / internal failures
+ *     (thrown as {@link AmazonServiceException} with the same error codes as AWS).
+ * </p>
+ * <p>
+ *     Seed files (see {@link #load(File)}): <code>.properties</code> or <code>.yml</code>/<code>.yaml</code>.
+ *     A key is a parameter name (<code>/app/db/url</code>) or a dotted path (<code>app.db.url</code> -&gt; <code>/app/db/url</code>).
+ *     A value starting with <code>{secure}</code> becomes a SecureString.
+ * </p>
+ */
+public class LocalParameterStore extends AbstractAWSSimpleSystemsManagement {
+
+    public static final String SECURE_VALUE_PREFIX = "{secure}";
+    public static final String ENCRYPTED_VALUE_PREFIX = "local-kms:";
+
+    private static final int MAX_PAGE_SIZE = 10;
+    private static final int MAX_DESCRIBE_PAGE_SIZE = 50;
+    private static final int MAX_NAMES = 10;
+
+    private final NavigableMap<String, Parameter> parameters = new ConcurrentSkipListMap<>();
+    private final AtomicLong calls = new AtomicLong();
+
+    private volatile long latencyMillis;
+    private volatile double throttleProbability;
+    private volatile double failureProbability;
+    private volatile int rateLimit;
+    private volatile Consumer<String> changeEvents;
+
+    private long rateWindowStart;
+    private int rateWindowCalls;
+
+    public LocalParameterStore() {
+    }
+
+    /**
+     * Creates a store seeded from a <code>.properties</code> or <code>.yml</code> file.
+     */
+    public static LocalParameterStore load(File file) {
+        LocalParameterStore store = new LocalParameterStore();
+        Properties properties = readProperties(file);
+        for (String key : properties.stringPropertyNames()) {
+            String name = key.startsWith("/") ? key : "/" + key.replace('.', '/');
+            String value = properties.getProperty(key);
+            if (value.startsWith(SECURE_VALUE_PREFIX)) {
+                store.put(name, value.substring(SECURE_VALUE_PREFIX.length()), ParameterType.SecureString);
+            } else {
+                store.put(name, value, ParameterType.String);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * @param latencyMillis delay of every call
+     */
+    public LocalParameterStore withLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * @param throttleProbability probability of a <code>ThrottlingException</code> for every call
+     */
+    public LocalParameterStore withThrottleProbability(double throttleProbability) {
+        this.throttleProbability = throttleProbability;
+        return this;
+    }
+
+    /**
+     * @param failureProbability probability of an <code>InternalServerError</code> for every call
+     */
+    public LocalParameterStore withFailureProbability(double failureProbability) {
+        this.failureProbability = failureProbability;
+        return this;
+    }
+
+    /**
+     * @param rateLimit maximum calls per second; exceeding calls fail with <code>ThrottlingException</code> (0 - no limit)
+     */
+    public LocalParameterStore withRateLimit(int rateLimit) {
+        this.rateLimit = rateLimit;
+        return this;
+    }
+
+    /**
+     * @param changeEvents receives a change event (EventBridge JSON, see {@link ParameterChange}) for every put and delete,
+     *                     e.g. an {@link InMemoryParameterChangeQueue}
+     */
+    public LocalParameterStore withChangeEvents(Consumer<String> changeEvents) {
+        this.changeEvents = changeEvents;
+        return this;
+    }
+
+    /**
+     * Adds or overwrites a parameter (the version is incremented).
+     */
+    public LocalParameterStore put(String name, String value, ParameterType type) {
+        Parameter stored = parameters.compute(name, (n, previous) -> new Parameter()
+                .withName(n)
+                .withType(type.toString())
+                .withValue(value)
+                .withVersion(previous != null ? previous.getVersion() + 1 : 1L)
+                .withLastModifiedDate(new Date())
+                .withARN("arn:aws:ssm:local:000000000000:parameter" + n)
+                .withDataType("text"));
+        publish(name, stored.getVersion() == 1L ? "Create" : "Update");
+        return this;
+    }
+
+    /**
+     * @return number of API calls served (including failed ones)
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    public int size() {
+        return parameters.size();
+    }
+
+    @Override
+    public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+        beforeCall();
+
+        int pageSize = pageSize(request.getMaxResults(), MAX_PAGE_SIZE);
+        boolean recursive = Boolean.TRUE.equals(request.getRecursive());
+        boolean decrypt = Boolean.TRUE.equals(request.getWithDecryption());
+
+        List<Parameter> page = new ArrayList<>(pageSize);
+        String last = null;
+        for (Parameter p : under(request.getPath(), request.getNextToken())) {
+            if (!recursive && isNested(request.getPath(), p.getName())) continue;
+            if (page.size() == pageSize) {
+                return new GetParametersByPathResult().withParameters(page).withNextToken(last);
+            }
+            page.add(view(p, decrypt));
+            last = p.getName();
+        }
+        return new GetParametersByPathResult().withParameters(page);
+    }
+
+    @Override
+    public GetParametersResult getParameters(GetParametersRequest request) {
+        beforeCall();
+
+        List<String> names = request.getNames();
+        if (names == null || names.isEmpty() || names.size() > MAX_NAMES) {
+            throw error("ValidationException", 400, "1 to " + MAX_NAMES + " names are allowed");
+        }
+
+        boolean decrypt = Boolean.TRUE.equals(request.getWithDecryption());
+        List<Parameter> found = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        for (String name : names) {
+            Parameter p = parameters.get(name);
+            if (p != null) found.add(view(p, decrypt));
+            else invalid.add(name);
+        }
+        return new GetParametersResult().withParameters(found).withInvalidParameters(invalid);
+    }
+
+    @Override
+    public GetParameterResult getParameter(GetParameterRequest request) {
+        beforeCall();
+
+        Parameter p = parameters.get(request.getName());
+        if (p == null) throw error("ParameterNotFound", 400, "Parameter " + request.getName() + " not found.");
+        return new GetParameterResult().withParameter(view(p, Boolean.TRUE.equals(request.getWithDecryption())));
+    }
+
+    @Override
+    public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+        beforeCall();
+
+        int pageSize = pageSize(request.getMaxResults(), MAX_DESCRIBE_PAGE_SIZE);
+        String path = "/";
+        boolean recursive = true;
+        String namePrefix = null;
+        if (request.getParameterFilters() != null) {
+            for (ParameterStringFilter f : request.getParameterFilters()) {
+                if ("Path".equals(f.getKey())) {
+                    path = f.getValues().get(0);
+                    recursive = !"OneLevel".equals(f.getOption());
+                } else if ("Name".equals(f.getKey()) && "BeginsWith".equals(f.getOption())) {
+                    namePrefix = f.getValues().get(0);
+                }
+            }
+        }
+
+        List<ParameterMetadata> page = new ArrayList<>(pageSize);
+        String last = null;
+        for (Parameter p : under("/".equals(path) ? "" : path, request.getNextToken())) {
+            if (!recursive && isNested(path, p.getName())) continue;
+            if (namePrefix != null && !p.getName().startsWith(namePrefix)) continue;
+            if (page.size() == pageSize) {
+                return new DescribeParametersResult().withParameters(page).withNextToken(last);
+            }
+            page.add(new ParameterMetadata()
+                    .withName(p.getName())
+                    .withType(p.getType())
+                    .withVersion(p.getVersion())
+                    .withLastModifiedDate(p.getLastModifiedDate()));
+            last = p.getName();
+        }
+        return new DescribeParametersResult().withParameters(page);
+    }
+
+    @Override
+    public PutParameterResult putParameter(PutParameterRequest request) {
+        beforeCall();
+
+        if (!Boolean.TRUE.equals(request.getOverwrite()) && parameters.containsKey(request.getName())) {
+            throw error("ParameterAlreadyExists", 400, "The parameter already exists.");
+        }
+        put(request.getName(), request.getValue(), ParameterType.fromValue(request.getType()));
+        return new PutParameterResult().withVersion(parameters.get(request.getName()).getVersion());
+    }
+
+    @Override
+    public DeleteParameterResult deleteParameter(DeleteParameterRequest request) {
+        beforeCall();
+
+        if (parameters.remove(request.getName()) == null) {
+            throw error("ParameterNotFound", 400, "Parameter " + request.getName() + " not found.");
+        }
+        publish(request.getName(), "Delete");
+        return new DeleteParameterResult();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    /**
+     * The "ciphertext" of a SecureString returned without decryption.
+     */
+    public static String encrypt(String value) {
+        return ENCRYPTED_VALUE_PREFIX + Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void publish(String name, String operation) {
+        Consumer<String> events = changeEvents;
+        if (events != null) events.accept(new ParameterChange(name, operation).toEvent());
+    }
+
+    private Iterable<Parameter> under(String path, String nextToken) {
+        String prefix = path.endsWith("/") ? path : path + "/";
+        NavigableMap<String, Parameter> tail = nextToken != null
+                ? parameters.tailMap(nextToken, false)
+                : parameters.tailMap(prefix, true);
+        return tail.headMap(prefix + Character.MAX_VALUE, false).values();
+    }
+
+    private static boolean isNested(String path, String name) {
+        int start = path.endsWith("/") ? path.length() : path.length() + 1;
+        return name.indexOf('/', start) >= 0;
+    }
+
+    private static Parameter view(Parameter p, boolean decrypt) {
+        Parameter copy = p.clone();
+        if (!decrypt && ParameterType.SecureString.toString().equals(p.getType())) copy.setValue(encrypt(p.getValue()));
+        return copy;
+    }
+
+    private static int pageSize(Integer requested, int max) {
+        if (requested == null) return max;
+        if (requested < 1 || requested > max) throw error("ValidationException", 400, "MaxResults must be between 1 and " + max);
+        return requested;
+    }
+
+    private void beforeCall() {
+        calls.incrementAndGet();
+
+        long latency = latencyMillis;
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw error("RequestCanceled", 500, "Interrupted");
+            }
+        }
+
+        if (rateLimit > 0 && !withinRateLimit()) throw error("ThrottlingException", 400, "Rate exceeded");
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (throttleProbability > 0 && random.nextDouble() < throttleProbability) throw error("ThrottlingException", 400, "Rate exceeded");
+        if (failureProbability > 0 && random.nextDouble() < failureProbability) throw error("InternalServerError", 500, "Internal failure");
+    }
+
+    private synchronized boolean withinRateLimit() {
+        long now = System.nanoTime();
+        if (now - rateWindowStart >= 1_000_000_000L) {
+            rateWindowStart = now;
+            rateWindowCalls = 0;
+        }
+        return ++rateWindowCalls <= rateLimit;
+    }
+
+    private static AmazonServiceException error(String code, int status, String message) {
+        AmazonServiceException e = new AmazonServiceException(message);
+        e.setErrorCode(code);
+        e.setStatusCode(status);
+        e.setServiceName("AWSSimpleSystemsManagement");
+        return e;
+    }
+
+    private static Properties readProperties(File file) {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".yml") || name.endsWith(".yaml")) {
+            YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+            yaml.setResources(new FileSystemResource(file));
+            return yaml.getObject();
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the local parameter store file " + file, e);
+        }
+        return properties;
+    }
+
+    @Override
+    public String toString() {
+        return "LocalParameterStore{" + parameters.size() + " parameters}";
+    }
+
+}
@@ -0,0 +1,181 @@
+package tga.aws.spring.parameterstore.manifest;
+
+import tga.aws.spring.parameterstore.ParameterKeyManifest;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Collects the property names referred to by <code>@Value</code> placeholders and the prefixes of
+ * <code>@ConfigurationProperties</code> into {@link ParameterKeyManifest#RESOURCE} of the compiled module.
+ * <p>
+ *     The processor is registered in <code>META-INF/services</code> of the starter jar, so javac runs it for every module
+ *     having the starter in its compile classpath (JDK 23+ needs <code>-proc:full</code> or the starter in
+ *     <code>annotationProcessorPaths</code>). The annotations are matched by their names: the processor depends
+ *     neither on Spring nor on AWS.
+ * </p>
+ * <p>
+ *     Every key of a placeholder is collected, including the keys of the default values
+ *     (<code>${a:${b:1}}</code> - <code>a</code>, <code>b</code>) and the placeholders inside SpEL expressions.
+ *     A key built from another placeholder (<code>${${env}.url}</code>) can't be known at compile time and is skipped
+ *     with a warning.
+ * </p>
+ */
+public class ParameterKeysProcessor extends AbstractProcessor {
+
+    static final String VALUE = "org.springframework.beans.factory.annotation.Value";
+    static final String CONFIGURATION_PROPERTIES = "org.springframework.boot.context.properties.ConfigurationProperties";
+
+    private final Set<String> keys = new TreeSet<>();
+    private final Set<String> prefixes = new TreeSet<>();
+    private boolean written;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(VALUE, CONFIGURATION_PROPERTIES));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            String type = annotation.getQualifiedName().toString();
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+                    if (!type.equals(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString())) continue;
+                    if (VALUE.equals(type)) collectKeys(element, attribute(mirror, "value"));
+                    else collectPrefix(mirror);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !written && !(keys.isEmpty() && prefixes.isEmpty())) {
+            written = true;
+            write();
+        }
+        return false; // the annotations belong to Spring, other processors may need them
+    }
+
+    private void collectKeys(Element element, String expression) {
+        if (expression == null) return;
+        for (String key : placeholderKeys(expression)) {
+            if (key.contains("${")) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "AWS Parameter Store key manifest: the key of '" + expression + "' is not constant, add it to psManifestKeys", element);
+            } else {
+                keys.add(key);
+            }
+        }
+    }
+
+    private void collectPrefix(AnnotationMirror mirror) {
+        String prefix = attribute(mirror, "prefix");
+        if (prefix == null || prefix.isEmpty()) prefix = attribute(mirror, "value");
+        prefixes.add(prefix != null ? prefix : "");
+    }
+
+    private static String attribute(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals(name)) {
+                Object value = e.getValue().getValue();
+                return value instanceof String ? (String) value : null;
+            }
+        }
+        return null;
+    }
+
+    private void write() {
+        Filer filer = processingEnv.getFiler();
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", ParameterKeyManifest.RESOURCE);
+            try (Writer writer = file.openWriter()) {
+                writer.write(render(keys, prefixes));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "AWS Parameter Store key manifest can't be written: " + e.getMessage());
+        }
+    }
+
+    static String render(Set<String> keys, Set<String> prefixes) {
+        StringBuilder sb = new StringBuilder("# AWS Parameter Store keys of @Value and @ConfigurationProperties\n");
+        for (String key : keys) sb.append("key ").append(key).append('\n');
+        for (String prefix : prefixes) sb.append("prefix ").append(prefix).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * @return the keys of all the placeholders of the expression, the nested ones too
+     */
+    static Set<String> placeholderKeys(String expression) {
+        Set<String> keys = new TreeSet<>();
+        collect(expression, keys);
+        return keys;
+    }
+
+    private static void collect(String text, Set<String> keys) {
+        int start = text.indexOf("${");
+        while (start >= 0) {
+            int end = closing(text, start + 2);
+            if (end < 0) return; // not a placeholder
+
+            String content = text.substring(start + 2, end);
+            int colon = separator(content);
+            String key = (colon < 0 ? content : content.substring(0, colon)).trim();
+            if (!key.isEmpty()) keys.add(key);
+            if (key.contains("${")) collect(key, keys);
+            if (colon >= 0) collect(content.substring(colon + 1), keys);
+
+            start = text.indexOf("${", end + 1);
+        }
+    }
+
+    /**
+     * @return position of the brace closing the placeholder content starting at <code>from</code>, -1 if none
+     */
+    private static int closing(String text, int from) {
+        int depth = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{') depth++;
+            else if (c == '}' && depth-- == 0) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return position of the key / default value separator outside nested placeholders, -1 if none
+     */
+    private static int separator(String content) {
+        int depth = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '{') depth++;
+            else if (c == '}') depth--;
+            else if (c == ':' && depth == 0) return i;
+        }
+        return -1;
+    }
+
+}
@@ -1,8 +1,26 @@
 package tga.aws.spring.parameterstore;
 
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 /**
  * Created by grigory@clearscale.net on 10/9/2018.
@@ -10,6 +28,78 @@ import org.mockito.junit.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class AWSParameterStoreClientBuilderTests {
 
+    private static final String SDK_V2_CLIENT = "software.amazon.awssdk.services.ssm.SsmAsyncClient";
+    private static final String CRT_CLIENT = "software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient";
+
+    @Mock private AWSSimpleSystemsManagement awsClientMock;
+
+    @Test
+    public void sdkV1ShouldBeUsedIfTheCrtClientIsMissing() {
+        AWSParameterStoreClientBuilder builder = spy(new AWSParameterStoreClientBuilder());
+        doReturn(true).when(builder).isPresent(SDK_V2_CLIENT);
+        doReturn(false).when(builder).isPresent(CRT_CLIENT);
+        doReturn(awsClientMock).when(builder).getClient(null, true);
+
+        assertThat(builder.getClient(new StandardEnvironment()), instanceOf(SdkV1ParameterStoreClient.class));
+        verify(builder, never()).getSdkV2Client(any(), anyBoolean());
+    }
+
+    @Test
+    public void sdkV1ShouldBeUsedIfTheSdkV2ClientCantBeBuilt() {
+        AWSParameterStoreClientBuilder builder = spy(new AWSParameterStoreClientBuilder());
+        doReturn(true).when(builder).isPresent(anyString());
+        doReturn(null).when(builder).getSdkV2Client(null, true);
+        doReturn(awsClientMock).when(builder).getClient(null, true);
+
+        assertThat(builder.getClient(new StandardEnvironment()), instanceOf(SdkV1ParameterStoreClient.class));
+        verify(builder).getSdkV2Client(null, true);
+    }
+
+    @Test
+    public void sdkRetriesShouldBeDisabledWithTheThrottler() {
+        AWSParameterStoreClientBuilder builder = spy(new AWSParameterStoreClientBuilder());
+        doReturn(false).when(builder).isPresent(CRT_CLIENT);
+        doReturn(awsClientMock).when(builder).getClient(null, false);
+
+        assertThat(builder.getClient(settings(AwsParameterStoreConnector.pName_RateLimit, "20")), instanceOf(SdkV1ParameterStoreClient.class));
+        verify(builder).getClient();
+        verify(builder).getClient(null, false);
+    }
+
+    @Test
+    public void overriddenSdkV1ClientShouldBeUsed() {
+        AWSParameterStoreClientBuilder builder = new AWSParameterStoreClientBuilder() {
+            @Override
+            public AWSSimpleSystemsManagement getClient() {
+                return awsClientMock;
+            }
+
+            @Override
+            boolean isPresent(String className) {
+                return false;
+            }
+        };
+
+        ParameterStoreClient v1 = builder.getClient(settings(AWSParameterStoreClientBuilder.pName_Client, "aws-v1"));
+        ParameterStoreClient fallback = builder.getClient(new StandardEnvironment());
+
+        assertThat(((SdkV1ParameterStoreClient) v1).getClient(), sameInstance(awsClientMock));
+        assertThat(((SdkV1ParameterStoreClient) fallback).getClient(), sameInstance(awsClientMock));
+    }
+
+    @Test
+    public void throttlerShouldBeOnWithRateLimitOrRetries() {
+        assertThat(AWSParameterStoreClientBuilder.isThrottled(settings(AwsParameterStoreConnector.pName_RateLimit, "0")), is(false));
+        assertThat(AWSParameterStoreClientBuilder.isThrottled(settings(AwsParameterStoreConnector.pName_RateLimit, "5")), is(true));
+        assertThat(AWSParameterStoreClientBuilder.isThrottled(settings(AwsParameterStoreConnector.pName_MaxRetries, "3")), is(true));
+    }
+
+    private static StandardEnvironment settings(String name, String value) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", Collections.<String, Object>singletonMap(name, value)));
+        return environment;
+    }
+
     @Test
     public void clientShouldBeNullIfAnyErrorRisedInAwsBackgroundLibrary() {
         //todo: implement
@@ -0,0 +1,95 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.AmazonServiceException;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AdaptiveThrottlerTest {
+
+    @Test
+    public void throttledCallsShouldBeRetried() {
+        AdaptiveThrottler throttler = new AdaptiveThrottler(100, 5, 1, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = throttler.call(() -> {
+            if (attempts.incrementAndGet() <= 2) throw throttling();
+            return "ok";
+        });
+
+        assertThat(result, is("ok"));
+        assertThat(throttler.getCalls(), is(3L));
+        assertThat(throttler.getRetries(), is(2L));
+        assertThat(throttler.getThrottles(), is(2L));
+        assertThat(throttler.getRate(), lessThan(100d));
+    }
+
+    @Test
+    public void throttlingShouldBeRethrownWhenRetriesAreExhausted() {
+        AdaptiveThrottler throttler = new AdaptiveThrottler(0, 2, 1, 5);
+
+        try {
+            throttler.call(() -> { throw throttling(); });
+            fail("ThrottlingException expected");
+        } catch (AmazonServiceException e) {
+            assertThat(e.getErrorCode(), is("ThrottlingException"));
+        }
+        assertThat(throttler.getCalls(), is(3L));
+    }
+
+    @Test
+    public void clientErrorsShouldNotBeRetried() {
+        AdaptiveThrottler throttler = new AdaptiveThrottler(0, 5, 1, 5);
+        AmazonServiceException accessDenied = new AmazonServiceException("denied");
+        accessDenied.setErrorCode("AccessDeniedException");
+        accessDenied.setStatusCode(400);
+
+        try {
+            throttler.call(() -> { throw accessDenied; });
+            fail("AccessDeniedException expected");
+        } catch (AmazonServiceException e) {
+            assertThat(throttler.getRetries(), is(0L));
+        }
+    }
+
+    @Test
+    public void rateShouldRecoverAfterSuccessfulCalls() {
+        AdaptiveThrottler throttler = new AdaptiveThrottler(1000, 1, 1, 1);
+        AtomicInteger attempts = new AtomicInteger();
+        throttler.call(() -> {
+            if (attempts.incrementAndGet() == 1) throw throttling();
+            return "ok";
+        });
+        double throttledRate = throttler.getRate();
+
+        for (int i = 0; i < 10; i++) throttler.call(() -> "ok");
+
+        assertThat(throttler.getRate(), greaterThanOrEqualTo(throttledRate + 5));
+    }
+
+    @Test
+    public void callsShouldBeLimitedByRate() {
+        AdaptiveThrottler throttler = new AdaptiveThrottler(20, 0, 1, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) throttler.call(() -> "ok");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // the first call uses the initial token, the next 10 calls need 10 / 20 seconds
+        assertThat(elapsedMillis, greaterThanOrEqualTo(450L));
+    }
+
+    private static AmazonServiceException throttling() {
+        AmazonServiceException e = new AmazonServiceException("Rate exceeded");
+        e.setErrorCode("ThrottlingException");
+        e.setStatusCode(400);
+        return e;
+    }
+
+}
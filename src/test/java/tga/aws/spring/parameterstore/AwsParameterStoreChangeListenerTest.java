@@ -0,0 +1,133 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.DeleteParameterRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import tga.aws.spring.parameterstore.local.InMemoryParameterChangeQueue;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AwsParameterStoreChangeListenerTest {
+
+    private static final String[] ROOTS = {"/app", "/common"};
+
+    @Mock private ApplicationEventPublisher publisherMock;
+
+    private InMemoryParameterChangeQueue queue;
+    private LocalParameterStore store;
+    private AwsParameterStorePropertySource propertySource;
+    private AwsParameterStoreChangeListener listener;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        queue = new InMemoryParameterChangeQueue();
+        store = new LocalParameterStore().withChangeEvents(queue);
+        store.put("/app/db/url", "app-url", ParameterType.String);
+        store.put("/common/db/url", "common-url", ParameterType.String);
+        store.put("/common/port", "80", ParameterType.String);
+
+        AwsParameterStoreReader reader = new AwsParameterStoreReader(store, 1);
+        propertySource = new AwsParameterStorePropertySource("AwsParameterStorePropertySource", reader.readAllProps(ROOTS));
+        queue.poll(0); // the seeding events
+
+        listener = new AwsParameterStoreChangeListener(propertySource, ROOTS, () -> reader, queue);
+    }
+
+    @After
+    public void tearDown() {
+        listener.stop();
+    }
+
+    @Test
+    public void changedParametersShouldBeRefetched() {
+        store.put("/common/port", "8080", ParameterType.String);
+        long calls = store.getCallCount();
+
+        assertThat(listener.invalidate(Collections.singletonList("/common/port")), contains("port"));
+        assertThat(propertySource.getProperty("port"), is("8080"));
+        assertThat(store.getCallCount() - calls, is(1L));
+    }
+
+    @Test
+    public void changeShadowedByAnEarlierRootShouldChangeNothing() {
+        store.put("/common/db/url", "changed", ParameterType.String);
+
+        assertThat(listener.invalidate(Collections.singletonList("/common/db/url")), is(empty()));
+        assertThat(propertySource.getProperty("db.url"), is("app-url"));
+    }
+
+    @Test
+    public void deletedParameterShouldUncoverTheLaterRoot() {
+        store.deleteParameter(new DeleteParameterRequest().withName("/app/db/url"));
+        store.deleteParameter(new DeleteParameterRequest().withName("/common/port"));
+
+        listener.invalidate(Arrays.asList("/app/db/url", "/common/port"));
+
+        assertThat(propertySource.getProperty("db.url"), is("common-url"));
+        assertThat(propertySource.getProperty("port"), is(nullValue()));
+    }
+
+    @Test
+    public void namesOutsideTheRootsShouldCostNothing() {
+        long calls = store.getCallCount();
+
+        assertThat(listener.invalidate(Collections.singletonList("/other/port")), is(empty()));
+        assertThat(store.getCallCount(), is(calls));
+    }
+
+    @Test
+    public void queuedEventsShouldBeAppliedAndPublished() {
+        listener.start(publisherMock);
+
+        store.put("/app/port", "9090", ParameterType.String);
+
+        ArgumentCaptor<AwsParameterStoreChangeEvent> event = ArgumentCaptor.forClass(AwsParameterStoreChangeEvent.class);
+        verify(publisherMock, timeout(2000)).publishEvent(event.capture());
+        assertThat(event.getValue().getChangedKeys(), contains("port"));
+        assertThat(propertySource.getProperty("port"), is("9090"));
+    }
+
+    @Test
+    public void otherMessagesShouldBeSkipped() {
+        listener.start(publisherMock);
+
+        queue.accept("{\"detail-type\": \"EC2 Instance State-change Notification\", \"detail\": {}}");
+        queue.accept("not a json");
+
+        verify(publisherMock, after(300).never()).publishEvent(any(AwsParameterStoreChangeEvent.class));
+    }
+
+    @Test
+    public void eventBridgeEventShouldBeParsed() {
+        ParameterChange change = ParameterChange.parse("{\"version\": \"0\", \"id\": \"6a7e4feb\", "
+                + "\"detail-type\": \"Parameter Store Change\", \"source\": \"aws.ssm\", \"account\": \"123456789012\", "
+                + "\"time\": \"2024-05-02T15:41:10Z\", \"region\": \"us-east-1\", "
+                + "\"resources\": [\"arn:aws:ssm:us-east-1:123456789012:parameter/app/db/url\"], "
+                + "\"detail\": {\"operation\": \"Delete\", \"name\": \"/app/db/url\", \"type\": \"String\", \"description\": \"\"}}");
+
+        assertThat(change.getName(), is("/app/db/url"));
+        assertThat(change.getOperation(), is("Delete"));
+        assertThat(ParameterChange.parse(new ParameterChange("/a/b", "Update").toEvent()).getName(), is("/a/b"));
+    }
+
+}
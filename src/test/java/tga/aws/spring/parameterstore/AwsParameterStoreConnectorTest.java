@@ -4,8 +4,11 @@ import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement
 import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
 import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
 import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.AmazonServiceException;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
@@ -13,16 +16,22 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertyResolver;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.amazonaws.SDKGlobalConfiguration.*;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 import static tga.aws.spring.parameterstore.AwsParameterStoreConnector.pName_AcceptedSpringProfiles;
 import static tga.aws.spring.parameterstore.AwsParameterStoreConnector.pName_Roots;
+import static tga.aws.spring.parameterstore.AwsParameterStoreConnector.pName_SnapshotFile;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AwsParameterStoreConnectorTest
@@ -33,13 +42,15 @@ public class AwsParameterStoreConnectorTest
     @Mock private AWSParameterStoreClientBuilder clientBuilderMock;
     @Mock private AWSSimpleSystemsManagement awsClientMock;
 
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
     private AwsParameterStoreConnector awsParameterStoreConnector = new AwsParameterStoreConnector();
 
     @Before
     public void setUp() {
-        AwsParameterStoreConnector.initialized = false;
+        AwsParameterStoreConnector.registry.clear();
         awsParameterStoreConnector.setAwsParameterStoreClientBuilder( clientBuilderMock );
-        when(clientBuilderMock.getClient()).thenReturn(awsClientMock);
+        when(clientBuilderMock.getClient(any(PropertyResolver.class))).thenReturn(new SdkV1ParameterStoreClient(awsClientMock));
 
         when(envMock.acceptsProfiles(any(String.class))).thenAnswer( invocation -> {
             String profile = (String)(invocation.getArguments()[0]);
@@ -63,15 +74,6 @@ public class AwsParameterStoreConnectorTest
 
     private GetParametersByPathResult setupParameterStoreResponse(String folder, String... p){
 
-        GetParametersByPathResult checkMock = mock(GetParametersByPathResult.class);
-        when(awsClientMock.getParametersByPath(
-                new GetParametersByPathRequest()
-                        .withMaxResults(1)
-                        .withPath(folder)
-                        .withWithDecryption(true)
-                        .withRecursive(true)
-        )).thenReturn(checkMock);
-
         GetParametersByPathResult respMock = mock(GetParametersByPathResult.class);
         when(awsClientMock.getParametersByPath(
                 new GetParametersByPathRequest()
@@ -115,6 +117,16 @@ public class AwsParameterStoreConnectorTest
         verify(mutablePropertySourcesMock, times(1)).addFirst(any(AwsParameterStorePropertySource.class));
     }
 
+    @Test
+    public void everyRootShouldBeRequestedOnlyOnce() {
+        activateSpringProfiles("ANY");
+        setupStandardResponses();
+
+        awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
+
+        verify(awsClientMock, times(2)).getParametersByPath(any(GetParametersByPathRequest.class));
+    }
+
     @Test
     public void testParameterStoreIsDisabledByDefault() {
         activateSpringProfiles("");
@@ -147,6 +159,7 @@ public class AwsParameterStoreConnectorTest
     public void testParameterStorePropertySourceEnvironmentPostProcessorCantBeCalledTwice() {
         activateSpringProfiles("ANY");
         setupStandardResponses();
+        when(mutablePropertySourcesMock.contains(AwsParameterStoreConnector.PROPERTY_SOURCE_NAME)).thenReturn(false, true);
 
         awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
         awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
@@ -154,6 +167,25 @@ public class AwsParameterStoreConnectorTest
         verify(mutablePropertySourcesMock, times(1)).addFirst(any(AwsParameterStorePropertySource.class));
     }
 
+    @Test
+    public void anotherEnvironmentShouldReuseLoadedParameters() {
+        activateSpringProfiles("ANY");
+        setupStandardResponses();
+
+        ArgumentCaptor<AwsParameterStorePropertySource> argument = ArgumentCaptor.forClass(AwsParameterStorePropertySource.class);
+
+        awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
+        awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
+
+        verify(mutablePropertySourcesMock, times(2)).addFirst(argument.capture());
+        verify(awsClientMock, times(2)).getParametersByPath(any(GetParametersByPathRequest.class));
+
+        AwsParameterStorePropertySource first = argument.getAllValues().get(0);
+        AwsParameterStorePropertySource second = argument.getAllValues().get(1);
+        assertThat(second, not(sameInstance(first)));
+        assertThat(second.getIndex(), sameInstance(first.getIndex()));
+    }
+
     @Test
     public void testPropertiesShouldBeDefinedInAProperWay(){
         activateSpringProfiles("ANY");
@@ -171,4 +203,51 @@ public class AwsParameterStoreConnectorTest
 
         verify(mutablePropertySourcesMock).addFirst( new AwsParameterStorePropertySource( "AwsParameterStorePropertySource", params ) );
     }
+
+    @Test
+    public void snapshotShouldBeUsedIfParameterStoreIsUnreachable() {
+        Map<String, Parameter> params = new HashMap<>();
+        params.put("prop.val.x", new Parameter().withValue("snapshot value x").withName("/my-app/prop/val/x").withType("String"));
+
+        File file = new File(folder.getRoot(), "ps.snapshot");
+        new AwsParameterStoreSnapshot(file, null, new String[]{"/my-app", "/common"}, null).write(params);
+
+        activateSpringProfiles("ANY");
+        setupRootFolders("/my-app,/common");
+        when(envMock.getProperty(pName_SnapshotFile, String.class)).thenReturn(file.getPath());
+        when(awsClientMock.getParametersByPath(any(GetParametersByPathRequest.class))).thenThrow(new AmazonServiceException("unreachable"));
+
+        awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
+
+        verify(mutablePropertySourcesMock).addFirst( new AwsParameterStorePropertySource( "AwsParameterStorePropertySource", params ) );
+    }
+
+    @Test
+    public void unreachableParameterStoreShouldBeSkippedOutsideProd() {
+        activateSpringProfiles("ANY");
+        setupRootFolders("/my-app,/common");
+        when(envMock.acceptsProfiles("Prod")).thenReturn(false);
+        when(awsClientMock.getParametersByPath(any(GetParametersByPathRequest.class))).thenThrow(new AmazonServiceException("unreachable"));
+
+        awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
+
+        verify(mutablePropertySourcesMock, never()).addFirst(any(AwsParameterStorePropertySource.class));
+    }
+
+    @Test(expected = AmazonServiceException.class)
+    public void failureAfterParameterStoreHasAnsweredShouldBeRethrownOutsideProd() {
+        activateSpringProfiles("ANY");
+        setupRootFolders("/my-app,/common");
+        when(envMock.acceptsProfiles("Prod")).thenReturn(false);
+        setupParameterStoreResponse("/my-app", "/my-app/prop/val/x", "valid value x");
+        when(awsClientMock.getParametersByPath(
+                new GetParametersByPathRequest()
+                        .withPath("/common")
+                        .withWithDecryption(true)
+                        .withRecursive(true)
+                        .withNextToken(null)
+        )).thenThrow(new AmazonServiceException("access denied to /common"));
+
+        awsParameterStoreConnector.postProcessEnvironment(envMock, applicationMock);
+    }
 }
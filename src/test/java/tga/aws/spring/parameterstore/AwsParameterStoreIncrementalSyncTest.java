@@ -0,0 +1,117 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterMetadata;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AwsParameterStoreIncrementalSyncTest {
+
+    private static final String[] ROOTS = {"/app", "/common"};
+
+    @Mock private AWSSimpleSystemsManagement awsClientMock;
+
+    /** the "remote" parameter store: name -> parameter */
+    private final Map<String, Parameter> store = new TreeMap<>();
+
+    private AwsParameterStoreIncrementalSync sync;
+
+    @Before
+    public void setUp() {
+        put("/app/prop/x", "app x", 1);
+        put("/common/prop/x", "common x", 1);
+        put("/common/prop/y", "common y", 1);
+
+        when(awsClientMock.describeParameters(any(DescribeParametersRequest.class))).thenAnswer(invocation -> {
+            DescribeParametersRequest request = invocation.getArgument(0);
+            String root = request.getParameterFilters().get(0).getValues().get(0);
+            List<ParameterMetadata> metadata = new ArrayList<>();
+            for (Parameter p : store.values())
+                if (p.getName().startsWith(root + "/"))
+                    metadata.add(new ParameterMetadata().withName(p.getName()).withVersion(p.getVersion()));
+            return new DescribeParametersResult().withParameters(metadata);
+        });
+
+        when(awsClientMock.getParameters(any(GetParametersRequest.class))).thenAnswer(invocation -> {
+            GetParametersRequest request = invocation.getArgument(0);
+            List<Parameter> parameters = new ArrayList<>();
+            for (String name : request.getNames()) if (store.containsKey(name)) parameters.add(store.get(name));
+            return new GetParametersResult().withParameters(parameters);
+        });
+
+        // the initially loaded parameters: /common/prop/x is shadowed by /app/prop/x
+        Map<String, Parameter> loaded = new HashMap<>();
+        loaded.put("prop.x", store.get("/app/prop/x"));
+        loaded.put("prop.y", store.get("/common/prop/y"));
+
+        sync = new AwsParameterStoreIncrementalSync(new AwsParameterStoreReader(awsClientMock, 1), ROOTS, loaded);
+        sync.sync(); // fetches the shadowed /common/prop/x only
+    }
+
+    @Test
+    public void onlyChangedParametersShouldBeFetched() {
+        put("/common/prop/y", "common y v2", 2);
+        put("/app/prop/z", "app z", 1);
+
+        Map<String, Parameter> result = sync.sync();
+
+        ArgumentCaptor<GetParametersRequest> requests = ArgumentCaptor.forClass(GetParametersRequest.class);
+        verify(awsClientMock, times(3)).getParameters(requests.capture());
+        assertThat(requests.getAllValues().get(0).getNames(), contains("/common/prop/x"));
+        assertThat(requests.getAllValues().get(1).getNames(), contains("/app/prop/z"));
+        assertThat(requests.getAllValues().get(2).getNames(), contains("/common/prop/y"));
+        verify(awsClientMock, never()).getParametersByPath(any(GetParametersByPathRequest.class));
+
+        assertThat(result.keySet(), containsInAnyOrder("prop.x", "prop.y", "prop.z"));
+        assertThat(result.get("prop.x").getValue(), is("app x"));
+        assertThat(result.get("prop.y").getValue(), is("common y v2"));
+        assertThat(result.get("prop.z").getValue(), is("app z"));
+    }
+
+    @Test
+    public void deletedParameterShouldBeReplacedByTheNextRoot() {
+        store.remove("/app/prop/x");
+
+        Map<String, Parameter> result = sync.sync();
+
+        assertThat(result.get("prop.x").getValue(), is("common x"));
+    }
+
+    @Test
+    public void syncWithoutChangesShouldReturnNull() {
+        assertThat(sync.sync(), is(nullValue()));
+    }
+
+    private void put(String name, String value, long version) {
+        store.put(name, new Parameter().withName(name).withType("String").withValue(value).withVersion(version));
+    }
+
+}
@@ -0,0 +1,94 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.Before;
+import org.junit.Test;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class AwsParameterStoreLazyDecryptionTest {
+
+    private static final String[] ROOTS = {"/app"};
+
+    private LocalParameterStore store;
+    private AwsParameterStorePropertySource propertySource;
+
+    @Before
+    public void setUp() {
+        store = new LocalParameterStore();
+        store.put("/app/server/port", "8080", ParameterType.String);
+        for (int i = 0; i < 20; i++) store.put("/app/secret/s" + i, "plain" + i, ParameterType.SecureString);
+
+        Map<String, Parameter> params = new AwsParameterStoreReader(new SdkV1ParameterStoreClient(store), 1)
+                .withDecryption(false)
+                .readAllProps(ROOTS);
+
+        propertySource = new AwsParameterStorePropertySource("test", ParameterIndex.of(params, false, true))
+                .withDecryptor(new SecureStringDecryptor(
+                        () -> new AwsParameterStoreReader(new SdkV1ParameterStoreClient(store), 1), true));
+    }
+
+    @Test
+    public void treeShouldBeLoadedWithoutDecryption() {
+        assertThat(propertySource.getIndex().get("secret.s0"), startsWith(LocalParameterStore.ENCRYPTED_VALUE_PREFIX));
+    }
+
+    @Test
+    public void nonSecureValueShouldBeServedWithoutCalls() {
+        long calls = store.getCallCount();
+
+        assertThat(propertySource.getProperty("server.port"), is("8080"));
+        assertThat(store.getCallCount(), is(calls));
+    }
+
+    @Test
+    public void secureValueShouldBeDecryptedOnceOnFirstRead() {
+        long calls = store.getCallCount();
+
+        assertThat(propertySource.getProperty("secret.s1"), is("plain1"));
+        assertThat(propertySource.getProperty("secret.s1"), is("plain1"));
+        assertThat(store.getCallCount(), is(calls + 1));
+    }
+
+    @Test
+    public void concurrentFirstReadsShouldBeBatched() throws Exception {
+        store.withLatency(100);
+        long calls = store.getCallCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            List<Future<Object>> values = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String key = "secret.s" + i;
+                values.add(executor.submit((Callable<Object>) () -> propertySource.getProperty(key)));
+            }
+            for (int i = 0; i < 20; i++) assertThat(values.get(i).get(), is("plain" + i));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(store.getCallCount() - calls, lessThan(20L));
+    }
+
+    @Test
+    public void refreshedIndexShouldKeepEncryption() {
+        propertySource.setParameters(propertySource.getIndex().toParameters());
+
+        assertThat(propertySource.getIndex().isEncrypted(), is(true));
+        assertThat(propertySource.getProperty("secret.s2"), is("plain2"));
+    }
+
+}
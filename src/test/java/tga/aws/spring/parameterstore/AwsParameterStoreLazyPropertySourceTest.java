@@ -0,0 +1,113 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AwsParameterStoreLazyPropertySourceTest {
+
+    @Mock private AWSSimpleSystemsManagement awsClientMock;
+
+    private final Map<String, String> store = new HashMap<>();
+
+    private AwsParameterStoreLazyPropertySource psps;
+
+    @Before
+    public void setUp() {
+        store.put("/app/prop/x", "app x");
+        store.put("/common/prop/x", "common x");
+        store.put("/common/prop/y", "common y");
+
+        when(awsClientMock.getParameters(any(GetParametersRequest.class))).thenAnswer(invocation -> {
+            GetParametersRequest request = invocation.getArgument(0);
+            Thread.sleep(50);
+            List<Parameter> parameters = new ArrayList<>();
+            for (String name : request.getNames())
+                if (store.containsKey(name)) parameters.add(new Parameter().withName(name).withValue(store.get(name)));
+            return new GetParametersResult().withParameters(parameters);
+        });
+
+        psps = new AwsParameterStoreLazyPropertySource("a name", new String[]{"/app", "/common"},
+                new AwsParameterStoreReader(awsClientMock, 1), 100, true);
+    }
+
+    @Test
+    public void allRootsShouldBeRequestedInOneCall() {
+        assertThat(psps.getProperty("prop.x"), is("app x"));
+
+        ArgumentCaptor<GetParametersRequest> request = ArgumentCaptor.forClass(GetParametersRequest.class);
+        verify(awsClientMock).getParameters(request.capture());
+        assertThat(request.getValue().getNames(), contains("/app/prop/x", "/common/prop/x"));
+    }
+
+    @Test
+    public void nextRootShouldBeUsedIfTheFirstOneHasNoParameter() {
+        assertThat(psps.getProperty("prop.y"), is("common y"));
+    }
+
+    @Test
+    public void hitsAndMissesShouldBeCached() {
+        assertThat(psps.getProperty("prop.x"), is("app x"));
+        assertThat(psps.getProperty("prop.no"), is(nullValue()));
+        assertThat(psps.getProperty("prop.x"), is("app x"));
+        assertThat(psps.getProperty("prop.no"), is(nullValue()));
+
+        verify(awsClientMock, times(2)).getParameters(any(GetParametersRequest.class));
+    }
+
+    @Test
+    public void invalidNamesShouldNotBeRequested() {
+        assertThat(psps.getProperty("spring.datasource[0].url"), is(nullValue()));
+
+        verify(awsClientMock, never()).getParameters(any(GetParametersRequest.class));
+    }
+
+    @Test
+    public void concurrentCallersShouldShareRequests() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) results.add(executor.submit(() -> {
+                start.await();
+                return psps.getProperty("prop.x");
+            }));
+            start.countDown();
+
+            for (Future<Object> result : results) assertThat(result.get(), is("app x"));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(awsClientMock, times(1)).getParameters(any(GetParametersRequest.class));
+    }
+
+}
@@ -0,0 +1,62 @@
+package tga.aws.spring.parameterstore;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The whole loading against the local parameter store (no AWS access needed).
+ */
+public class AwsParameterStoreLocalClientTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private StandardEnvironment environment;
+
+    @Before
+    public void prepareEnvironment() throws Exception {
+        AwsParameterStoreConnector.registry.clear();
+
+        File file = folder.newFile("store.properties");
+        Files.write(file.toPath(), Arrays.asList(
+                "/testqwe/server/port=8080",
+                "/commonqwe/server/port=8090",
+                "/commonqwe/server/address=localhost"
+        ), StandardCharsets.UTF_8);
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AwsParameterStoreConnector.pName_AcceptedSpringProfiles, "ANY");
+        settings.put(AwsParameterStoreConnector.pName_Roots, "/testqwe,/commonqwe");
+        settings.put(AWSParameterStoreClientBuilder.pName_Client, "local");
+        settings.put(AWSParameterStoreClientBuilder.pName_LocalStoreFile, file.getPath());
+
+        environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", settings));
+
+        new AwsParameterStoreConnector().postProcessEnvironment(environment, null);
+    }
+
+    @Test
+    public void readParameterFromFirstRootFolder() {
+        assertThat(environment.getProperty("server.port"), is("8080"));
+    }
+
+    @Test
+    public void readParameterFromSecondRootFolder() {
+        assertThat(environment.getProperty("server.address"), is("localhost"));
+    }
+
+}
@@ -0,0 +1,94 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import tga.aws.spring.parameterstore.AwsParameterStoreMetrics.CallStats;
+import tga.aws.spring.parameterstore.AwsParameterStoreMetrics.Operation;
+import tga.aws.spring.parameterstore.AwsParameterStoreMetrics.RootStats;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AwsParameterStoreMetricsTest {
+
+    @Mock private AWSSimpleSystemsManagement awsClientMock;
+
+    @Test
+    public void everyRootAndCallShouldBeRecorded() {
+        when(awsClientMock.getParametersByPath(any(GetParametersByPathRequest.class))).thenAnswer(invocation -> {
+            GetParametersByPathRequest request = invocation.getArgument(0);
+            boolean firstPage = request.getNextToken() == null;
+            return new GetParametersByPathResult()
+                    .withNextToken(firstPage ? "2" : null)
+                    .withParameters(new Parameter().withName(request.getPath() + (firstPage ? "/a" : "/b")).withValue("12345"));
+        });
+
+        AwsParameterStoreMetrics metrics = new AwsParameterStoreMetrics();
+        new AwsParameterStoreReader(awsClientMock, 1).withMetrics(metrics).readAllProps(new String[]{"/app", "/common"});
+
+        List<RootStats> roots = metrics.getRoots();
+        assertThat(roots, hasSize(2));
+        assertThat(roots.get(0).getRoot(), is("/app"));
+        assertThat(roots.get(0).getPages(), is(2));
+        assertThat(roots.get(0).getParameters(), is(2));
+        assertThat(roots.get(0).getBytes(), is((long) ("/app/a12345" + "/app/b12345").length()));
+
+        CallStats calls = metrics.getCalls(Operation.GetParametersByPath);
+        assertThat(calls.getCount(), is(4L));
+        assertThat(calls.getErrors(), is(0L));
+        assertThat(calls.getParameters(), is(4L));
+        assertThat(metrics.getTotalCalls(), is(4L));
+    }
+
+    @Test
+    public void lookupsShouldBeCounted() {
+        AwsParameterStorePropertySource propertySource = new AwsParameterStorePropertySource("test",
+                Collections.singletonMap("server.port", new Parameter().withName("/app/server/port").withValue("8080")));
+
+        propertySource.getProperty("server.port");
+        propertySource.getProperty("server.port");
+        propertySource.getProperty("server.address");
+
+        assertThat(propertySource.getHits(), is(2L));
+        assertThat(propertySource.getMisses(), is(1L));
+    }
+
+    @Test
+    public void metersShouldReadTheCounters() {
+        AwsParameterStoreMetrics metrics = new AwsParameterStoreMetrics();
+        metrics.recordRoot("/app", 5_000_000, 3, 25, 1000);
+        metrics.recordCall(Operation.GetParametersByPath, 1_000_000, 10, 400, false);
+        metrics.recordCall(Operation.GetParametersByPath, 1_000_000, 0, 0, true);
+
+        AwsParameterStorePropertySource propertySource = new AwsParameterStorePropertySource("test",
+                Collections.singletonMap("server.port", new Parameter().withName("/app/server/port").withValue("8080")));
+        propertySource.getProperty("server.port");
+        propertySource.getProperty("server.address");
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new AwsParameterStoreMeterBinder(metrics, propertySource).bindTo(registry);
+
+        assertThat(registry.find("aws.parameterstore.root.pages").tag("root", "/app").gauge().value(), is(3.0));
+        assertThat(registry.find("aws.parameterstore.calls").tag("operation", "GetParametersByPath").functionTimer().count(), is(2.0));
+        assertThat(registry.find("aws.parameterstore.call.errors").tag("operation", "GetParametersByPath").functionCounter().count(), is(1.0));
+        assertThat(registry.find("aws.parameterstore.lookups").tag("result", "hit").functionCounter().count(), is(1.0));
+        assertThat(registry.find("aws.parameterstore.lookups").tag("result", "miss").functionCounter().count(), is(1.0));
+        assertThat(registry.find("aws.parameterstore.parameters").gauge().value(), is(1.0));
+    }
+
+}
@@ -5,12 +5,20 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.StandardEnvironment;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -38,6 +46,33 @@ public class AwsParameterStorePropertySourceTest
         assertThat( psps.getProperty("prop.val.no"), is(nullValue()));
     }
 
+    @Test
+    public void sourceShouldEnumerateItsNames() {
+        assertThat( psps.getPropertyNames(), arrayContaining("prop.val.x", "prop.val.y"));
+        assertThat( psps.getPropertyNames(), sameInstance(psps.getPropertyNames()));
+        assertThat( psps.containsProperty("prop.val.x"), is(true));
+    }
+
+    @Test
+    public void mapsAndListsShouldBeBoundFromTheSource() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new AwsParameterStorePropertySource("a name", buildParams(
+                "app.labels.team", "/app/app/labels/team", "platform",
+                "app.labels.tier", "/app/app/labels/tier", "gold",
+                "app.hosts.0", "/app/app/hosts/0", "a.example.com",
+                "app.hosts.1", "/app/app/hosts/1", "b.example.com"
+        )));
+        ConfigurationPropertySources.attach(environment);
+        Binder binder = Binder.get(environment);
+
+        Map<String, String> labels = binder.bind("app.labels", Bindable.mapOf(String.class, String.class)).get();
+        List<String> hosts = binder.bind("app.hosts", Bindable.listOf(String.class)).get();
+
+        assertThat(labels.get("team"), is("platform"));
+        assertThat(labels.get("tier"), is("gold"));
+        assertThat(hosts, contains("a.example.com", "b.example.com"));
+    }
+
     private Map<String, Parameter> buildParams(String... p) {
         Map<String, Parameter> params = new HashMap<>();
 
@@ -0,0 +1,105 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import tga.aws.spring.parameterstore.exception.AwsParameterStoreTimeoutException;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AwsParameterStoreReaderTest {
+
+    private static final long LATENCY_MS = 150;
+
+    private static final String[] ROOTS = {"/app", "/team", "/common", "/global"};
+
+    @Mock private AWSSimpleSystemsManagement awsClientMock;
+
+    @Before
+    public void setUp() {
+        // every root has 2 pages; the first root is the slowest one, so it finishes last in the concurrent mode
+        when(awsClientMock.getParametersByPath(any(GetParametersByPathRequest.class))).thenAnswer(invocation -> {
+            GetParametersByPathRequest request = invocation.getArgument(0);
+            String root = request.getPath();
+            boolean firstPage = request.getNextToken() == null;
+
+            Thread.sleep("/app".equals(root) ? LATENCY_MS * 2 : LATENCY_MS);
+
+            return new GetParametersByPathResult()
+                    .withNextToken(firstPage ? root + "#2" : null)
+                    .withParameters(
+                            parameter(root + (firstPage ? "/shared/a" : "/shared/b"), root),
+                            parameter(root + (firstPage ? "/own/a" : "/own/b"), root)
+                    );
+        });
+    }
+
+    @Test
+    public void concurrentReadingShouldGiveTheSameResultAsSequentialReading() {
+        Map<String, Parameter> sequential = new AwsParameterStoreReader(awsClientMock, 1).readAllProps(ROOTS);
+        Map<String, Parameter> concurrent = new AwsParameterStoreReader(awsClientMock, 4).readAllProps(ROOTS);
+
+        assertThat(concurrent, is(sequential));
+        assertThat(concurrent.get("shared.a").getValue(), is("/app"));
+        assertThat(concurrent.get("shared.b").getValue(), is("/app"));
+        assertThat(concurrent.get("own.a").getValue(), is("/app"));
+    }
+
+    @Test
+    public void concurrentReadingShouldBeFasterThanSequentialReading() {
+        long sequentialTime = measure(new AwsParameterStoreReader(awsClientMock, 1));
+        long concurrentTime = measure(new AwsParameterStoreReader(awsClientMock, 4));
+
+        // sequential: 2 pages * (2 + 1 + 1 + 1) * latency; concurrent: 2 pages * 2 * latency (the slowest root)
+        assertThat(concurrentTime, lessThan(sequentialTime / 2));
+    }
+
+    @Test
+    public void rootsWhichMissedTheDeadlineShouldBeReported() {
+        AwsParameterStoreReader reader = new AwsParameterStoreReader(awsClientMock, 4).withDeadline(LATENCY_MS * 3);
+
+        try {
+            reader.readAllProps(ROOTS);
+            fail("the deadline must be exceeded");
+        } catch (AwsParameterStoreTimeoutException e) {
+            assertThat(e.getTimedOutRoots(), contains("/app"));
+            assertThat(e.getCompletedRoots(), contains("/team", "/common", "/global"));
+            assertThat(reader.getCompletedRoots(), contains("/team", "/common", "/global"));
+        }
+    }
+
+    @Test
+    public void allRootsShouldBeReportedAsCompletedInsideTheDeadline() {
+        AwsParameterStoreReader reader = new AwsParameterStoreReader(awsClientMock, 4).withDeadline(LATENCY_MS * 20);
+
+        reader.readAllProps(ROOTS);
+
+        assertThat(reader.getCompletedRoots(), contains(ROOTS));
+    }
+
+    private long measure(AwsParameterStoreReader reader) {
+        long start = System.nanoTime();
+        reader.readAllProps(ROOTS);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static Parameter parameter(String name, String value) {
+        return new Parameter().withName(name).withType("String").withValue(value);
+    }
+
+}
@@ -0,0 +1,137 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagement;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AwsParameterStoreRefresherTest {
+
+    @Mock private AWSSimpleSystemsManagement awsClientMock;
+    @Mock private ApplicationEventPublisher publisherMock;
+
+    private AwsParameterStorePropertySource propertySource;
+    private AwsParameterStoreRefresher refresher;
+
+    @Before
+    public void setUp() {
+        Map<String, Parameter> params = new HashMap<>();
+        params.put("prop.x", new Parameter().withName("/app/prop/x").withType("String").withValue("x1"));
+        params.put("prop.y", new Parameter().withName("/app/prop/y").withType("String").withValue("y1"));
+        params.put("prop.z", new Parameter().withName("/app/prop/z").withType("String").withValue("z1"));
+        propertySource = new AwsParameterStorePropertySource("AwsParameterStorePropertySource", params);
+
+        refresher = new AwsParameterStoreRefresher(propertySource, new String[]{"/app"},
+                () -> new AwsParameterStoreReader(awsClientMock, 1), 1000);
+        refresher.start(publisherMock);
+    }
+
+    @Test
+    public void changedValuesShouldBeSwappedInAndPublished() {
+        respondWith(
+                new Parameter().withName("/app/prop/x").withType("String").withValue("x1"),
+                new Parameter().withName("/app/prop/y").withType("String").withValue("y2"),
+                new Parameter().withName("/app/prop/w").withType("String").withValue("w1")
+        );
+
+        refresher.refresh();
+        refresher.stop();
+
+        assertThat(propertySource.getProperty("prop.x"), is("x1"));
+        assertThat(propertySource.getProperty("prop.y"), is("y2"));
+        assertThat(propertySource.getProperty("prop.w"), is("w1"));
+        assertThat(propertySource.getProperty("prop.z"), is(nullValue()));
+
+        ArgumentCaptor<AwsParameterStoreChangeEvent> event = ArgumentCaptor.forClass(AwsParameterStoreChangeEvent.class);
+        verify(publisherMock).publishEvent(event.capture());
+        assertThat(event.getValue().getChangedKeys(), containsInAnyOrder("prop.y", "prop.w", "prop.z"));
+        assertThat(event.getValue().getSource(), is(sameInstance(propertySource)));
+    }
+
+    @Test
+    public void nothingShouldBePublishedWithoutChanges() {
+        ParameterIndex before = propertySource.getIndex();
+        respondWith(
+                new Parameter().withName("/app/prop/x").withType("String").withValue("x1"),
+                new Parameter().withName("/app/prop/y").withType("String").withValue("y1"),
+                new Parameter().withName("/app/prop/z").withType("String").withValue("z1")
+        );
+
+        assertThat(refresher.refresh(), is(empty()));
+        refresher.stop();
+
+        assertThat(propertySource.getIndex(), is(sameInstance(before)));
+        verify(publisherMock, never()).publishEvent(any(AwsParameterStoreChangeEvent.class));
+    }
+
+    @Test
+    public void onlyTheReadyContextShouldStopTheRefresher() {
+        ConfigurableApplicationContext application = mock(ConfigurableApplicationContext.class);
+        ConfigurableApplicationContext child = mock(ConfigurableApplicationContext.class);
+
+        refresher.onApplicationEvent(new ApplicationReadyEvent(new SpringApplication(), new String[0], application));
+        refresher.onApplicationEvent(new ContextClosedEvent(child));
+        assertThat(refresher.isRunning(), is(true));
+
+        refresher.onApplicationEvent(new ContextClosedEvent(application));
+        assertThat(refresher.isRunning(), is(false));
+    }
+
+    @Test
+    public void concurrentUpdatesShouldNotBeLost() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Set<String> changed = AwsParameterStoreRefresher.apply(propertySource, current -> {
+            if (attempts.incrementAndGet() == 1) {
+                // another update swaps its index in while this one is being built
+                Map<String, Parameter> other = current.toParameters();
+                other.put("prop.y", new Parameter().withName("/app/prop/y").withType("String").withValue("y2"));
+                AwsParameterStoreRefresher.apply(propertySource, other, null);
+            }
+            Map<String, Parameter> mine = current.toParameters();
+            mine.put("prop.x", new Parameter().withName("/app/prop/x").withType("String").withValue("x2"));
+            return mine;
+        }, publisherMock);
+        refresher.stop();
+
+        assertThat(attempts.get(), is(2));
+        assertThat(changed, containsInAnyOrder("prop.x"));
+        assertThat(propertySource.getProperty("prop.x"), is("x2"));
+        assertThat(propertySource.getProperty("prop.y"), is("y2"));
+    }
+
+    private void respondWith(Parameter... parameters) {
+        when(awsClientMock.getParametersByPath(any(GetParametersByPathRequest.class)))
+                .thenReturn(new GetParametersByPathResult().withParameters(parameters));
+    }
+
+}
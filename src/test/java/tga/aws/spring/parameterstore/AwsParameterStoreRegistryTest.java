@@ -0,0 +1,105 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AwsParameterStoreRegistryTest {
+
+    private static final List<Object> KEY = AwsParameterStoreRegistry.key("aws:eu-west-1:id:", Collections.singletonList("/app"), false, false);
+
+    private final AwsParameterStoreRegistry registry = new AwsParameterStoreRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Supplier<ParameterIndex> loader = () -> {
+        loads.incrementAndGet();
+        return ParameterIndex.of(Collections.singletonMap("server.port",
+                new Parameter().withName("/app/server/port").withType("String").withValue("8080")), false);
+    };
+
+    @Test
+    public void parametersShouldBeLoadedOncePerKey() {
+        ParameterIndex first = registry.getOrLoad(KEY, 0, loader);
+        ParameterIndex second = registry.getOrLoad(AwsParameterStoreRegistry.key("aws:eu-west-1:id:", Collections.singletonList("/app"), false, false), 0, loader);
+        ParameterIndex other = registry.getOrLoad(AwsParameterStoreRegistry.key("aws:eu-west-1:id:", Collections.singletonList("/common"), false, false), 0, loader);
+
+        assertThat(second, sameInstance(first));
+        assertThat(other, not(sameInstance(first)));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void concurrentLoadsShouldWaitForTheFirstOne() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        Supplier<ParameterIndex> slowLoader = () -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return loader.get();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ParameterIndex>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return registry.getOrLoad(KEY, 0, slowLoader);
+                }));
+            }
+            start.countDown();
+
+            ParameterIndex first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<ParameterIndex> result : results) assertThat(result.get(10, TimeUnit.SECONDS), sameInstance(first));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void failedLoadShouldNotBeKept() {
+        assertThat(registry.getOrLoad(KEY, 0, () -> null), is(nullValue()));
+
+        try {
+            registry.getOrLoad(KEY, 0, () -> { throw new IllegalStateException("unreachable"); });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertThat(registry.getOrLoad(KEY, 0, loader).get("server.port"), is("8080"));
+        assertThat(registry.size(), is(1));
+    }
+
+    @Test
+    public void expiredParametersShouldBeReloaded() throws Exception {
+        ParameterIndex first = registry.getOrLoad(KEY, 1, loader);
+        Thread.sleep(5);
+        ParameterIndex second = registry.getOrLoad(KEY, 1, loader);
+
+        assertThat(second, not(sameInstance(first)));
+        assertThat(loads.get(), is(2));
+    }
+
+}
@@ -0,0 +1,125 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AwsParameterStoreSnapshotTest {
+
+    private static final SecretKey KEY = AwsParameterStoreSnapshot.decodeKey(
+            Base64.getEncoder().encodeToString("0123456789abcdef".getBytes(StandardCharsets.UTF_8)));
+
+    private static final String[] ROOTS = {"/app", "/common"};
+    private static final String IDENTITY = "aws:eu-west-1:AKIAEXAMPLE:";
+    private static final int ROOTS_LENGTH_OFFSET = 4 + 2 + 1 + 8;
+    private static final int PAYLOAD_LENGTH_OFFSET = ROOTS_LENGTH_OFFSET + 4 + "/app,/common".length() + 4 + 16;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "ps.snapshot");
+    }
+
+    @Test
+    public void snapshotShouldBeReadAsItWasWritten() {
+        Map<String, Parameter> params = params("String", "plain value");
+
+        assertTrue(new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).write(params));
+
+        assertThat(new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).read(), is(params));
+    }
+
+    @Test
+    public void secureStringsShouldBeWrittenEncrypted() throws Exception {
+        Map<String, Parameter> params = params("SecureString", "top secret");
+
+        assertTrue(new AwsParameterStoreSnapshot(file, KEY, ROOTS, IDENTITY).write(params));
+
+        assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1), not(containsString("top secret")));
+        assertThat(new AwsParameterStoreSnapshot(file, KEY, ROOTS, IDENTITY).read(), is(params));
+        assertThat(new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).read(), is(nullValue()));
+    }
+
+    @Test
+    public void secureStringsShouldNotBeWrittenWithoutKey() {
+        assertFalse(new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).write(params("SecureString", "top secret")));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void corruptedSnapshotShouldBeIgnored() throws Exception {
+        new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).write(params("String", "plain value"));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        assertThat(new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).read(), is(nullValue()));
+    }
+
+    @Test
+    public void snapshotOfOtherRootsShouldBeIgnored() {
+        new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).write(params("String", "plain value"));
+
+        assertThat(new AwsParameterStoreSnapshot(file, null, new String[]{"/common", "/app"}, IDENTITY).read(), is(nullValue()));
+        assertThat(new AwsParameterStoreSnapshot(file, null, new String[]{"/app"}, IDENTITY).read(), is(nullValue()));
+    }
+
+    @Test
+    public void snapshotOfAnotherAccountShouldBeIgnored() {
+        new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).write(params("String", "plain value"));
+
+        assertThat(new AwsParameterStoreSnapshot(file, null, ROOTS, "aws:us-east-1:AKIAEXAMPLE:").read(), is(nullValue()));
+        assertThat(new AwsParameterStoreSnapshot(file, null, ROOTS, "aws:eu-west-1:AKIAOTHER:").read(), is(nullValue()));
+    }
+
+    @Test
+    public void corruptedLengthsShouldBeRejectedBeforeAllocation() throws Exception {
+        for (int offset : new int[]{ROOTS_LENGTH_OFFSET, PAYLOAD_LENGTH_OFFSET}) {
+            new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).write(params("String", "plain value"));
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(offset);
+                raf.writeInt(Integer.MAX_VALUE - 8);
+            }
+
+            assertThat(new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).read(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void absentSnapshotShouldBeIgnored() {
+        assertThat(new AwsParameterStoreSnapshot(file, null, ROOTS, IDENTITY).read(), is(nullValue()));
+    }
+
+    private static Map<String, Parameter> params(String type, String value) {
+        Map<String, Parameter> params = new HashMap<>();
+        params.put("prop.val.x", new Parameter().withName("/app/prop/val/x").withType(type).withValue(value).withVersion(3L));
+        params.put("prop.val.y", new Parameter().withName("/common/prop/val/y").withType("String").withValue("y"));
+        return params;
+    }
+
+}
@@ -0,0 +1,123 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class HedgedParameterStoreClientTest {
+
+    private static final String[] ROOTS = {"/app", "/common"};
+
+    private HedgedParameterStoreClient client;
+
+    @After
+    public void close() {
+        if (client != null) client.close();
+    }
+
+    @Test
+    public void fastPrimaryRegionShouldNotBeHedged() {
+        LocalParameterStore primary = store(0);
+        LocalParameterStore backup = store(0);
+        client = hedged(primary, backup, 200);
+
+        Map<String, Parameter> params = new AwsParameterStoreReader(client, 1).readAllProps(ROOTS);
+
+        assertThat(params.size(), is(50));
+        assertThat(primary.getCallCount(), is(6L)); // 3 pages per root
+        assertThat(backup.getCallCount(), is(0L));
+        assertThat(client.getHedgedCalls(), is(0L));
+        assertThat(client.getWins("eu-west-1"), is(2L));
+    }
+
+    @Test
+    public void slowPrimaryRegionShouldBeHedgedAndNextPagesShouldStayInTheWinningRegion() {
+        LocalParameterStore primary = store(2000);
+        LocalParameterStore backup = store(0);
+        client = hedged(primary, backup, 20);
+
+        long start = System.nanoTime();
+        Map<String, Parameter> params = new AwsParameterStoreReader(client, 2).readAllProps(ROOTS);
+
+        assertThat(params.size(), is(50));
+        assertThat((System.nanoTime() - start) / 1_000_000, lessThan(1000L));
+        assertThat(primary.getCallCount(), is(2L));  // the first pages only, cancelled
+        assertThat(backup.getCallCount(), is(6L));
+        assertThat(client.getCalls(), is(2L));
+        assertThat(client.getHedgedCalls(), is(2L));
+        assertThat(client.getHedgeWins(), is(2L));
+    }
+
+    @Test
+    public void failedRegionShouldBeHedgedAtOnce() {
+        LocalParameterStore primary = store(0).withFailureProbability(1.0);
+        client = hedged(primary, store(0), 10_000);
+
+        long start = System.nanoTime();
+        Map<String, Parameter> params = new AwsParameterStoreReader(client, 1).readAllProps(new String[]{"/app"});
+
+        assertThat(params.size(), is(25));
+        assertThat((System.nanoTime() - start) / 1_000_000, lessThan(5000L));
+        assertThat(client.getHedgeWins(), is(1L));
+    }
+
+    @Test
+    public void callShouldFailWhenAllTheRegionsFail() {
+        client = hedged(store(0).withFailureProbability(1.0), store(0).withFailureProbability(1.0), 10);
+
+        try {
+            client.getParametersByPath(new GetParametersByPathRequest().withPath("/app"));
+            fail("the call should fail");
+        } catch (AmazonServiceException e) {
+            assertThat(e.getErrorCode(), is("InternalServerError"));
+        }
+    }
+
+    @Test
+    public void builderShouldAddTheHedgeRegions() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AWSParameterStoreClientBuilder.pName_Client, "local");
+        settings.put(AWSParameterStoreClientBuilder.pName_HedgeRegions, "eu-central-1");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", settings));
+
+        ParameterStoreClient built = new AWSParameterStoreClientBuilder().getClient(environment);
+        try {
+            assertThat(built, instanceOf(HedgedParameterStoreClient.class));
+        } finally {
+            built.close();
+        }
+    }
+
+    private static HedgedParameterStoreClient hedged(LocalParameterStore primary, LocalParameterStore backup, long delayMillis) {
+        return new HedgedParameterStoreClient(
+                Arrays.asList(new SdkV1ParameterStoreClient(primary), new SdkV1ParameterStoreClient(backup)),
+                Arrays.asList("eu-west-1", "eu-central-1"), delayMillis);
+    }
+
+    private static LocalParameterStore store(long latencyMillis) {
+        LocalParameterStore store = new LocalParameterStore().withLatency(latencyMillis);
+        for (int i = 0; i < 25; i++) {
+            store.put("/app/p" + (100 + i), "a" + i, ParameterType.String);
+            store.put("/common/p" + (100 + i), "c" + i, ParameterType.String);
+        }
+        return store;
+    }
+
+}
@@ -0,0 +1,240 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+/**
+ * JVMs of a host are simulated by separate cache instances (and threads) over the same directory:
+ * file locks and mappings behave the same way within a single process.
+ */
+public class HostSharedParameterCacheTest {
+
+    private static final String ROOT = "/app/config";
+    private static final List<Parameter> PARAMS = Arrays.asList(
+            new Parameter().withName("/app/config/url").withType("String").withValue("http://host").withVersion(3L),
+            new Parameter().withName("/app/config/secret").withType("SecureString").withValue("AQICAH-ciphertext").withVersion(1L)
+    );
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private final Function<String, List<Parameter>> fetcher = root -> {
+        fetches.incrementAndGet();
+        return PARAMS;
+    };
+
+    @Test
+    public void anotherInstanceShouldReadTheSharedDataWithoutFetching() {
+        assertThat(newCache(60_000).load(ROOT, false, fetcher), is(PARAMS));
+        assertThat(newCache(60_000).load(ROOT, false, fetcher), is(PARAMS));
+
+        assertThat(fetches.get(), is(1));
+    }
+
+    @Test
+    public void staleDataShouldBeFetchedAgainWithNextGeneration() throws Exception {
+        HostSharedParameterCache cache = newCache(0);
+        File file = cache.fileOf(ROOT, false);
+
+        cache.load(ROOT, false, fetcher);
+        long generation = cache.generation(file);
+        Thread.sleep(5);
+        cache.load(ROOT, false, fetcher);
+
+        assertThat(fetches.get(), is(2));
+        assertThat(cache.generation(file), is(generation + 2));
+    }
+
+    @Test
+    public void dataBeingWrittenShouldNotBeRead() throws Exception {
+        HostSharedParameterCache cache = newCache(60_000);
+        File file = cache.fileOf(ROOT, false);
+        cache.load(ROOT, false, fetcher);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(HostSharedParameterCache.GENERATION_OFFSET);
+            raf.writeLong(cache.generation(file) + 1);
+        }
+
+        assertThat(cache.read(file), is(nullValue()));
+        assertThat(cache.load(ROOT, false, fetcher), is(PARAMS)); // a crashed writer: the next leader rewrites
+        assertThat(fetches.get(), is(2));
+        assertThat(cache.read(file), is(PARAMS));
+    }
+
+    @Test
+    public void corruptedDataShouldNotBeRead() throws Exception {
+        HostSharedParameterCache cache = newCache(60_000);
+        File file = cache.fileOf(ROOT, false);
+        cache.load(ROOT, false, fetcher);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(HostSharedParameterCache.HEADER_SIZE + 10);
+            raf.write('#');
+        }
+
+        assertThat(cache.read(file), is(nullValue()));
+    }
+
+    @Test
+    public void decryptedSecureStringsShouldNotBeShared() throws Exception {
+        newCache(60_000).load(ROOT, true, fetcher);
+        newCache(60_000).load(ROOT, true, fetcher);
+
+        assertThat(fetches.get(), is(2));
+        File file = newCache(60_000).fileOf(ROOT, true);
+        assertThat(newCache(60_000).read(file), is(sameInstance(HostSharedParameterCache.NOT_SHARED)));
+        assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1).contains("AQICAH"));
+    }
+
+    @Test
+    public void rootsWhichAreNotSharedShouldBeFetchedWithoutWaiting() throws Exception {
+        newCache(60_000).load(ROOT, true, fetcher);
+
+        CountDownLatch bothFetching = new CountDownLatch(2);
+        Function<String, List<Parameter>> slowFetcher = root -> {
+            bothFetching.countDown();
+            try {
+                if (!bothFetching.await(2, TimeUnit.SECONDS)) throw new IllegalStateException("fetched one after another");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return fetcher.apply(root);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<List<Parameter>>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                HostSharedParameterCache cache = newCache(60_000);
+                results.add(executor.submit(() -> cache.load(ROOT, true, slowFetcher)));
+            }
+
+            for (Future<List<Parameter>> result : results) assertThat(result.get(10, TimeUnit.SECONDS), is(PARAMS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(fetches.get(), is(3));
+    }
+
+    @Test
+    public void concurrentInstancesShouldFetchOnce() throws Exception {
+        int instances = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        Function<String, List<Parameter>> slowFetcher = root -> {
+            sleep(200);
+            return fetcher.apply(root);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(instances);
+        try {
+            List<Future<List<Parameter>>> results = new ArrayList<>();
+            for (int i = 0; i < instances; i++) {
+                HostSharedParameterCache cache = newCache(60_000);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.load(ROOT, false, slowFetcher);
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<Parameter>> result : results) assertThat(result.get(10, TimeUnit.SECONDS), is(PARAMS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(fetches.get(), is(1));
+    }
+
+    @Test
+    public void stuckLeaderShouldNotBlockOthers() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> newCache(60_000).load(ROOT, false, root -> {
+                leaderStarted.countDown();
+                await(release);
+                return PARAMS;
+            }));
+            leaderStarted.await();
+
+            HostSharedParameterCache follower = new HostSharedParameterCache(folder.getRoot(), 60_000, 100);
+            assertThat(follower.load(ROOT, false, fetcher), is(PARAMS));
+            assertThat(fetches.get(), is(1));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void sameRootOfAnotherAccountShouldNotBeShared() {
+        LocalParameterStore staging = new LocalParameterStore().put("/common/db/url", "jdbc:staging", ParameterType.String);
+        LocalParameterStore prod = new LocalParameterStore().put("/common/db/url", "jdbc:prod", ParameterType.String);
+        String[] roots = {"/common"};
+
+        AwsParameterStoreReader stagingReader = new AwsParameterStoreReader(staging, 1)
+                .withSharedCache(newCache(60_000), null, "aws:eu-west-1:AKIASTAGING:");
+        AwsParameterStoreReader prodReader = new AwsParameterStoreReader(prod, 1)
+                .withSharedCache(newCache(60_000), null, "aws:eu-west-1:AKIAPROD:");
+
+        assertThat(stagingReader.readAllProps(roots).get("db.url").getValue(), is("jdbc:staging"));
+        assertThat(prodReader.readAllProps(roots).get("db.url").getValue(), is("jdbc:prod"));
+        assertThat(folder.getRoot().listFiles((dir, name) -> name.endsWith(".pscache")).length, is(2));
+
+        long calls = prod.getCallCount();
+        assertThat(new AwsParameterStoreReader(prod, 1).withSharedCache(newCache(60_000), null, "aws:eu-west-1:AKIAPROD:")
+                .readAllProps(roots).get("db.url").getValue(), is("jdbc:prod"));
+        assertThat(prod.getCallCount(), is(calls)); // the same identity still shares the root
+    }
+
+    private HostSharedParameterCache newCache(long maxAgeMillis) {
+        return new HostSharedParameterCache(folder.getRoot(), maxAgeMillis, 5_000);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
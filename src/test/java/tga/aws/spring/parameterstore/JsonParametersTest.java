@@ -0,0 +1,161 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class JsonParametersTest {
+
+    private static final String[] ROOTS = {"/app", "/common"};
+
+    private AwsParameterStorePropertySource propertySource;
+
+    @Before
+    public void setUp() {
+        Map<String, Parameter> params = new HashMap<>();
+        put(params, "/app/datasource", "{\"url\": \"jdbc:app\", \"pool\": {\"max\": 50, \"hosts\": [\"h1\", \"h2\"]}, \"password\": null}");
+        put(params, "/app/datasource/pool/max", "60");          // the same root: the plain parameter wins
+        put(params, "/common/datasource/url", "jdbc:common");   // a later root: the document wins
+        put(params, "/common/datasource/user", "sa");           // not in the document
+        put(params, "/common/cache", "{\"ttl\": 30, \"enabled\": true}");
+        put(params, "/app/cache/ttl", "10");                     // an earlier root wins over the document
+        put(params, "/app/broken", "{\"a\": ");
+        put(params, "/app/plain", "p");
+
+        ParameterIndex index = ParameterIndex.of(params, true, false, JsonParameters.of(ROOTS, "/app/datasource,/common/cache,/app/broken"));
+        propertySource = new AwsParameterStorePropertySource("AwsParameterStorePropertySource", index);
+    }
+
+    @Test
+    public void documentsShouldBeServedAsFlatProperties() {
+        assertThat(propertySource.getProperty("datasource.url"), is("jdbc:app"));
+        assertThat(propertySource.getProperty("datasource.pool.hosts[1]"), is("h2"));
+        assertThat(propertySource.getProperty("cache.enabled"), is("true"));
+        assertThat(propertySource.getProperty("datasource.password"), is(nullValue()));
+        assertThat(propertySource.getProperty("plain"), is("p"));
+    }
+
+    @Test
+    public void documentKeysShouldNotBeProperties() {
+        assertThat(propertySource.getProperty("datasource"), is(nullValue()));
+        assertThat(propertySource.getProperty("broken"), is(nullValue()));
+        assertFalse(propertySource.containsProperty("cache"));
+    }
+
+    @Test
+    public void rootsOrderShouldDecideBetweenDocumentsAndParameters() {
+        assertThat(propertySource.getProperty("datasource.pool.max"), is("60"));
+        assertThat(propertySource.getProperty("datasource.user"), is("sa"));
+        assertThat(propertySource.getProperty("cache.ttl"), is("10"));
+    }
+
+    @Test
+    public void enumerationShouldExpandTheDocuments() {
+        assertThat(propertySource.getPropertyNames(), arrayContaining("cache.enabled", "cache.ttl",
+                "datasource.pool.hosts[0]", "datasource.pool.hosts[1]", "datasource.pool.max", "datasource.url", "datasource.user", "plain"));
+        assertThat(propertySource.getPropertyNames(), is(propertySource.getPropertyNames()));
+    }
+
+    @Test
+    public void documentsShouldBeBound() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(propertySource);
+
+        DataSource dataSource = Binder.get(environment).bind("datasource", DataSource.class).get();
+
+        assertThat(dataSource.getUrl(), is("jdbc:app"));
+        assertThat(dataSource.getPool().getMax(), is(60));
+        assertThat(dataSource.getPool().getHosts(), contains("h1", "h2"));
+    }
+
+    @Test
+    public void documentShouldBeParsedOnTheFirstLookupBelowItsKey() {
+        Map<String, Parameter> params = new HashMap<>();
+        put(params, "/app/a", "{\"x\": 1}");
+        put(params, "/app/b", "{\"y\": 2}");
+        put(params, "/app/c", "3");
+        ParameterIndex index = ParameterIndex.of(params, false, false, JsonParameters.of(ROOTS, "/app/a,/app/b"));
+        AtomicInteger reads = new AtomicInteger();
+        IntFunction<String> values = position -> {
+            if (!index.keyAt(position).equals("c")) reads.incrementAndGet();
+            return index.valueAt(position);
+        };
+
+        assertThat(index.json().resolve(index, "c", values), is("3"));
+        assertThat(index.json().resolve(index, "server.port", values), is(nullValue()));
+        assertThat(reads.get(), is(0));
+
+        assertThat(index.json().resolve(index, "a.x", values), is("1"));
+        assertThat(index.json().resolve(index, "a.x", values), is("1"));
+        assertThat(reads.get(), is(1));
+    }
+
+    @Test
+    public void patternsShouldMatchTheNamesOnly() {
+        JsonParameters json = JsonParameters.of(ROOTS, "/app/datasource,/app/*/json");
+
+        assertTrue(json.isJson("/app/datasource"));
+        assertFalse(json.isJson("/app/datasource/pool"));
+        assertTrue(json.isJson("/app/cache/json"));
+        assertThat(json.rank("/common/x"), is(1));
+    }
+
+    @Test
+    public void jsonShouldBeReadStrictly() {
+        assertThat(JsonParameters.flatten("k", "{\"a\": [1, 2.5e1, {\"b\": \"\\u0041\\n\"}], \"c\": {}}"),
+                hasToString("{k.a[0]=1, k.a[1]=2.5e1, k.a[2].b=A\n}"));
+        assertThat(JsonReader.parse(" [ \"x\" , false ] "), hasToString("[x, false]"));
+        for (String wrong : new String[]{"{\"a\": 1,}", "{a: 1}", "[1 2]", "\"text", "{} x", "50"}) {
+            try {
+                JsonParameters.flatten("k", wrong);
+                throw new AssertionError(wrong + " was parsed");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private static void put(Map<String, Parameter> params, String name, String value) {
+        String root = name.startsWith("/app/") ? "/app" : "/common";
+        params.putIfAbsent(AwsParameterStoreReader.toPropertyName(root, name), new Parameter().withName(name).withType("String").withValue(value));
+    }
+
+    public static class DataSource {
+        private String url;
+        private Pool pool = new Pool();
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+        public Pool getPool() { return pool; }
+        public void setPool(Pool pool) { this.pool = pool; }
+    }
+
+    public static class Pool {
+        private int max;
+        private List<String> hosts = new ArrayList<>();
+
+        public int getMax() { return max; }
+        public void setMax(int max) { this.max = max; }
+        public List<String> getHosts() { return hosts; }
+        public void setHosts(List<String> hosts) { this.hosts = hosts; }
+    }
+
+}
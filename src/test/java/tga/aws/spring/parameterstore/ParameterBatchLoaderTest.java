@@ -0,0 +1,37 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParameterBatchLoaderTest {
+
+    @Test(timeout = 5000)
+    public void errorShouldCompleteTheBatchAndBeRethrown() {
+        AwsParameterStoreReader reader = mock(AwsParameterStoreReader.class);
+        when(reader.readParameters(anyCollection()))
+                .thenThrow(new StackOverflowError("boom"))
+                .thenReturn(Collections.singletonList(new Parameter().withName("/app/a").withValue("1")));
+        ParameterBatchLoader loader = new ParameterBatchLoader(reader);
+
+        try {
+            loader.load(Arrays.asList("/app/a", "/app/b"));
+            fail("the error is expected");
+        } catch (StackOverflowError e) {
+            assertThat(e.getMessage(), is("boom"));
+        }
+
+        // nothing is left in flight: the names are requested again instead of waiting forever
+        assertThat(loader.load(Arrays.asList("/app/a", "/app/b")).get("/app/a").getValue(), is("1"));
+    }
+
+}
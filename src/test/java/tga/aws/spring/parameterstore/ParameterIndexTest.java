@@ -0,0 +1,134 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ParameterIndexTest {
+
+    private static final int SIZE = 10_000;
+
+    @Test
+    public void indexShouldReturnValuesByKeys() {
+        ParameterIndex index = ParameterIndex.of(buildParams(SIZE), false);
+
+        assertThat(index.size(), is(SIZE));
+        for (int i = 0; i < SIZE; i++) assertThat(index.get(key(i)), is(value(i)));
+        assertThat(index.get("no.such.key"), is(nullValue()));
+        assertThat(index.get(null), is(nullValue()));
+    }
+
+    @Test
+    public void keysShouldBeSorted() {
+        ParameterIndex index = ParameterIndex.of(buildParams(3), false);
+
+        assertThat(index.keys(), arrayContaining(key(0), key(1), key(2)));
+    }
+
+    @Test
+    public void equalValuesShouldShareOneInstance() {
+        Map<String, Parameter> params = new HashMap<>();
+        params.put("a", new Parameter().withValue(new String("true")));
+        params.put("b", new Parameter().withValue(new String("true")));
+
+        ParameterIndex index = ParameterIndex.of(params, false);
+
+        assertThat(index.get("a"), is(sameInstance(index.get("b"))));
+    }
+
+    @Test
+    public void metadataShouldBeRetainedOnlyOnRequest() {
+        Map<String, Parameter> params = buildParams(1);
+
+        assertFalse(ParameterIndex.of(params, false).hasMetadata());
+        assertThat(ParameterIndex.of(params, false).toParameters().get(key(0)).getName(), is(nullValue()));
+
+        ParameterIndex index = ParameterIndex.of(params, true);
+        assertTrue(index.hasMetadata());
+        Parameter p = index.toParameters().get(key(0));
+        assertThat(p.getName(), is("/app/" + key(0).replace('.', '/')));
+        assertThat(p.getType(), is("String"));
+        assertThat(p.getVersion(), is(7L));
+        assertThat(p.getValue(), is(value(0)));
+    }
+
+    @Test
+    public void changedKeysShouldBeDetected() {
+        Map<String, Parameter> params = buildParams(3);
+        ParameterIndex previous = ParameterIndex.of(params, false);
+
+        params.remove(key(0));
+        params.put(key(1), new Parameter().withValue("changed"));
+        params.put("new.key", new Parameter().withValue("new"));
+
+        assertThat(ParameterIndex.changedKeys(previous, ParameterIndex.of(params, false)),
+                containsInAnyOrder(key(0), key(1), "new.key"));
+    }
+
+    @Test
+    public void indexShouldRetainLessHeapThanParametersMap() {
+        long base = usedMemory();
+        Map<String, Parameter> params = buildParams(SIZE);
+        long mapFootprint = usedMemory() - base;
+
+        params = null;
+        base = usedMemory();
+        ParameterIndex index = ParameterIndex.of(buildParams(SIZE), false);
+        long indexFootprint = usedMemory() - base;
+
+        assertThat(index.size(), is(SIZE));
+        assertThat(indexFootprint, lessThan(mapFootprint / 2));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Map<String, Parameter> buildParams(int size) {
+        Map<String, Parameter> params = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String name = "/app/" + key(i).replace('.', '/');
+            params.put(key(i), new Parameter()
+                    .withName(name)
+                    .withType("String")
+                    .withValue(value(i))
+                    .withVersion(7L)
+                    .withARN("arn:aws:ssm:us-east-1:123456789012:parameter" + name)
+                    .withDataType("text")
+                    .withLastModifiedDate(new Date())
+            );
+        }
+        return params;
+    }
+
+    private static String key(int i) {
+        return String.format("service.module%03d.property%05d", i % 100, i);
+    }
+
+    private static String value(int i) {
+        return (i % 10 == 0) ? "value-" + i : new String("true"); // many equal values, as in real configs
+    }
+
+}
@@ -0,0 +1,107 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.Before;
+import org.junit.Test;
+import tga.aws.spring.parameterstore.ParameterKeyManifest.RootKeys;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ParameterKeyManifestTest {
+
+    private static final String[] ROOTS = {"/app", "/common"};
+
+    private LocalParameterStore store;
+
+    @Before
+    public void setUp() {
+        store = new LocalParameterStore();
+        for (int i = 0; i < 500; i++) store.put("/app/noise/n" + i, "noise", ParameterType.String);
+        for (int i = 0; i < 25; i++) store.put("/app/svc/k" + i, "app" + i, ParameterType.String);
+        store.put("/app/datasource/url", "jdbc:app", ParameterType.String);
+        store.put("/app/datasource/pool/max", "50", ParameterType.String);
+        store.put("/common/svc/k1", "common1", ParameterType.String);
+        store.put("/common/svc/k30", "common30", ParameterType.String);
+        store.put("/common/blocks", "{\"cache\": {\"ttl\": 60}}", ParameterType.String);
+    }
+
+    @Test
+    public void manifestShouldBeParsedAndExtended() {
+        ParameterKeyManifest manifest = ParameterKeyManifest.parse("# comment\nkey app.timeout\nkey app.hosts[0]\nprefix app.datasource\n")
+                .with("server.port", "logging.,");
+
+        assertThat(new ArrayList<>(manifest.getKeys()), contains("app.hosts", "app.timeout", "server.port"));
+        assertThat(new ArrayList<>(manifest.getPrefixes()), contains("app.datasource", "logging"));
+    }
+
+    @Test
+    public void namesBelowPrefixesShouldNotBeRequested() {
+        ParameterKeyManifest manifest = ParameterKeyManifest.of(
+                Arrays.asList("a.x", "db.url", "db.pool.max"), Arrays.asList("db", "db.pool"));
+
+        RootKeys keys = manifest.forRoot("/r", name -> false);
+
+        assertThat(keys.getNames(), contains("/r/a/x"));
+        assertThat(keys.getPaths(), contains("/r/db"));
+        assertTrue(keys.matches("/r/db/anything"));
+        assertFalse(keys.matches("/r/a/y"));
+    }
+
+    @Test
+    public void jsonDocumentsAboveKeysShouldBeRequested() {
+        ParameterKeyManifest manifest = ParameterKeyManifest.of(Collections.singletonList("blocks.cache.ttl"), Collections.emptyList());
+
+        RootKeys keys = manifest.forRoot("/common", JsonParameters.of(ROOTS, "/common/blocks")::isJson);
+
+        assertThat(keys.getNames(), contains("/common/blocks", "/common/blocks/cache/ttl"));
+    }
+
+    @Test
+    public void manifestReadingShouldLoadOnlyNamedParametersWithFewerCalls() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 31; i++) keys.add("svc.k" + i);
+        ParameterKeyManifest manifest = ParameterKeyManifest.of(keys, Collections.singletonList("datasource"));
+
+        long before = store.getCallCount();
+        Map<String, Parameter> full = new AwsParameterStoreReader(store, 1).readAllProps(ROOTS);
+        long fullCalls = store.getCallCount() - before;
+
+        before = store.getCallCount();
+        Map<String, Parameter> props = new AwsParameterStoreReader(store, 2)
+                .withSharding(null, 4)
+                .withManifest(manifest, ROOTS, JsonParameters.none())
+                .readAllProps(ROOTS);
+        long manifestCalls = store.getCallCount() - before;
+
+        assertThat(props.size(), is(28));
+        assertThat(props.get("svc.k1").getValue(), is("app1"));      // the roots order still applies
+        assertThat(props.get("svc.k30").getValue(), is("common30"));
+        assertThat(props.get("datasource.pool.max").getValue(), is("50"));
+        assertFalse(props.containsKey("noise.n1"));
+        for (Map.Entry<String, Parameter> e : props.entrySet()) assertThat(e.getValue(), is(full.get(e.getKey())));
+        assertThat(manifestCalls, lessThan(fullCalls / 4));
+    }
+
+    @Test
+    public void namesOutsideManifestShouldNotBeReadLater() {
+        AwsParameterStoreReader reader = new AwsParameterStoreReader(store, 1)
+                .withManifest(ParameterKeyManifest.of(Collections.singletonList("svc.k2"), Collections.emptyList()), ROOTS, JsonParameters.none());
+
+        assertThat(reader.readParameters(Arrays.asList("/app/noise/n1", "/app/svc/k2")).size(), is(1));
+        assertThat(reader.describeRoot("/app").size(), is(1));
+    }
+
+}
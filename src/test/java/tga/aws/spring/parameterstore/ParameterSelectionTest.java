@@ -0,0 +1,106 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.Before;
+import org.junit.Test;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ParameterSelectionTest {
+
+    private static final String[] ROOTS = {"/common", "/app"};
+
+    private LocalParameterStore store;
+
+    @Before
+    public void setUp() {
+        store = new LocalParameterStore();
+        for (int i = 0; i < 10; i++) store.put("/common/shared/p" + i, "shared", ParameterType.String);
+        store.put("/common/db/url", "jdbc:h2:mem:db", ParameterType.String);
+        store.put("/common/db/pool/size", "5", ParameterType.String);
+        for (int i = 0; i < 300; i++) store.put(String.format("/common/team-b/x%03d", i), "b", ParameterType.String);
+        for (int i = 0; i < 200; i++) store.put(String.format("/common/team-c/svc%d/y%03d", i % 5, i), "c", ParameterType.String);
+    }
+
+    @Test
+    public void patternsShouldMatchSubtrees() {
+        ParameterSelection selection = ParameterSelection.of(ROOTS, "/common/db,/common/shared/*", "/common/db/pool", "");
+
+        assertTrue(selection.matches("/common/db/url"));
+        assertTrue(selection.matches("/common/shared/p1"));
+        assertFalse(selection.matches("/common/shared/nested/p1"));
+        assertFalse(selection.matches("/common/db/pool/size"));
+        assertFalse(selection.matches("/common/team-b/x001"));
+        assertTrue(selection.matches("/app/anything/at/all"));
+    }
+
+    @Test
+    public void depthShouldBeCountedFromTheRoot() {
+        ParameterSelection selection = ParameterSelection.of(ROOTS, "", "", "/common=2");
+
+        assertTrue(selection.matches("/common/db/url"));
+        assertFalse(selection.matches("/common/db/pool/size"));
+        assertTrue(selection.matches("/app/a/b/c/d"));
+        assertThat(selection.forRoot("/app"), is(nullValue()));
+    }
+
+    @Test
+    public void includesShouldBeFetchedFromTheirPrefixes() {
+        ParameterSelection selection = ParameterSelection.of(ROOTS, "/common/shared/**,/common/db/*,/common/db/pool", "", "");
+
+        assertThat(selection.forRoot("/common").plan(), hasToString("[/common/shared/**, /common/db/*, /common/db/pool/**]"));
+    }
+
+    @Test
+    public void excludedPathsShouldNotBeFetched() {
+        ParameterSelection selection = ParameterSelection.of(ROOTS, "/common/shared,/common/team-b", "/common/team-b", "");
+
+        assertThat(selection.forRoot("/common").plan(), hasToString("[/common/shared/**]"));
+    }
+
+    @Test
+    public void includedSubtreesShouldCostTheirPagesOnly() {
+        List<Parameter> parameters = read(ParameterSelection.of(ROOTS, "/common/shared/**,/common/db/*", "", ""));
+
+        assertThat(parameters.size(), is(11));
+        assertThat(store.getCallCount(), is(2L)); // a full recursive reading takes 52 pages
+    }
+
+    @Test
+    public void excludedSubtreesShouldBeCutByListing() {
+        List<Parameter> parameters = read(ParameterSelection.of(ROOTS, "", "/common/team-b,/common/team-c", ""));
+
+        assertThat(parameters.size(), is(12));
+        assertThat(store.getCallCount(), is(13L)); // 11 metadata pages + 2 batches of values
+    }
+
+    @Test
+    public void wildcardsInTheMiddleShouldBeResolvedByListing() {
+        List<Parameter> parameters = read(ParameterSelection.of(ROOTS, "/common/team-c/*/y00?", "", ""));
+
+        assertThat(parameters.size(), is(10));
+        assertThat(store.getCallCount(), is(5L));
+    }
+
+    @Test
+    public void rootWithoutSelectionShouldBeReadAsBefore() {
+        List<Parameter> parameters = read(ParameterSelection.of(ROOTS, "/app/x", "", ""));
+
+        assertThat(parameters.size(), is(512));
+        assertThat(store.getCallCount(), is(52L));
+    }
+
+    private List<Parameter> read(ParameterSelection selection) {
+        return new AwsParameterStoreReader(store, 1).withSelection(selection).readRoot("/common");
+    }
+
+}
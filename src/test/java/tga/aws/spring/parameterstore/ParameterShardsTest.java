@@ -0,0 +1,163 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.Before;
+import org.junit.Test;
+import tga.aws.spring.parameterstore.ParameterShards.Shard;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ParameterShardsTest {
+
+    private static final String[] ROOTS = {"/big", "/common"};
+
+    private LocalParameterStore store;
+
+    @Before
+    public void setUp() {
+        store = new LocalParameterStore();
+        store.put("/big/top", "top", ParameterType.String);
+        store.put("/big/a/b", "nested", ParameterType.String);
+        store.put("/big/a.b", "dotted", ParameterType.String); // the same spring property as /big/a/b
+        for (int i = 0; i < 2000; i++) store.put(String.format("/big/svc%02d/k%04d", i % 7, i), "v" + i, ParameterType.String);
+        for (int i = 0; i < 300; i++) store.put(String.format("/big/flat/f%03d", i), "f" + i, ParameterType.String);
+        store.put("/big/other/x", "x", ParameterType.String);
+        store.put("/common/x", "common", ParameterType.String);
+        store.put("/common/top", "common top", ParameterType.String);
+    }
+
+    @Test
+    public void bigPathsShouldBeSplitIntoChildren() {
+        List<Shard> shards = ParameterShards.discover("/r",
+                Arrays.asList("/r/x", "/r/a/1", "/r/a/2", "/r/a/3", "/r/b/c/1", "/r/b/c/2", "/r/b/d"), 2);
+
+        assertThat(shards, hasToString("[/r/*, /r/a/[2 names], /r/a/[1 names], /r/b/*, /r/b/c/**]"));
+    }
+
+    @Test
+    public void smallRootShouldBeASingleShard() {
+        assertThat(ParameterShards.discover("/r", Arrays.asList("/r/x", "/r/a/1"), 10), hasToString("[/r/**]"));
+    }
+
+    @Test
+    public void prefixesShouldBeReadWithTheDirectParametersOfTheRoot() {
+        List<Shard> shards = ParameterShards.of("/r", Arrays.asList("/r/a", "/r/a/b", "/r/c", "/elsewhere"));
+
+        assertThat(shards, hasToString("[/r/*, /r/a/**, /r/c/**]"));
+        assertTrue(ParameterShards.isCovered("/r/x", shards));
+        assertTrue(ParameterShards.isCovered("/r/a/b/c", shards));
+        assertFalse(ParameterShards.isCovered("/r/d/x", shards));
+    }
+
+    @Test
+    public void discoveredShardsShouldGiveTheSequentialResult() {
+        Map<String, Parameter> sequential = new AwsParameterStoreReader(store, 1).readAllProps(ROOTS);
+
+        Map<String, Parameter> sharded = new AwsParameterStoreReader(store, 1)
+                .withSharding(Collections.singletonMap("/big", new ArrayList<>()), 4)
+                .readAllProps(ROOTS);
+
+        assertThat(sharded, is(sequential));
+        assertThat(sharded.get("a.b").getValue(), is("dotted"));
+        assertThat(sharded.get("top").getValue(), is("top"));
+    }
+
+    @Test
+    public void parametersOutsideThePrefixesShouldBeReadByNames() {
+        Map<String, Parameter> sequential = new AwsParameterStoreReader(store, 1).readAllProps(ROOTS);
+
+        Map<String, List<String>> shards = new HashMap<>();
+        shards.put("/big", Arrays.asList("/big/svc00", "/big/svc01", "/big/flat", "/big/a"));
+        Map<String, Parameter> sharded = new AwsParameterStoreReader(store, 4)
+                .withSharding(shards, 3)
+                .readAllProps(ROOTS);
+
+        assertThat(sharded, is(sequential));
+        assertThat(sharded.get("other.x").getValue(), is("x"));
+    }
+
+    @Test
+    public void onlyTheCoverageCheckShouldListTheRoot() {
+        Map<String, List<String>> shards = new HashMap<>();
+        shards.put("/big", Arrays.asList("/big/svc00", "/big/flat", "/big/a"));
+        AtomicInteger describeCalls = new AtomicInteger();
+        LocalParameterStore counting = new LocalParameterStore() {
+            @Override
+            public DescribeParametersResult describeParameters(DescribeParametersRequest request) {
+                describeCalls.incrementAndGet();
+                return super.describeParameters(request);
+            }
+        };
+        counting.put("/big/top", "top", ParameterType.String);
+        counting.put("/big/a/b", "nested", ParameterType.String);
+        counting.put("/big/other/x", "x", ParameterType.String);
+
+        Map<String, Parameter> checked = new AwsParameterStoreReader(counting, 1).withSharding(shards, 3).readAllProps(new String[]{"/big"});
+
+        assertThat(describeCalls.get(), is(1));
+        assertThat(checked.get("other.x").getValue(), is("x"));
+
+        describeCalls.set(0);
+        Map<String, Parameter> unchecked = new AwsParameterStoreReader(counting, 1)
+                .withSharding(shards, 3)
+                .withShardCoverageCheck(false)
+                .readAllProps(new String[]{"/big"});
+
+        assertThat(describeCalls.get(), is(0));
+        assertThat(unchecked.get("top").getValue(), is("top"));
+        assertThat(unchecked.get("a.b").getValue(), is("nested"));
+        assertFalse(unchecked.containsKey("other.x"));
+    }
+
+    @Test
+    public void shardThreadsShouldLimitTheCallsOfAllTheRoots() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        LocalParameterStore slow = new LocalParameterStore() {
+            @Override
+            public GetParametersByPathResult getParametersByPath(GetParametersByPathRequest request) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(2);
+                    return super.getParametersByPath(request);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        };
+        for (int i = 0; i < 200; i++) {
+            slow.put(String.format("/one/p%d/k%03d", i % 4, i), "v" + i, ParameterType.String);
+            slow.put(String.format("/two/p%d/k%03d", i % 4, i), "v" + i, ParameterType.String);
+        }
+        Map<String, List<String>> shards = new HashMap<>();
+        shards.put("/one", Arrays.asList("/one/p0", "/one/p1", "/one/p2", "/one/p3"));
+        shards.put("/two", Arrays.asList("/two/p0", "/two/p1", "/two/p2", "/two/p3"));
+
+        Map<String, Parameter> props = new AwsParameterStoreReader(slow, 2).withSharding(shards, 3).readAllProps(new String[]{"/one", "/two"});
+
+        assertThat(props.size(), is(200));
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(3));
+    }
+
+}
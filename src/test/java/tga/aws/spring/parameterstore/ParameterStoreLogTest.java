@@ -0,0 +1,100 @@
+package tga.aws.spring.parameterstore;
+
+import org.apache.commons.logging.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import tga.aws.spring.parameterstore.ParameterStoreLog.Verbosity;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class ParameterStoreLogTest {
+
+    private final ParameterStoreLog log = new ParameterStoreLog();
+    private final Log target = mock(Log.class);
+
+    @Before
+    public void startBuffering() {
+        ParameterStoreLog.reset();
+        ParameterStoreLog.replay(mock(Log.class)); // drops the messages of other tests
+        ParameterStoreLog.reset();
+    }
+
+    @After
+    public void resetVerbosity() {
+        ParameterStoreLog.setVerbosity(Verbosity.SUMMARY);
+        ParameterStoreLog.reset();
+        ParameterStoreLog.replay();
+    }
+
+    @Test
+    public void offShouldDisableEverything() {
+        ParameterStoreLog.setVerbosity(Verbosity.OFF);
+
+        for (Verbosity level : Verbosity.values()) assertFalse(level.name(), log.isEnabled(level));
+    }
+
+    @Test
+    public void summaryShouldNotLogRootsAndKeys() {
+        ParameterStoreLog.setVerbosity(Verbosity.SUMMARY);
+
+        assertTrue(log.isEnabled(Verbosity.SUMMARY));
+        assertFalse(log.isEnabled(Verbosity.ROOTS));
+        assertFalse(log.isEnabled(Verbosity.KEYS));
+    }
+
+    @Test
+    public void keysShouldLogEverything() {
+        ParameterStoreLog.setVerbosity(Verbosity.KEYS);
+
+        assertTrue(log.isEnabled(Verbosity.SUMMARY));
+        assertTrue(log.isEnabled(Verbosity.ROOTS));
+        assertTrue(log.isEnabled(Verbosity.KEYS));
+    }
+
+    @Test
+    public void messagesShouldBeBufferedUntilReplay() {
+        log.info("first");
+        log.warn("second");
+
+        verifyZeroInteractions(target);
+    }
+
+    @Test
+    public void messagesShouldBeReplayedInOrderOnce() {
+        log.info("first");
+        log.warn("second");
+        log.error("third");
+
+        ParameterStoreLog.replay(target);
+        ParameterStoreLog.replay(target);
+        ParameterStoreLog.replay();
+        log.info("after");
+
+        InOrder order = inOrder(target);
+        order.verify(target).info("first", null);
+        order.verify(target).warn("second", null);
+        order.verify(target).error("third", null);
+        order.verify(target).info("after");
+        verifyNoMoreInteractions(target);
+    }
+
+    @Test
+    public void offShouldBufferNothing() {
+        ParameterStoreLog.setVerbosity(Verbosity.OFF);
+        log.info("first");
+        log.error("second");
+
+        ParameterStoreLog.replay(target);
+        log.warn("after");
+
+        verifyZeroInteractions(target);
+    }
+
+}
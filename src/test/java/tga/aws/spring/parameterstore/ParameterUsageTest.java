@@ -0,0 +1,112 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ParameterUsageTest {
+
+    private static final String[] ROOTS = {"/app", "/common", "/legacy"};
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, Parameter> params;
+    private AwsParameterStorePropertySource propertySource;
+
+    @Before
+    public void setUp() {
+        params = new HashMap<>();
+        put(params, "/app", "/app/server/port");
+        put(params, "/app", "/app/server/address");
+        put(params, "/app", "/app/db/url");
+        put(params, "/app", "/app/db/pool/max");
+        put(params, "/app", "/app/db/pool/min");
+        put(params, "/common", "/common/team-b/x");
+        put(params, "/common", "/common/team-b/y/z");
+        put(params, "/common", "/common/shared/a");
+        put(params, "/legacy", "/legacy/old");
+
+        propertySource = new AwsParameterStorePropertySource("test", ParameterIndex.of(params, true)).withUsageTracking();
+        for (String key : new String[]{"server.port", "server.address", "db.url", "shared.a", "server.port", "missing"}) {
+            propertySource.getProperty(key);
+        }
+    }
+
+    @Test
+    public void firstReadsShouldBeRecorded() {
+        ParameterUsage usage = propertySource.getUsage();
+
+        assertThat(usage.getReadCount(), is(4));
+        assertTrue(usage.isRead("server.port"));
+        assertFalse(usage.isRead("db.pool.max"));
+        assertFalse(usage.isRead("missing"));
+    }
+
+    @Test
+    public void unreadParametersShouldBeFoldedIntoPaths() {
+        ParameterUsageReport report = propertySource.getUsage().report(ROOTS, 600);
+
+        assertThat(report.getParameters(), is(9));
+        assertThat(report.getReadCount(), is(4));
+        assertThat(report.getUnusedRoots(), contains("/legacy"));
+        assertThat(report.getExcludePaths(), contains("/app/db/pool", "/common/team-b"));
+        assertThat(report.getIncludePaths(), contains("/app/db/url", "/app/server", "/common/shared"));
+        assertThat(report.getUnreadNames(), contains("/app/db/pool/max", "/app/db/pool/min",
+                "/common/team-b/x", "/common/team-b/y/z", "/legacy/old"));
+    }
+
+    @Test
+    public void excludePathsShouldSkipExactlyTheUnreadParameters() {
+        ParameterUsageReport report = propertySource.getUsage().report(ROOTS, 600);
+        ParameterSelection selection = ParameterSelection.of(ROOTS, "", String.join(",", report.getExcludePaths()), "");
+
+        for (Parameter p : params.values()) {
+            boolean unread = report.getUnreadNames().contains(p.getName()) && !p.getName().startsWith("/legacy/");
+            assertThat(p.getName(), selection.matches(p.getName()), is(!unread));
+        }
+    }
+
+    @Test
+    public void readsShouldSurviveAnIndexReplacement() {
+        Map<String, Parameter> refreshed = new HashMap<>(params);
+        put(refreshed, "/app", "/app/added");
+        propertySource.setIndex(ParameterIndex.of(refreshed, true));
+
+        assertThat(propertySource.getUsage().getReadCount(), is(4));
+        assertTrue(propertySource.getUsage().isRead("db.url"));
+        assertFalse(propertySource.getUsage().isRead("added"));
+    }
+
+    @Test
+    public void reportShouldBeWrittenAsProperties() throws Exception {
+        File file = new File(folder.getRoot(), "usage/report.properties");
+        AwsParameterStoreUsageReporter reporter = new AwsParameterStoreUsageReporter(propertySource, ROOTS, 60_000, file);
+
+        reporter.stop(); // the context is closed before the warm-up is over
+
+        String report = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertThat(report, containsString("\npsExcludePaths=/app/db/pool,/common/team-b\n"));
+        assertThat(report, containsString("# unused roots (can be removed from psRoots): /legacy\n"));
+        assertThat(report, containsString("#psIncludePaths=/app/db/url,/app/server,/common/shared\n"));
+    }
+
+    private static void put(Map<String, Parameter> params, String root, String name) {
+        params.put(AwsParameterStoreReader.toPropertyName(root, name), new Parameter().withName(name).withType("String").withValue(name));
+    }
+
+}
@@ -0,0 +1,94 @@
+package tga.aws.spring.parameterstore;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ssm.SsmAsyncClient;
+import software.amazon.awssdk.services.ssm.model.GetParametersByPathResponse;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SdkV2ParameterStoreClientTest {
+
+    @Mock private SsmAsyncClient ssmMock;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pageShouldBeConvertedToV1Model() {
+        when(ssmMock.getParametersByPath(any(Consumer.class))).thenReturn(CompletableFuture.completedFuture(
+                GetParametersByPathResponse.builder()
+                        .parameters(software.amazon.awssdk.services.ssm.model.Parameter.builder()
+                                .name("/app/server/port").type("String").value("8080").version(3L)
+                                .lastModifiedDate(Instant.ofEpochSecond(1_000)).build())
+                        .nextToken("next")
+                        .build()
+        ));
+
+        GetParametersByPathResult result = new SdkV2ParameterStoreClient(ssmMock)
+                .getParametersByPath(new GetParametersByPathRequest().withPath("/app"));
+
+        Parameter p = result.getParameters().get(0);
+        assertThat(p.getName(), is("/app/server/port"));
+        assertThat(p.getType(), is("String"));
+        assertThat(p.getValue(), is("8080"));
+        assertThat(p.getVersion(), is(3L));
+        assertThat(p.getLastModifiedDate().getTime(), is(1_000_000L));
+        assertThat(result.getNextToken(), is("next"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serviceErrorShouldBeConvertedToAmazonServiceException() {
+        CompletableFuture<GetParametersByPathResponse> failed = new CompletableFuture<>();
+        failed.completeExceptionally(AwsServiceException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").serviceName("Ssm").build())
+                .statusCode(400)
+                .build());
+        when(ssmMock.getParametersByPath(any(Consumer.class))).thenReturn(failed);
+
+        try {
+            new SdkV2ParameterStoreClient(ssmMock).getParametersByPath(new GetParametersByPathRequest().withPath("/app"));
+            fail("AmazonServiceException expected");
+        } catch (RuntimeException e) {
+            assertThat(e, instanceOf(AmazonServiceException.class));
+            assertThat(((AmazonServiceException) e).getErrorCode(), is("ThrottlingException"));
+            assertTrue(AdaptiveThrottler.isThrottling(e));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void readerShouldWorkOverV2Client() {
+        when(ssmMock.getParametersByPath(any(Consumer.class))).thenReturn(CompletableFuture.completedFuture(
+                GetParametersByPathResponse.builder()
+                        .parameters(software.amazon.awssdk.services.ssm.model.Parameter.builder()
+                                .name("/app/server/port").type("String").value("8080").build())
+                        .build()
+        ));
+
+        Map<String, Parameter> props = new AwsParameterStoreReader(new SdkV2ParameterStoreClient(ssmMock), 1)
+                .readAllProps(new String[]{"/app"});
+
+        assertThat(props.get("server.port").getValue(), is("8080"));
+    }
+
+}
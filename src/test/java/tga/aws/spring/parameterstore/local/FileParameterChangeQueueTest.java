@@ -0,0 +1,50 @@
+package tga.aws.spring.parameterstore.local;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FileParameterChangeQueueTest {
+
+    @Test
+    public void onlyAppendedCompleteLinesShouldBeDelivered() throws IOException, InterruptedException {
+        File file = File.createTempFile("events", ".jsonl");
+        file.deleteOnExit();
+        append(file, "{\"old\": 1}\n");
+
+        FileParameterChangeQueue queue = new FileParameterChangeQueue(file);
+        assertThat(queue.poll(0), is(empty()));
+
+        append(file, "{\"a\": 1}\n{\"b\":");
+        assertThat(queue.poll(100), contains("{\"a\": 1}"));
+
+        append(file, " 2}\n");
+        assertThat(queue.poll(100), contains("{\"b\": 2}"));
+    }
+
+    @Test
+    public void truncatedFileShouldBeReadFromTheBeginning() throws IOException, InterruptedException {
+        File file = File.createTempFile("events", ".jsonl");
+        file.deleteOnExit();
+        append(file, "{\"old\": 1}\n{\"old\": 2}\n");
+        FileParameterChangeQueue queue = new FileParameterChangeQueue(file);
+
+        Files.write(file.toPath(), "{\"new\": 1}\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(queue.poll(100), contains("{\"new\": 1}"));
+    }
+
+    private static void append(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+}
@@ -0,0 +1,144 @@
+package tga.aws.spring.parameterstore.local;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.DescribeParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersByPathResult;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersRequest;
+import com.amazonaws.services.simplesystemsmanagement.model.GetParametersResult;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterStringFilter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class LocalParameterStoreTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalParameterStore store;
+
+    @Before
+    public void setUp() {
+        store = new LocalParameterStore();
+        for (int i = 0; i < 25; i++) store.put(String.format("/app/list/p%02d", i), "v" + i, ParameterType.String);
+        store.put("/app/top", "top", ParameterType.String);
+        store.put("/app/secret", "s3cr3t", ParameterType.SecureString);
+        store.put("/application/other", "other", ParameterType.String);
+    }
+
+    @Test
+    public void allPagesShouldBeReadWithNextToken() {
+        List<String> names = new ArrayList<>();
+        String nextToken = null;
+        int pages = 0;
+        do {
+            GetParametersByPathResult result = store.getParametersByPath(new GetParametersByPathRequest()
+                    .withPath("/app").withRecursive(true).withWithDecryption(true).withNextToken(nextToken));
+            for (Parameter p : result.getParameters()) names.add(p.getName());
+            nextToken = result.getNextToken();
+            pages++;
+        } while (nextToken != null);
+
+        assertThat(names, hasSize(27));
+        assertThat(pages, is(3));
+    }
+
+    @Test
+    public void nonRecursiveReadingShouldReturnDirectChildrenOnly() {
+        GetParametersByPathResult result = store.getParametersByPath(new GetParametersByPathRequest()
+                .withPath("/app").withRecursive(false).withWithDecryption(true));
+
+        List<String> names = new ArrayList<>();
+        for (Parameter p : result.getParameters()) names.add(p.getName());
+        assertThat(names, containsInAnyOrder("/app/secret", "/app/top"));
+    }
+
+    @Test
+    public void secureStringShouldBeDecryptedOnlyOnRequest() {
+        GetParametersResult encrypted = store.getParameters(new GetParametersRequest().withNames("/app/secret").withWithDecryption(false));
+        GetParametersResult decrypted = store.getParameters(new GetParametersRequest().withNames("/app/secret").withWithDecryption(true));
+
+        assertThat(encrypted.getParameters().get(0).getValue(), is(LocalParameterStore.encrypt("s3cr3t")));
+        assertThat(decrypted.getParameters().get(0).getValue(), is("s3cr3t"));
+    }
+
+    @Test
+    public void missingNamesShouldBeReportedAsInvalid() {
+        GetParametersResult result = store.getParameters(new GetParametersRequest().withNames("/app/top", "/app/none"));
+
+        assertThat(result.getParameters(), hasSize(1));
+        assertThat(result.getInvalidParameters(), contains("/app/none"));
+    }
+
+    @Test
+    public void moreThanTenNamesShouldBeRejected() {
+        try {
+            store.getParameters(new GetParametersRequest().withNames(Arrays.asList(
+                    "/1", "/2", "/3", "/4", "/5", "/6", "/7", "/8", "/9", "/10", "/11")));
+            fail("ValidationException expected");
+        } catch (AmazonServiceException e) {
+            assertThat(e.getErrorCode(), is("ValidationException"));
+        }
+    }
+
+    @Test
+    public void describeShouldReturnMetadataWithoutValues() {
+        store.put("/app/top", "top v2", ParameterType.String);
+
+        DescribeParametersResult result = store.describeParameters(new DescribeParametersRequest()
+                .withParameterFilters(new ParameterStringFilter().withKey("Path").withOption("OneLevel").withValues("/app")));
+
+        assertThat(result.getParameters(), hasSize(2));
+        assertThat(result.getParameters().get(1).getName(), is("/app/top"));
+        assertThat(result.getParameters().get(1).getVersion(), is(2L));
+        assertThat(result.getNextToken(), is(nullValue()));
+    }
+
+    @Test
+    public void throttlingShouldBeInjected() {
+        store.withThrottleProbability(1);
+        try {
+            store.getParameters(new GetParametersRequest().withNames("/app/top"));
+            fail("ThrottlingException expected");
+        } catch (AmazonServiceException e) {
+            assertThat(e.getErrorCode(), is("ThrottlingException"));
+        }
+    }
+
+    @Test
+    public void storeShouldBeSeededFromPropertiesFile() throws Exception {
+        File file = folder.newFile("store.properties");
+        Files.write(file.toPath(), Arrays.asList(
+                "/app/server/port=8080",
+                "common.db.password={secure}pwd"
+        ), StandardCharsets.UTF_8);
+
+        LocalParameterStore loaded = LocalParameterStore.load(file);
+
+        GetParametersResult result = loaded.getParameters(new GetParametersRequest()
+                .withNames("/app/server/port", "/common/db/password").withWithDecryption(true));
+        assertThat(result.getParameters().get(0).getValue(), is("8080"));
+        assertThat(result.getParameters().get(1).getValue(), is("pwd"));
+        assertThat(result.getParameters().get(1).getType(), is("SecureString"));
+    }
+
+}
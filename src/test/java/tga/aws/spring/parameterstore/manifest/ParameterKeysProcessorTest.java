@@ -0,0 +1,74 @@
+package tga.aws.spring.parameterstore.manifest;
+
+import org.junit.Test;
+import tga.aws.spring.parameterstore.ParameterKeyManifest;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ParameterKeysProcessorTest {
+
+    @Test
+    public void keysOfNestedPlaceholdersShouldBeCollected() {
+        assertThat(ParameterKeysProcessor.placeholderKeys("${a.b:${c.d:1}}"), contains("a.b", "c.d"));
+        assertThat(ParameterKeysProcessor.placeholderKeys("#{'${app.hosts}'.split(',')}"), contains("app.hosts"));
+        assertThat(ParameterKeysProcessor.placeholderKeys("${x:{\"json\": 1}} and ${y}"), contains("x", "y"));
+        assertThat(ParameterKeysProcessor.placeholderKeys("plain ${unclosed"), is(empty()));
+    }
+
+    @Test
+    public void manifestShouldBeWrittenForAnnotatedSources() throws IOException {
+        String source = "package demo;\n"
+                + "import org.springframework.beans.factory.annotation.Value;\n"
+                + "import org.springframework.boot.context.properties.ConfigurationProperties;\n"
+                + "@ConfigurationProperties(prefix = \"app.datasource\")\n"
+                + "public class Demo {\n"
+                + "    @Value(\"${app.timeout:${app.default-timeout:30}}\") int timeout;\n"
+                + "    public Demo(@Value(\"${app.name}\") String name) {}\n"
+                + "}\n";
+        File out = Files.createTempDirectory("key-manifest").toFile();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null,
+                Arrays.asList("-proc:only", "-d", out.getPath(), "-classpath", System.getProperty("java.class.path")),
+                null, Collections.singletonList(new Source("demo/Demo.java", source)));
+        task.setProcessors(Collections.singletonList(new ParameterKeysProcessor()));
+
+        assertThat(task.call(), is(true));
+
+        File manifestFile = new File(out, ParameterKeyManifest.RESOURCE);
+        ParameterKeyManifest manifest = ParameterKeyManifest.parse(new String(Files.readAllBytes(manifestFile.toPath()), StandardCharsets.UTF_8));
+
+        assertThat(manifest.getKeys(), contains("app.default-timeout", "app.name", "app.timeout"));
+        assertThat(manifest.getPrefixes(), contains("app.datasource"));
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+        private final String code;
+
+        Source(String path, String code) {
+            super(URI.create("string:///" + path), JavaFileObject.Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package tga.aws.spring.parameterstore.sample;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * A minimal application for the native image test (see the <i>native</i> maven profile): no web server,
+ * no <code>@Configuration</code> classes (they need CGLIB proxies), the connector is picked up from spring.factories.
+ * <pre>
+ *     java SampleApplication --psSpringProfiles=ANY --psRoots=/app --psClient=local --psLocalStoreFile=store.properties
+ * </pre>
+ */
+public class SampleApplication {
+
+    public static ConfigurableApplicationContext run(String... args) {
+        SpringApplication application = new SpringApplication(SampleApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setBannerMode(Banner.Mode.OFF);
+        return application.run(args);
+    }
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = run(args)) {
+            System.out.println("server.port=" + context.getEnvironment().getProperty("server.port"));
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package tga.aws.spring.parameterstore.sample;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Boots the sample application against the local store; the same test runs in a native image
+ * (<code>mvn -Pnative test</code>).
+ */
+public class SampleApplicationTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void applicationShouldStartWithTheParametersOfTheLocalStore() throws Exception {
+        File store = folder.newFile("store.properties");
+        Files.write(store.toPath(), Arrays.asList(
+                "/sample/server/port=8080",
+                "/sample/datasource/url=jdbc:local",
+                "/sample-common/server/port=8090",
+                "/sample-common/server/address=localhost"
+        ), StandardCharsets.UTF_8);
+
+        try (ConfigurableApplicationContext context = SampleApplication.run(
+                "--psSpringProfiles=ANY",
+                "--psRoots=/sample,/sample-common",
+                "--psClient=local",
+                "--psLocalStoreFile=" + store.getPath())) {
+
+            ConfigurableEnvironment environment = context.getEnvironment();
+            assertTrue(environment.getPropertySources().contains("AwsParameterStorePropertySource"));
+            assertThat(environment.getProperty("server.port"), is("8080"));
+            assertThat(environment.getProperty("server.address"), is("localhost"));
+            assertThat(environment.getProperty("datasource.url"), is("jdbc:local"));
+        }
+    }
+
+}
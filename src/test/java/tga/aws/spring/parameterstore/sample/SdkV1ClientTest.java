@@ -0,0 +1,49 @@
+package tga.aws.spring.parameterstore.sample;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.simplesystemsmanagement.AWSSimpleSystemsManagementClientBuilder;
+import com.amazonaws.services.simplesystemsmanagement.model.Parameter;
+import com.amazonaws.services.simplesystemsmanagement.model.ParameterType;
+import org.junit.Test;
+import tga.aws.spring.parameterstore.AwsParameterStoreReader;
+import tga.aws.spring.parameterstore.SdkV1ParameterStoreClient;
+import tga.aws.spring.parameterstore.local.LocalParameterStore;
+
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Reads the parameters with the AWS SDK v1 client over HTTP, from a stub of the SSM endpoint. In a native image
+ * (<code>mvn -Pnative test</code>) it checks the SDK v1 metadata shipped in the jar: the tracing agent of the profile
+ * doesn't record the reflection of the library and of the SDK, so a missing entry fails here.
+ */
+public class SdkV1ClientTest {
+
+    @Test
+    public void parametersShouldBeReadWithTheSdkV1Client() throws Exception {
+        LocalParameterStore store = new LocalParameterStore()
+                .put("/sample/server/port", "8080", ParameterType.String)
+                .put("/sample-common/server/port", "8090", ParameterType.String)
+                .put("/sample-common/server/address", "localhost", ParameterType.String);
+        for (int i = 0; i < 15; i++) store.put("/sample/hosts/h" + i, "host" + i, ParameterType.String); // 2 pages
+
+        try (SsmHttpStub stub = new SsmHttpStub(store);
+             SdkV1ParameterStoreClient client = new SdkV1ParameterStoreClient(AWSSimpleSystemsManagementClientBuilder.standard()
+                     .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(stub.getEndpoint().toString(), "eu-west-1"))
+                     .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("id", "secret")))
+                     .build())) {
+
+            Map<String, Parameter> props = new AwsParameterStoreReader(client, 1).readAllProps(new String[]{"/sample", "/sample-common"});
+
+            assertThat(props.size(), is(17));
+            assertThat(props.get("server.port").getValue(), is("8080"));
+            assertThat(props.get("server.address").getValue(), is("localhost"));
+            assertThat(props.get("hosts.h14").getValue(), is("host14"));
+        }
+    }
+
+}